@@ -0,0 +1,61 @@
+package com.org.orchestrator.csv;
+
+import com.org.orchestrator.model.PipelineRow;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class FlowCsvReaderBenchmark {
+
+    @Param({"1000", "100000"})
+    public int rows;
+
+    private Path csv;
+
+    @Setup(Level.Trial)
+    public void writeCsv() throws IOException {
+        csv = Files.createTempFile("flow-bench", ".csv");
+        try (BufferedWriter out = Files.newBufferedWriter(csv)) {
+            out.write("applicationName,projectId,accessToken,branch,variablesAndValues,artifactJobName,order\n");
+            for (int i = 0; i < rows; i++) {
+                String vars = i % 2 == 0
+                        ? "\"ENV=staging;REGION=eu-west-1;VERSION=1." + i + "\""
+                        : "\"{\"\"ENV\"\":\"\"staging\"\",\"\"REGION\"\":\"\"eu-west-1\"\",\"\"VERSION\"\":\"\"1." + i + "\"\"}\"";
+                out.write("app-" + i + "," + (1000 + i % 50) + ",glpat-token-" + (i % 5) + ",main," + vars + ",build," + (rows - i) + "\n");
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteCsv() throws IOException {
+        Files.deleteIfExists(csv);
+    }
+
+    @Benchmark
+    public List<PipelineRow> read() {
+        return FlowCsvReader.read(csv);
+    }
+}
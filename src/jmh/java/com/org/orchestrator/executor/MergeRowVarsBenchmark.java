@@ -0,0 +1,51 @@
+package com.org.orchestrator.executor;
+
+import com.org.orchestrator.model.PipelineRow;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Merge of the runtime variables accumulated along a flow with a row's static variables, done before
+ * every trigger. The runtime map grows with the length of the flow.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MergeRowVarsBenchmark {
+
+    @Param({"10", "1000"})
+    public int runtimeVars;
+
+    private PipelineRow row;
+    private Map<String, String> runtime;
+
+    @Setup
+    public void buildInputs() {
+        row = new PipelineRow("app", 42, "token", "main", "ENV=staging;REGION=eu-west-1;VERSION=1.42.0", "build", 1);
+        runtime = new HashMap<>();
+        for (int i = 0; i < runtimeVars; i++) {
+            runtime.put("OUT_" + i, "value-" + i);
+        }
+    }
+
+    @Benchmark
+    public Map<String, String> mergeRowVars() {
+        return CsvFlowWorker.mergeRowVars(row, runtime);
+    }
+}
@@ -0,0 +1,47 @@
+package com.org.orchestrator.gitlab;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON body built for every {@code triggerPipeline} call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TriggerPayloadBenchmark {
+
+    @Param({"5", "100"})
+    public int variables;
+
+    private Map<String, String> vars;
+
+    @Setup
+    public void buildVars() {
+        vars = new HashMap<>();
+        for (int i = 0; i < variables; i++) {
+            vars.put("VARIABLE_" + i, "value-" + i);
+        }
+    }
+
+    @Benchmark
+    public String buildTriggerPayload() {
+        return GitLabAsyncClient.buildTriggerPayload("main", vars);
+    }
+}
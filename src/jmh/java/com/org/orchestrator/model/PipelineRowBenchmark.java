@@ -0,0 +1,38 @@
+package com.org.orchestrator.model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Variable parsing happens in the {@link PipelineRow} constructor, once per CSV row.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class PipelineRowBenchmark {
+
+    private final String json = "{\"ENV\":\"staging\",\"REGION\":\"eu-west-1\",\"VERSION\":\"1.42.0\",\"DEPLOY\":\"true\",\"REPLICAS\":\"3\"}";
+    private final String keyValue = "ENV=staging;REGION=eu-west-1;VERSION=1.42.0;DEPLOY=true;REPLICAS=3";
+
+    @Benchmark
+    public PipelineRow parseJsonVariables() {
+        return new PipelineRow("app", 42, "token", "main", json, "build", 1);
+    }
+
+    @Benchmark
+    public PipelineRow parseKeyValueVariables() {
+        return new PipelineRow("app", 42, "token", "main", keyValue, "build", 1);
+    }
+}
@@ -0,0 +1,77 @@
+package com.org.orchestrator.report;
+
+import com.org.orchestrator.model.ExecutionSummary;
+import com.org.orchestrator.model.PipelineResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Report for {@code flows} flows of {@code rowsPerFlow} rows, where each row adds one variable to the
+ * merged map, as artifact outputs do in a real flow.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class HtmlReportBenchmark {
+
+    @Param({"10"})
+    public int flows;
+
+    @Param({"100", "1000"})
+    public int rowsPerFlow;
+
+    private List<ExecutionSummary> summaries;
+    private Path out;
+
+    @Setup(Level.Trial)
+    public void buildSummaries() throws IOException {
+        out = Files.createTempFile("report-bench", ".html");
+        summaries = new ArrayList<>();
+        for (int f = 0; f < flows; f++) {
+            ExecutionSummary summary = new ExecutionSummary("flow-" + f + ".csv");
+            Map<String, String> merged = new HashMap<>();
+            for (int r = 0; r < rowsPerFlow; r++) {
+                merged.put("OUT_" + r, "value-" + r);
+                Map<String, String> rowVars = new HashMap<>();
+                rowVars.put("applicationName", "app-" + r);
+                rowVars.put("projectId", String.valueOf(1000 + r));
+                rowVars.put("ENV", "staging");
+                summary.addPipelineResult(new PipelineResult(10_000 + r, "success", new HashMap<>(merged), rowVars));
+            }
+            summaries.add(summary);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteReport() throws IOException {
+        Files.deleteIfExists(out);
+    }
+
+    @Benchmark
+    public void generate() {
+        HtmlReportGenerator.generate(summaries, out);
+    }
+}
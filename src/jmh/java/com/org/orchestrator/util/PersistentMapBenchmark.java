@@ -0,0 +1,59 @@
+package com.org.orchestrator.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Snapshot of the runtime variables after a row that wrote a few outputs: a full copy of a hash map, as
+ * the executor used to do for every row, against an update of a persistent map.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class PersistentMapBenchmark {
+
+    @Param({"10", "1000"})
+    public int runtimeVars;
+
+    private Map<String, String> hashMap;
+    private PersistentMap<String, String> persistentMap;
+    private Map<String, String> outputs;
+
+    @Setup
+    public void buildInputs() {
+        hashMap = new HashMap<>();
+        for (int i = 0; i < runtimeVars; i++) {
+            hashMap.put("OUT_" + i, "value-" + i);
+        }
+        persistentMap = PersistentMap.copyOf(hashMap);
+        outputs = Map.of("OUT_1", "changed", "LAST", "42", "NEW_VAR", "new");
+    }
+
+    @Benchmark
+    public Map<String, String> copyHashMap() {
+        Map<String, String> after = new HashMap<>(hashMap);
+        after.putAll(outputs);
+        return after;
+    }
+
+    @Benchmark
+    public Map<String, String> updatePersistentMap() {
+        return persistentMap.plusAll(outputs);
+    }
+}
@@ -1,57 +1,127 @@
 package com.org.orchestrator;
 
-import com.org.orchestrator.executor.CsvFlowWorker;
-import com.org.orchestrator.gitlab.GitLabClient;
-import com.org.orchestrator.model.ExecutionSummary;
-import com.org.orchestrator.report.HtmlReportGenerator;
+import com.org.orchestrator.daemon.FlowDaemon;
+import com.org.orchestrator.executor.FlowExecutor;
+import com.org.orchestrator.journal.JournalReplay;
+import com.org.orchestrator.report.JUnitXmlReport;
+import com.org.orchestrator.report.JsonLinesReport;
+import com.org.orchestrator.report.LazyReportSink;
+import com.org.orchestrator.report.MultiReportSink;
+import com.org.orchestrator.report.ReportSink;
+import com.org.orchestrator.report.StreamingHtmlReport;
+import com.org.orchestrator.spool.SpoolQueue;
+import com.org.orchestrator.spool.SpoolRunner;
 import com.org.orchestrator.util.Config;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 
 public class AppMain {
     private static final Logger log = LoggerFactory.getLogger(AppMain.class);
 
+    private static final long SHUTDOWN_GRACE_MILLIS = 10_000;
+
     public static void main(String[] args) {
         try {
             Config cfg = Config.fromArgs(args);
-            List<Path> csvFiles = cfg.getInputCsvs();
-            int threads = Math.min(cfg.getMaxThreads(), csvFiles.size());
-            if (threads <= 0) {
-                threads = 1;
+            Map<Path, Path> flows = new LinkedHashMap<>();
+            cfg.getInputCsvs().forEach(csv -> flows.put(csv, null));
+            for (Path journal : cfg.getResumeJournals()) {
+                Path csv = JournalReplay.read(journal).getCsvPath();
+                flows.keySet().removeIf(input -> input.toAbsolutePath().normalize().equals(csv.normalize()));
+                flows.put(csv, journal);
+                log.info("Resuming flow {} from journal {}", csv, journal);
             }
+            List<Path> csvFiles = new ArrayList<>(flows.keySet());
+            boolean spool = cfg.getSpoolDir() != null;
+            int flowCount = spool || cfg.isDaemon() ? cfg.getMaxThreads() : csvFiles.size();
+            try (Orchestrator orchestrator = new Orchestrator(cfg, flowCount)) {
+                FlowExecutor executor = orchestrator.getExecutor();
+                log.info("Initializing orchestrator with {} {} concurrency for {} CSV files.",
+                        executor.getConcurrency(), executor.getMode(), spool ? "spooled" : cfg.isDaemon() ? "submitted" : csvFiles.size());
 
-            log.info("Initializing orchestrator with {} threads for {} CSV files.", threads, csvFiles.size());
-
-            ExecutorService executor = Executors.newFixedThreadPool(threads);
-            GitLabClient gitlab = new GitLabClient(cfg.getGitlabBaseUrl());
-
-            List<CompletableFuture<ExecutionSummary>> futures = csvFiles.stream()
-                    .map(file -> CompletableFuture.supplyAsync(() ->
-                            new CsvFlowWorker(file, gitlab, cfg).get(), executor))
-                    .collect(Collectors.toList());
-
-            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
-
-            log.info("All CSV flows have completed. Generating final report.");
-
-            List<ExecutionSummary> results = futures.stream()
-                    .map(CompletableFuture::join)
-                    .collect(Collectors.toList());
+                // Each flow is added to the reports as soon as it finishes; summaries are not kept after that.
+                String reportName = "execution-summary-" + cfg.getRunId();
+                if (cfg.isDaemon()) {
+                    try (ReportSink report = reports(reportName);
+                         FlowDaemon daemon = new FlowDaemon(orchestrator, report, cfg.getDaemonPort(), cfg.getDaemonDir(), cfg.getWatchDir())) {
+                        csvFiles.forEach(csv -> daemon.submit(csv, flows.get(csv)));
+                        drainOnShutdown(orchestrator, daemon::shutdown);
+                        daemon.awaitShutdown();
+                        log.info("Daemon shutting down.");
+                        // The hook has cancelled the flows; let them finish and be reported before closing.
+                        if (!daemon.awaitFlows(SHUTDOWN_GRACE_MILLIS)) {
+                            log.warn("Flows still running after {} ms; closing the daemon without them.", SHUTDOWN_GRACE_MILLIS);
+                        }
+                    }
+                } else if (spool) {
+                    // No shutdown hook: another worker reclaims the lease and re-attaches to the running pipelines.
+                    try (SpoolQueue queue = new SpoolQueue(cfg.getSpoolDir(), cfg.getWorkerId(), cfg.getLeaseTimeout() * 1000L, cfg.getJournalDir())) {
+                        // Flows named on the command line are queued for every worker; this process then
+                        // coordinates them and writes their report. Without --input it only works the queue.
+                        List<String> queued = queue.enqueue(csvFiles);
+                        SpoolRunner runner = new SpoolRunner(queue, executor, orchestrator::worker);
+                        try (ReportSink report = queued.isEmpty() ? null : reports(reportName)) {
+                            runner.run(queued, report);
+                        }
+                    }
+                } else {
+                    Thread hook = drainOnShutdown(orchestrator, () -> { });
+                    try (ReportSink report = reports(reportName)) {
+                        List<CompletableFuture<Void>> futures = csvFiles.stream()
+                                .map(file -> orchestrator.submit(file, flows.get(file)).thenAccept(report::append))
+                                .collect(Collectors.toList());
 
-            HtmlReportGenerator.generate(results, Paths.get("execution-summary-" + System.currentTimeMillis() + ".html"));
-            executor.shutdown();
+                        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+                        log.info("All CSV flows have completed. Finalizing report.");
+                    } finally {
+                        try {
+                            Runtime.getRuntime().removeShutdownHook(hook);
+                        } catch (IllegalStateException e) {
+                            // Already shutting down; the hook is waiting for this thread.
+                        }
+                    }
+                }
+            }
             log.info("Orchestration finished.");
         } catch (Exception e) {
             log.error("A fatal error occurred in the application's main thread.", e);
             System.exit(1);
         }
     }
+
+    /**
+     * On SIGTERM or Ctrl-C, cancels the running flows and their pipelines, then gives the main thread
+     * {@link #SHUTDOWN_GRACE_MILLIS} to let the flows finish and write their reports.
+     */
+    private static Thread drainOnShutdown(Orchestrator orchestrator, Runnable stop) {
+        Thread main = Thread.currentThread();
+        Thread hook = new Thread(() -> {
+            log.warn("Shutdown requested, cancelling running flows.");
+            orchestrator.shutdown("the orchestrator is shutting down");
+            stop.run();
+            try {
+                main.join(SHUTDOWN_GRACE_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "orchestrator-shutdown");
+        Runtime.getRuntime().addShutdownHook(hook);
+        return hook;
+    }
+
+    private static ReportSink reports(String name) {
+        return new MultiReportSink(List.of(
+                new LazyReportSink(() -> new StreamingHtmlReport(Paths.get(name + ".html"))),
+                new LazyReportSink(() -> new JsonLinesReport(Paths.get(name + ".jsonl"))),
+                new LazyReportSink(() -> new JUnitXmlReport(Paths.get(name + ".xml")))));
+    }
 }
@@ -0,0 +1,133 @@
+package com.org.orchestrator;
+
+import com.org.orchestrator.cache.ResultCache;
+import com.org.orchestrator.events.EventLog;
+import com.org.orchestrator.events.Events;
+import com.org.orchestrator.executor.CsvFlowWorker;
+import com.org.orchestrator.executor.FlowContext;
+import com.org.orchestrator.executor.FlowExecutor;
+import com.org.orchestrator.executor.PipelineScheduler;
+import com.org.orchestrator.executor.RunControl;
+import com.org.orchestrator.gitlab.GitLabAsyncClient;
+import com.org.orchestrator.gitlab.GitLabClient;
+import com.org.orchestrator.gitlab.PipelineStatusPoller;
+import com.org.orchestrator.gitlab.WebhookListener;
+import com.org.orchestrator.metrics.Metrics;
+import com.org.orchestrator.metrics.MetricsServer;
+import com.org.orchestrator.model.ExecutionSummary;
+import com.org.orchestrator.trace.RunTrace;
+import com.org.orchestrator.trace.Tracing;
+import com.org.orchestrator.util.Config;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * The long-lived parts of a run: flow executor, GitLab client and connection pool, status poller, the
+ * run's deadlines and cancellation, and the optional cache, webhook listener, event log, run trace and
+ * metrics endpoint. Built once per process and shared by every flow, whether the flows come from the
+ * command line, a spool or daemon submissions.
+ */
+public class Orchestrator implements AutoCloseable {
+    private final Config cfg;
+    private final FlowExecutor executor;
+    private final MetricsServer metricsServer;
+    private final GitLabAsyncClient gitlabAsync;
+    private final GitLabClient gitlab;
+    private final PipelineStatusPoller poller;
+    private final ResultCache cache;
+    private final WebhookListener webhooks;
+    private final PipelineScheduler scheduler;
+    private final EventLog eventLog;
+    private final RunControl control;
+    private final FlowContext flows;
+    private final RunTrace trace;
+
+    /**
+     * @param flowCount number of flows known up front, which caps the platform thread pool
+     */
+    public Orchestrator(Config cfg, int flowCount) throws IOException {
+        this.cfg = cfg;
+        this.eventLog = cfg.getEventLogDir() != null
+                ? new EventLog(cfg.getEventLogDir(), cfg.getRunId(), cfg.getEventLogMaxBytes(), cfg.getEventLogBuffer()) : null;
+        Events.install(eventLog);
+        this.trace = cfg.getTraceDir() != null ? new RunTrace(cfg.getTraceDir(), cfg.getRunId(), cfg.isDaemon() || cfg.getSpoolDir() != null) : null;
+        Tracing.install(trace);
+        this.executor = FlowExecutor.create(cfg, flowCount);
+        this.metricsServer = cfg.getMetricsPort() > 0 ? new MetricsServer(cfg.getMetricsBind(), cfg.getMetricsPort()) : null;
+        this.gitlabAsync = new GitLabAsyncClient(cfg);
+        this.gitlab = new GitLabClient(gitlabAsync);
+        this.poller = new PipelineStatusPoller(gitlabAsync, cfg);
+        this.cache = cfg.getCacheDir() != null ? new ResultCache(cfg.getCacheDir(), cfg.getCacheTtl(), cfg.getCacheMaxEntries()) : null;
+        this.webhooks = cfg.getWebhookPort() > 0 ? new WebhookListener(cfg.getWebhookPort(), cfg.getWebhookSecret(), poller) : null;
+        this.scheduler = new PipelineScheduler(cfg.getMaxPipelinesPerProject(), cfg.getProjectLimits(), cfg.getRunnerGroupLimits());
+        this.control = new RunControl(gitlabAsync, poller, cfg);
+        this.flows = new FlowContext(gitlab, poller, cfg, executor.rowExecutor(), cache, scheduler, control);
+    }
+
+    /**
+     * @param resumeJournal journal of an interrupted run of {@code csv} to continue from, or {@code null}
+     */
+    public CsvFlowWorker worker(Path csv, Path resumeJournal) {
+        return new CsvFlowWorker(csv, resumeJournal, flows);
+    }
+
+    public CompletableFuture<ExecutionSummary> submit(Path csv, Path resumeJournal) {
+        return schedule(csv, worker(csv, resumeJournal));
+    }
+
+    /**
+     * Queues {@code flow}, the run of {@code csv}, behind flows of higher {@code --flowWeights} and smaller CSVs.
+     */
+    public <T> CompletableFuture<T> schedule(Path csv, Supplier<T> flow) {
+        long size;
+        try {
+            size = Files.size(csv);
+        } catch (IOException e) {
+            size = 0;
+        }
+        return executor.submit(flow, cfg.getFlowWeights().getOrDefault(csv.getFileName().toString(), 1), size);
+    }
+
+    public FlowExecutor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Cancels every flow and its pipelines in GitLab, after which the flows finish with what they have and
+     * their reports are written. With {@code --cancelOnShutdown=false} the pipelines are left running,
+     * to be picked up again with {@code --resume}.
+     */
+    public void shutdown(String reason) {
+        if (cfg.isCancelOnShutdown()) {
+            control.cancelAll(reason);
+        }
+    }
+
+    @Override
+    public void close() {
+        control.close();
+        executor.close();
+        if (webhooks != null) {
+            webhooks.close();
+        }
+        poller.close();
+        gitlabAsync.close();
+        if (eventLog != null) {
+            Events.install(null);
+            eventLog.close();
+        }
+        if (trace != null) {
+            Tracing.install(null);
+            trace.close();
+        }
+        Metrics.dump(Paths.get("execution-metrics-" + cfg.getRunId() + ".prom"));
+        if (metricsServer != null) {
+            metricsServer.close();
+        }
+    }
+}
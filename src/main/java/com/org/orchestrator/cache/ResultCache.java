@@ -0,0 +1,251 @@
+package com.org.orchestrator.cache;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.org.orchestrator.metrics.Counter;
+import com.org.orchestrator.metrics.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Results of finished pipelines, addressed by what was built: project, branch, the commit the branch
+ * pointed at, artifact job and the full set of trigger variables.
+ * <p>
+ * Successful results are kept on disk, one JSON file per key, for {@code --cacheTtl} seconds and at most
+ * {@code --cacheMaxEntries} entries, evicting the least recently used (recency is the file's modification
+ * time, so it survives restarts). Identical rows that run at the same time, in the same or different flows,
+ * share one pipeline: the first claims the key and the others wait for its result.
+ */
+public class ResultCache {
+    private static final Logger log = LoggerFactory.getLogger(ResultCache.class);
+
+    private static final String SUFFIX = ".json";
+    private static final Counter HITS = requests("hit");
+    private static final Counter SHARED = requests("shared");
+    private static final Counter MISSES = requests("miss");
+
+    private final Path dir;
+    private final long ttlMillis;
+    private final int maxEntries;
+    private final ObjectMapper jsonMapper = new ObjectMapper();
+    private final Map<String, CompletableFuture<CachedResult>> inFlight = new ConcurrentHashMap<>();
+    private final LinkedHashMap<String, Boolean> recency = new LinkedHashMap<>(16, 0.75f, true);
+
+    public ResultCache(Path dir, long ttlSeconds, int maxEntries) throws IOException {
+        this.dir = dir;
+        this.ttlMillis = ttlSeconds * 1000;
+        this.maxEntries = Math.max(1, maxEntries);
+        Files.createDirectories(dir);
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> listing = Files.list(dir)) {
+            listing.filter(f -> f.getFileName().toString().endsWith(SUFFIX)).forEach(files::add);
+        }
+        files.sort(Comparator.comparing(ResultCache::lastModified));
+        for (Path f : files) {
+            String name = f.getFileName().toString();
+            recency.put(name.substring(0, name.length() - SUFFIX.length()), Boolean.TRUE);
+        }
+        evict();
+        log.info("Pipeline result cache at {} holds {} entries", dir.toAbsolutePath(), recency.size());
+    }
+
+    private static Counter requests(String result) {
+        return Metrics.counter("orchestrator_cache_requests_total", "Pipeline result cache lookups, by result", "result", result);
+    }
+
+    /**
+     * Content address of a pipeline run.
+     */
+    public static String key(long projectId, String branch, String commit, String artifactJobName, Map<String, String> vars) {
+        StringBuilder canonical = new StringBuilder();
+        append(canonical, String.valueOf(projectId));
+        append(canonical, branch);
+        append(canonical, commit);
+        append(canonical, artifactJobName);
+        new TreeMap<>(vars).forEach((k, v) -> {
+            append(canonical, k);
+            append(canonical, v);
+        });
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(canonical.toString().getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    // Length-prefixed, so no value can be mistaken for a separator.
+    private static void append(StringBuilder sb, String value) {
+        String s = value == null ? "" : value;
+        sb.append(s.length()).append(':').append(s).append('\n');
+    }
+
+    /**
+     * Returns the stored result for {@code key}, or {@code null} when there is none or it has expired.
+     */
+    public CachedResult get(String key) {
+        Path file = file(key);
+        synchronized (this) {
+            if (recency.get(key) == null) {
+                return null;
+            }
+        }
+        try {
+            JsonNode root = jsonMapper.readTree(file.toFile());
+            if (System.currentTimeMillis() - root.path("createdAt").asLong() > ttlMillis) {
+                remove(key);
+                return null;
+            }
+            Map<String, String> outputs = new HashMap<>();
+            root.path("outputs").fields().forEachRemaining(e -> outputs.put(e.getKey(), e.getValue().asText()));
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            HITS.inc();
+            return new CachedResult(root.path("pipelineId").asLong(), root.path("status").asText(), outputs);
+        } catch (IOException e) {
+            log.warn("Dropping unreadable cache entry {}: {}", file, e.getMessage());
+            remove(key);
+            return null;
+        }
+    }
+
+    /**
+     * Claims {@code key} for the caller, who must then run the pipeline and report it with
+     * {@link #complete}. Returns {@code null} when the claim succeeded, otherwise the future result of the
+     * caller that holds the claim; that future completes with {@code null} if the holder got no result.
+     */
+    public CompletableFuture<CachedResult> claim(String key) {
+        CompletableFuture<CachedResult> claim = new CompletableFuture<>();
+        CompletableFuture<CachedResult> holder = inFlight.putIfAbsent(key, claim);
+        if (holder == null) {
+            MISSES.inc();
+            return null;
+        }
+        SHARED.inc();
+        return holder;
+    }
+
+    /**
+     * Releases a claim, handing {@code result} to the rows waiting for it, or {@code null} when the row did
+     * not succeed, after which they claim the key again and one of them runs the pipeline. Only successful
+     * results are stored.
+     */
+    public void complete(String key, CachedResult result) {
+        if (result != null && "success".equalsIgnoreCase(result.getStatus())) {
+            try {
+                store(key, result);
+            } catch (IOException e) {
+                log.warn("Failed to store pipeline {} in the result cache: {}", result.getPipelineId(), e.getMessage());
+            }
+        }
+        CompletableFuture<CachedResult> claim = inFlight.remove(key);
+        if (claim != null) {
+            claim.complete(result);
+        }
+    }
+
+    private void store(String key, CachedResult result) throws IOException {
+        ObjectNode root = jsonMapper.createObjectNode();
+        root.put("pipelineId", result.getPipelineId());
+        root.put("status", result.getStatus());
+        root.put("createdAt", System.currentTimeMillis());
+        ObjectNode outputs = root.putObject("outputs");
+        result.getOutputs().forEach(outputs::put);
+        Path tmp = Files.createTempFile(dir, key, ".tmp");
+        try {
+            jsonMapper.writeValue(tmp.toFile(), root);
+            Files.move(tmp, file(key), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        synchronized (this) {
+            recency.put(key, Boolean.TRUE);
+        }
+        evict();
+    }
+
+    private void evict() {
+        List<String> evicted = new ArrayList<>();
+        synchronized (this) {
+            Iterator<String> eldest = recency.keySet().iterator();
+            while (recency.size() > maxEntries && eldest.hasNext()) {
+                evicted.add(eldest.next());
+                eldest.remove();
+            }
+        }
+        for (String key : evicted) {
+            deleteQuietly(file(key));
+        }
+        if (!evicted.isEmpty()) {
+            log.debug("Evicted {} least recently used entries from the result cache", evicted.size());
+        }
+    }
+
+    private void remove(String key) {
+        synchronized (this) {
+            recency.remove(key);
+        }
+        deleteQuietly(file(key));
+    }
+
+    private Path file(String key) {
+        return dir.resolve(key + SUFFIX);
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Failed to delete cache entry {}: {}", file, e.getMessage());
+        }
+    }
+
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    public static final class CachedResult {
+        private final long pipelineId;
+        private final String status;
+        private final Map<String, String> outputs;
+
+        public CachedResult(long pipelineId, String status, Map<String, String> outputs) {
+            this.pipelineId = pipelineId;
+            this.status = status;
+            this.outputs = outputs == null ? Collections.emptyMap() : outputs;
+        }
+
+        public long getPipelineId() { return pipelineId; }
+        public String getStatus() { return status; }
+        public Map<String, String> getOutputs() { return outputs; }
+    }
+}
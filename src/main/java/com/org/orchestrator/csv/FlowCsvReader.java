@@ -6,48 +6,44 @@ import com.org.orchestrator.model.PipelineRow;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
+/**
+ * Reads a flow CSV into rows sorted by their {@code order} column; rows with the same order keep their
+ * file order.
+ * <p>
+ * Column positions are resolved from the header once. Files of {@value #PARALLEL_THRESHOLD} bytes or more
+ * are memory-mapped and cut into chunks at record boundaries, which are parsed in parallel and joined back
+ * in file order, so the result is the same as a sequential read. Strings repeated across rows are shared
+ * through a {@link StringPool}.
+ */
 public class FlowCsvReader {
 
     private static final Logger log = LoggerFactory.getLogger(FlowCsvReader.class);
 
-    public static List<PipelineRow> read(Path csvPath) {
-        List<PipelineRow> rows = new ArrayList<>();
-        try (CSVReader reader = new CSVReader(new FileReader(csvPath.toFile()))) {
-            String[] headers = reader.readNext(); // Read header
-            if (headers == null) {
-                log.warn("CSV file is empty: {}", csvPath);
-                return rows;
-            }
+    private static final long PARALLEL_THRESHOLD = 16L * 1024 * 1024;
+    private static final long CHUNK_BYTES = 8L * 1024 * 1024;
+    private static final long SCAN_WINDOW = 256L * 1024 * 1024;
 
-            String[] line;
-            while ((line = reader.readNext()) != null) {
-                try {
-                    String applicationName = getColumn(line, headers, "applicationName");
-                    long projectId = Long.parseLong(getColumn(line, headers, "projectId"));
-                    String accessToken = getColumn(line, headers, "accessToken");
-                    String branch = getColumn(line, headers, "branch");
-                    if (branch == null || branch.isBlank()) {
-                        throw new IllegalArgumentException("Branch cannot be empty or blank for application: " + applicationName + ", projectId: " + projectId);
-                    }
-                    String variablesAndValues = getColumn(line, headers, "variablesAndValues");
-                    String artifactJobName = getColumn(line, headers, "artifactJobName");
-                    String orderStr = getColumn(line, headers, "order");
-                    int order = (orderStr == null || orderStr.isBlank()) ? Integer.MAX_VALUE : Integer.parseInt(orderStr);
-
-                    rows.add(new PipelineRow(applicationName, projectId, accessToken, branch, variablesAndValues, artifactJobName, order));
-                } catch (NumberFormatException e) {
-                    log.error("Skipping row due to number format error in file {}: {}", csvPath, String.join(",", line), e);
-                } catch (IllegalArgumentException e) {
-                    log.error("Skipping row due to missing column in file {}: {}", csvPath, e.getMessage());
-                }
-            }
+    public static List<PipelineRow> read(Path csvPath) {
+        List<PipelineRow> rows;
+        try (FileChannel channel = FileChannel.open(csvPath, StandardOpenOption.READ)) {
+            long size = channel.size();
+            rows = size >= PARALLEL_THRESHOLD ? readChunked(csvPath, channel, size) : readSequential(csvPath, channel);
         } catch (IOException | CsvValidationException e) {
             log.error("Failed to read CSV file: {}", csvPath, e);
             throw new RuntimeException("Failed to read CSV file: " + csvPath, e);
@@ -57,19 +53,213 @@ public class FlowCsvReader {
         return rows;
     }
 
-    private static String getColumn(String[] line, String[] headers, String columnName) {
-        for (int i = 0; i < headers.length; i++) {
-            if (headers[i].trim().equalsIgnoreCase(columnName)) {
-                if (i < line.length) {
-                    return line[i];
+    private static List<PipelineRow> readSequential(Path csvPath, FileChannel channel) throws IOException, CsvValidationException {
+        List<PipelineRow> rows = new ArrayList<>();
+        try (CSVReader reader = new CSVReader(Channels.newReader(channel, StandardCharsets.UTF_8))) {
+            Columns columns = readHeader(csvPath, reader);
+            if (columns != null) {
+                parseRows(csvPath, reader, columns, new StringPool(), rows);
+            }
+        }
+        return rows;
+    }
+
+    private static List<PipelineRow> readChunked(Path csvPath, FileChannel channel, long size) throws IOException, CsvValidationException {
+        long[] bounds = recordBoundaries(channel, size);
+        Columns columns;
+        try (CSVReader reader = regionReader(channel, bounds[0], bounds[1])) {
+            columns = readHeader(csvPath, reader);
+        }
+        if (columns == null) {
+            return new ArrayList<>();
+        }
+
+        StringPool pool = new StringPool();
+        List<List<PipelineRow>> chunks = IntStream.range(1, bounds.length - 1)
+                .parallel()
+                .mapToObj(i -> {
+                    List<PipelineRow> chunk = new ArrayList<>();
+                    try (CSVReader reader = regionReader(channel, bounds[i], bounds[i + 1])) {
+                        parseRows(csvPath, reader, columns, pool, chunk);
+                    } catch (IOException | CsvValidationException e) {
+                        throw new RuntimeException("Failed to read CSV file: " + csvPath, e);
+                    }
+                    return chunk;
+                })
+                .collect(Collectors.toList());
+
+        List<PipelineRow> rows = new ArrayList<>(chunks.stream().mapToInt(List::size).sum());
+        chunks.forEach(rows::addAll);
+        log.debug("Read {} rows from {} ({} bytes) in {} chunks", rows.size(), csvPath, size, chunks.size());
+        return rows;
+    }
+
+    /**
+     * Offsets at which records start: 0, the first record after the header, then one about every
+     * {@value #CHUNK_BYTES} bytes, and finally the file size. Line breaks inside quoted fields are skipped.
+     */
+    private static long[] recordBoundaries(FileChannel channel, long size) throws IOException {
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        boolean quoted = false;
+        boolean escaped = false;
+        long chunkStart = 0;
+        for (long windowStart = 0; windowStart < size; windowStart += SCAN_WINDOW) {
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, Math.min(SCAN_WINDOW, size - windowStart));
+            for (int i = 0, n = window.limit(); i < n; i++) {
+                byte b = window.get(i);
+                if (escaped) {
+                    escaped = false;
+                } else if (b == '"') {
+                    quoted = !quoted;
+                } else if (b == '\\' && quoted) { // opencsv's default escape character
+                    escaped = true;
+                } else if (b == '\n' && !quoted) {
+                    long next = windowStart + i + 1;
+                    if (bounds.size() == 1 || next - chunkStart >= CHUNK_BYTES) {
+                        bounds.add(next);
+                        chunkStart = next;
+                    }
                 }
-                return null; // Column exists but no value in this row
             }
         }
-        // Return null if the column is optional and not found
-        if ("artifactJobName".equalsIgnoreCase(columnName) || "order".equalsIgnoreCase(columnName) || "variablesAndValues".equalsIgnoreCase(columnName)) {
+        if (bounds.get(bounds.size() - 1) < size) {
+            bounds.add(size);
+        }
+        return bounds.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private static CSVReader regionReader(FileChannel channel, long start, long end) throws IOException {
+        MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        return new CSVReader(new InputStreamReader(new BufferInputStream(region), StandardCharsets.UTF_8));
+    }
+
+    private static Columns readHeader(Path csvPath, CSVReader reader) throws IOException, CsvValidationException {
+        String[] headers = reader.readNext();
+        if (headers == null) {
+            log.warn("CSV file is empty: {}", csvPath);
             return null;
         }
-        throw new IllegalArgumentException("Missing required column: " + columnName);
+        Columns columns = new Columns(headers);
+        String missing = columns.missingRequired();
+        if (missing != null) {
+            log.error("Skipping all rows of {}: missing required column: {}", csvPath, missing);
+            return null;
+        }
+        return columns;
+    }
+
+    private static void parseRows(Path csvPath, CSVReader reader, Columns columns, StringPool pool, List<PipelineRow> rows)
+            throws IOException, CsvValidationException {
+        String[] line;
+        while ((line = reader.readNext()) != null) {
+            try {
+                rows.add(columns.toRow(line, pool));
+            } catch (NumberFormatException e) {
+                log.error("Skipping row due to number format error in file {}: {}", csvPath, String.join(",", line), e);
+            } catch (IllegalArgumentException e) {
+                log.error("Skipping invalid row in file {}: {}", csvPath, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Positions of the known columns in one file's header, matched case-insensitively; -1 when absent.
+     */
+    private static final class Columns {
+        private final int applicationName;
+        private final int projectId;
+        private final int accessToken;
+        private final int branch;
+        private final int variablesAndValues;
+        private final int artifactJobName;
+        private final int order;
+        private final int group;
+        private final int dependsOn;
+        private final int priority;
+        private final int runnerGroup;
+
+        private Columns(String[] headers) {
+            this.applicationName = indexOf(headers, "applicationName");
+            this.projectId = indexOf(headers, "projectId");
+            this.accessToken = indexOf(headers, "accessToken");
+            this.branch = indexOf(headers, "branch");
+            this.variablesAndValues = indexOf(headers, "variablesAndValues");
+            this.artifactJobName = indexOf(headers, "artifactJobName");
+            this.order = indexOf(headers, "order");
+            this.group = indexOf(headers, "group");
+            this.dependsOn = indexOf(headers, "dependsOn");
+            this.priority = indexOf(headers, "priority");
+            this.runnerGroup = indexOf(headers, "runnerGroup");
+        }
+
+        private static int indexOf(String[] headers, String columnName) {
+            for (int i = 0; i < headers.length; i++) {
+                if (headers[i].trim().equalsIgnoreCase(columnName)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        String missingRequired() {
+            if (applicationName < 0) {
+                return "applicationName";
+            }
+            if (projectId < 0) {
+                return "projectId";
+            }
+            if (accessToken < 0) {
+                return "accessToken";
+            }
+            return branch < 0 ? "branch" : null;
+        }
+
+        PipelineRow toRow(String[] line, StringPool pool) {
+            String applicationName = pool.intern(value(line, this.applicationName));
+            long projectId = Long.parseLong(value(line, this.projectId));
+            String branch = value(line, this.branch);
+            if (branch == null || branch.isBlank()) {
+                throw new IllegalArgumentException("Branch cannot be empty or blank for application: " + applicationName + ", projectId: " + projectId);
+            }
+            String orderStr = value(line, this.order);
+            int order = (orderStr == null || orderStr.isBlank()) ? Integer.MAX_VALUE : Integer.parseInt(orderStr);
+            String priorityStr = value(line, this.priority);
+            int priority = (priorityStr == null || priorityStr.isBlank()) ? 1 : Integer.parseInt(priorityStr.trim());
+
+            return new PipelineRow(applicationName, projectId, pool.intern(value(line, accessToken)), pool.intern(branch),
+                    pool.intern(value(line, variablesAndValues)), pool.intern(value(line, artifactJobName)), order,
+                    value(line, group), value(line, dependsOn), priority, value(line, runnerGroup), pool::intern);
+        }
+
+        private static String value(String[] line, int index) {
+            return index >= 0 && index < line.length ? line[index] : null;
+        }
+    }
+
+    private static final class BufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        private BufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
     }
 }
@@ -0,0 +1,21 @@
+package com.org.orchestrator.csv;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Canonical instances of the strings read from one file. Generated flow files repeat the same tokens,
+ * branches, job names and variable keys on every row; sharing them keeps one copy on the heap instead of
+ * one per row. Safe to use from the chunk parsers running in parallel.
+ */
+final class StringPool {
+    private final Map<String, String> strings = new ConcurrentHashMap<>();
+
+    String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        String existing = strings.putIfAbsent(value, value);
+        return existing == null ? value : existing;
+    }
+}
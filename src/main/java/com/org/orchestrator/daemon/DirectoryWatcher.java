@@ -0,0 +1,137 @@
+package com.org.orchestrator.daemon;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Schedules every CSV that appears in a directory, including those already there at startup. Each file is
+ * first moved into {@code submitted/} so it is picked up only once, and into {@code done/} once its flow has
+ * finished. Files a stopped daemon left in {@code submitted/} are run again at startup, so a flow
+ * interrupted by a crash is not lost; it starts over rather than resuming.
+ * <p>
+ * Files must appear complete: write them elsewhere on the same file system and rename them in, as a
+ * CSV still being written would be read half-finished.
+ */
+class DirectoryWatcher implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(DirectoryWatcher.class);
+
+    private final Path dir;
+    private final Path submitted;
+    private final Path done;
+    private final Function<Path, CompletableFuture<?>> submit;
+    private final WatchService watchService;
+    private final Thread thread;
+
+    /**
+     * @param submit schedules a CSV; the returned future completes once its flow has finished
+     */
+    DirectoryWatcher(Path dir, Function<Path, CompletableFuture<?>> submit) throws IOException {
+        this.dir = Files.createDirectories(dir.toAbsolutePath());
+        this.submitted = Files.createDirectories(this.dir.resolve("submitted"));
+        this.done = Files.createDirectories(this.dir.resolve("done"));
+        this.submit = submit;
+        this.watchService = dir.getFileSystem().newWatchService();
+        this.dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE);
+        this.thread = new Thread(this::run, "watch-dir");
+        thread.setDaemon(true);
+    }
+
+    void start() throws IOException {
+        List<Path> unfinished = csvs(submitted);
+        if (!unfinished.isEmpty()) {
+            log.warn("Running {} CSV flows again that had not finished when the daemon last stopped", unfinished.size());
+            unfinished.forEach(this::run);
+        }
+        csvs(dir).forEach(this::pickUp);
+        thread.start();
+        log.info("Watching {} for new CSV flows", dir.toAbsolutePath());
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        log.warn("Missed file events in {}; CSVs dropped meanwhile are picked up on restart.", dir);
+                        continue;
+                    }
+                    pickUp(dir.resolve((Path) event.context()));
+                }
+                if (!key.reset()) {
+                    log.error("Watched directory {} is no longer accessible; stopped watching it.", dir);
+                    return;
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // closing
+        }
+    }
+
+    private static List<Path> csvs(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(DirectoryWatcher::isCsv).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static boolean isCsv(Path file) {
+        String name = file.getFileName().toString();
+        return !name.startsWith(".") && name.toLowerCase().endsWith(".csv") && Files.isRegularFile(file);
+    }
+
+    private void pickUp(Path file) {
+        if (!isCsv(file)) {
+            return;
+        }
+        try {
+            Path target = unique(submitted, file.getFileName().toString());
+            Files.move(file, target, StandardCopyOption.ATOMIC_MOVE);
+            run(target);
+        } catch (IOException e) {
+            log.error("Failed to pick up {}: {}", file, e.getMessage());
+        }
+    }
+
+    private void run(Path csv) {
+        submit.apply(csv).whenComplete((result, e) -> {
+            try {
+                Files.move(csv, unique(done, csv.getFileName().toString()), StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException moveFailed) {
+                log.error("Failed to move finished flow {} to {}; it runs again at the next startup: {}", csv, done, moveFailed.getMessage());
+            }
+        });
+    }
+
+    private static Path unique(Path dir, String name) {
+        Path target = dir.resolve(name);
+        for (int n = 2; Files.exists(target); n++) {
+            target = dir.resolve(name.substring(0, name.length() - 4) + "-" + n + ".csv");
+        }
+        return target;
+    }
+
+    @Override
+    public void close() {
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            log.warn("Failed to close the watch on {}: {}", dir, e.getMessage());
+        }
+        thread.interrupt();
+    }
+}
@@ -0,0 +1,333 @@
+package com.org.orchestrator.daemon;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.org.orchestrator.Orchestrator;
+import com.org.orchestrator.executor.CsvFlowWorker;
+import com.org.orchestrator.model.ExecutionSummary;
+import com.org.orchestrator.model.PipelineResult;
+import com.org.orchestrator.report.ReportSink;
+import com.org.orchestrator.util.BoundedInputStream;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps an {@link Orchestrator} warm and runs flows as they are submitted, so a flow reaches its first
+ * trigger without paying for JVM startup, TLS handshakes or thread pool creation.
+ * <p>
+ * The API listens on the loopback interface only, and turns away requests that carry an {@code Origin}
+ * header, so a web page open in a local browser cannot submit flows:
+ * <pre>
+ * POST /flows?path=/abs/flow.csv          run a CSV the daemon can read
+ * POST /flows?name=flow.csv  (CSV body)   run an uploaded CSV
+ * GET  /flows                             all known flows and their state
+ * GET  /flows/&lt;id&gt;                        one flow, with its pipelines once finished
+ * </pre>
+ * Finished flows are appended to the daemon's reports; the most recent {@value #MAX_FINISHED} stay
+ * queryable. Uploaded CSVs are deleted once their flow has been reported.
+ */
+public class FlowDaemon implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(FlowDaemon.class);
+
+    private static final long MAX_UPLOAD_BYTES = 64L * 1024 * 1024;
+    private static final int MAX_FINISHED = 1000;
+
+    private final Orchestrator orchestrator;
+    private final ReportSink report;
+    private final Path uploadDir;
+    private final HttpServer server;
+    private final ExecutorService httpExecutor;
+    private final DirectoryWatcher watcher;
+    private final AtomicLong ids = new AtomicLong();
+    private final ConcurrentNavigableMap<Long, SubmittedFlow> flows = new ConcurrentSkipListMap<>();
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private final ObjectMapper jsonMapper = new ObjectMapper();
+
+    /**
+     * @param watchDir directory whose new CSVs are run as they appear, or {@code null}
+     */
+    public FlowDaemon(Orchestrator orchestrator, ReportSink report, int port, Path uploadDir, Path watchDir) throws IOException {
+        this.orchestrator = orchestrator;
+        this.report = report;
+        this.uploadDir = Files.createDirectories(uploadDir.toAbsolutePath());
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.httpExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "daemon-api");
+            t.setDaemon(true);
+            return t;
+        });
+        server.createContext("/flows", this::handle);
+        server.setExecutor(httpExecutor);
+        server.start();
+        log.info("Accepting flows on http://localhost:{}/flows", server.getAddress().getPort());
+        this.watcher = watchDir != null ? new DirectoryWatcher(watchDir, csv -> start(csv, null, false).whenReported()) : null;
+        if (watcher != null) {
+            watcher.start();
+        }
+    }
+
+    /**
+     * Schedules a flow on the warm executor and returns its id right away.
+     *
+     * @param resumeJournal journal of an interrupted run of {@code csv} to continue from, or {@code null}
+     */
+    public long submit(Path csv, Path resumeJournal) {
+        return start(csv, resumeJournal, false).getId();
+    }
+
+    /**
+     * @param upload whether {@code csv} is an uploaded copy, deleted once the flow has been reported
+     */
+    private SubmittedFlow start(Path csv, Path resumeJournal, boolean upload) {
+        SubmittedFlow flow = new SubmittedFlow(ids.incrementAndGet(), csv);
+        flows.put(flow.getId(), flow);
+        CsvFlowWorker worker = orchestrator.worker(csv, resumeJournal);
+        orchestrator.schedule(csv, () -> {
+                    flow.started();
+                    return worker.get();
+                })
+                .handle((summary, e) -> e == null ? summary : failed(csv, e))
+                .thenAccept(summary -> {
+                    flow.finished(summary);
+                    report.append(summary);
+                    log.info("Flow {} ({}) finished: {}", flow.getId(), csv.getFileName(), summary.getStatus());
+                    prune();
+                })
+                .whenComplete((ignored, e) -> {
+                    if (upload) {
+                        deleteUpload(csv);
+                    }
+                    flow.reported();
+                });
+        log.info("Flow {} submitted: {}", flow.getId(), csv);
+        return flow;
+    }
+
+    private static void deleteUpload(Path csv) {
+        try {
+            Files.deleteIfExists(csv);
+        } catch (IOException e) {
+            log.warn("Failed to delete uploaded CSV {}: {}", csv, e.getMessage());
+        }
+    }
+
+    private static ExecutionSummary failed(Path csv, Throwable e) {
+        log.error("Flow {} failed unexpectedly", csv, e);
+        ExecutionSummary summary = new ExecutionSummary(csv.getFileName().toString());
+        summary.addPipelineResult(new PipelineResult(-1, "ERROR: " + e.getMessage(), Collections.emptyMap(), Collections.emptyMap()));
+        return summary;
+    }
+
+    private void prune() {
+        long finished = flows.values().stream().filter(SubmittedFlow::isFinished).count();
+        for (Iterator<SubmittedFlow> it = flows.values().iterator(); finished > MAX_FINISHED && it.hasNext(); ) {
+            if (it.next().isFinished()) {
+                it.remove();
+                finished--;
+            }
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (exchange.getRequestHeaders().containsKey("Origin")) {
+                // A web page, which may be any site the user has open, not a local client.
+                respond(exchange, 403, error("Cross-origin requests are not accepted"));
+                return;
+            }
+            String path = exchange.getRequestURI().getPath();
+            String method = exchange.getRequestMethod();
+            if ("/flows".equals(path) || "/flows/".equals(path)) {
+                if ("POST".equals(method)) {
+                    accept(exchange);
+                } else if ("GET".equals(method)) {
+                    ArrayNode list = jsonMapper.createArrayNode();
+                    flows.values().forEach(flow -> list.add(toJson(flow, false)));
+                    respond(exchange, 200, list);
+                } else {
+                    exchange.sendResponseHeaders(405, -1);
+                }
+                return;
+            }
+            SubmittedFlow flow = null;
+            try {
+                flow = flows.get(Long.parseLong(path.substring("/flows/".length())));
+            } catch (NumberFormatException e) {
+                // unknown
+            }
+            if (flow == null) {
+                exchange.sendResponseHeaders(404, -1);
+            } else if (!"GET".equals(method)) {
+                exchange.sendResponseHeaders(405, -1);
+            } else {
+                respond(exchange, 200, toJson(flow, true));
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void accept(HttpExchange exchange) throws IOException {
+        Map<String, String> query = query(exchange.getRequestURI().getRawQuery());
+        Path csv;
+        if (query.containsKey("path")) {
+            csv = Paths.get(query.get("path")).toAbsolutePath().normalize();
+            if (!Files.isRegularFile(csv)) {
+                respond(exchange, 400, error("No such file: " + csv));
+                return;
+            }
+        } else {
+            String name = query.getOrDefault("name", "flow.csv").replaceAll("[^A-Za-z0-9._-]", "_");
+            String stem = name.toLowerCase().endsWith(".csv") ? name.substring(0, name.length() - 4) : name;
+            csv = Files.createTempFile(uploadDir, stem + "-", ".csv");
+            try (InputStream body = new BoundedInputStream(exchange.getRequestBody(), MAX_UPLOAD_BYTES)) {
+                Files.copy(body, csv, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                Files.deleteIfExists(csv);
+                respond(exchange, 400, error("Upload failed: " + e.getMessage()));
+                return;
+            }
+            if (Files.size(csv) == 0) {
+                Files.delete(csv);
+                respond(exchange, 400, error("Expected ?path= or a CSV request body"));
+                return;
+            }
+        }
+        respond(exchange, 202, toJson(start(csv, null, !query.containsKey("path")), false));
+    }
+
+    private static Map<String, String> query(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null) {
+            return params;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return params;
+    }
+
+    private ObjectNode toJson(SubmittedFlow flow, boolean withPipelines) {
+        ObjectNode node = jsonMapper.createObjectNode();
+        node.put("id", flow.getId());
+        node.put("csv", flow.getCsv().toString());
+        node.put("state", flow.getState());
+        node.put("submittedAt", flow.getSubmittedAt().toString());
+        putTime(node, "startedAt", flow.getStartedAt());
+        putTime(node, "finishedAt", flow.getFinishedAt());
+        ExecutionSummary summary = flow.getSummary();
+        if (summary != null) {
+            node.put("pipelineCount", summary.getPipelineResults().size());
+            if (withPipelines) {
+                ArrayNode pipelines = node.putArray("pipelines");
+                for (PipelineResult result : summary.getPipelineResults()) {
+                    pipelines.addObject()
+                            .put("pipelineId", result.getPipelineId())
+                            .put("status", result.getStatus());
+                }
+            }
+        }
+        return node;
+    }
+
+    private static void putTime(ObjectNode node, String field, Instant time) {
+        if (time != null) {
+            node.put(field, time.toString());
+        }
+    }
+
+    private ObjectNode error(String message) {
+        return jsonMapper.createObjectNode().put("error", message);
+    }
+
+    private void respond(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] bytes = jsonMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Blocks until {@link #shutdown} is called.
+     */
+    public void awaitShutdown() throws InterruptedException {
+        stopped.await();
+    }
+
+    public void shutdown() {
+        stopped.countDown();
+    }
+
+    /**
+     * Waits up to {@code millis} for the flows still queued or running to finish and be reported.
+     *
+     * @return whether all of them did
+     */
+    public boolean awaitFlows(long millis) throws InterruptedException {
+        CompletableFuture<?>[] pending = flows.values().stream()
+                .map(SubmittedFlow::whenReported)
+                .filter(reported -> !reported.isDone())
+                .toArray(CompletableFuture[]::new);
+        try {
+            CompletableFuture.allOf(pending).get(millis, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        } catch (ExecutionException e) {
+            return true; // reported() runs however the flow ended
+        }
+    }
+
+    /**
+     * Stops accepting flows. Flows still running are abandoned, so call {@link #awaitFlows} first to let
+     * them finish; with {@code --journalDir} abandoned flows can be continued with {@code --resume}.
+     */
+    @Override
+    public void close() {
+        if (watcher != null) {
+            watcher.close();
+        }
+        server.stop(0);
+        httpExecutor.shutdownNow();
+        long unfinished = flows.values().stream().filter(flow -> !flow.isFinished()).count();
+        if (unfinished > 0) {
+            log.warn("Daemon stopping with {} flows not finished.", unfinished);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.org.orchestrator.daemon;
+
+import com.org.orchestrator.model.ExecutionSummary;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A flow submitted to the daemon and its progress: {@code QUEUED} until an executor slot picks it up,
+ * {@code RUNNING}, then the flow's result ({@code PASSED}, {@code FAILED} or {@code CANCELLED}).
+ */
+class SubmittedFlow {
+    private final long id;
+    private final Path csv;
+    private final Instant submittedAt = Instant.now();
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile ExecutionSummary summary;
+    private final CompletableFuture<Void> reported = new CompletableFuture<>();
+
+    SubmittedFlow(long id, Path csv) {
+        this.id = id;
+        this.csv = csv;
+    }
+
+    void started() {
+        startedAt = Instant.now();
+    }
+
+    void finished(ExecutionSummary summary) {
+        this.finishedAt = Instant.now();
+        this.summary = summary;
+    }
+
+    void reported() {
+        reported.complete(null);
+    }
+
+    /**
+     * Completes once the flow has finished and been added to the daemon's reports.
+     */
+    CompletableFuture<Void> whenReported() {
+        return reported;
+    }
+
+    String getState() {
+        if (summary != null) {
+            return summary.getStatus();
+        }
+        return startedAt != null ? "RUNNING" : "QUEUED";
+    }
+
+    boolean isFinished() { return summary != null; }
+    long getId() { return id; }
+    Path getCsv() { return csv; }
+    Instant getSubmittedAt() { return submittedAt; }
+    Instant getStartedAt() { return startedAt; }
+    Instant getFinishedAt() { return finishedAt; }
+    ExecutionSummary getSummary() { return summary; }
+}
@@ -0,0 +1,294 @@
+package com.org.orchestrator.events;
+
+import com.org.orchestrator.metrics.Counter;
+import com.org.orchestrator.metrics.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Structured JSON Lines log of one run's orchestration events.
+ * <p>
+ * Producers copy an event's fields into a slot of a pre-allocated ring buffer: one compare-and-set to
+ * claim the slot and one release store to publish it, with no locks and no allocation. A single writer
+ * thread drains the ring in batches, formats the lines and appends them to numbered segment files
+ * ({@code events-<runId>-0001.jsonl}, ...), starting a new segment once one exceeds {@code maxBytes};
+ * concatenated in name order they are the run's complete event stream. When the ring is full the event is
+ * dropped and counted rather than blocking the producer.
+ * <p>
+ * Polls that find a pipeline in the status it already had are not written; the number of such polls is
+ * added to the pipeline's next {@code status-changed} event as {@code polls}.
+ */
+public class EventLog implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(EventLog.class);
+
+    private static final Counter DROPPED = Metrics.counter("orchestrator_events_dropped_total", "Events not logged because the event ring buffer was full");
+    private static final Counter COALESCED = Metrics.counter("orchestrator_events_coalesced_total", "Poll events folded into the next status change");
+
+    private static final long IDLE_PARK_NANOS = 1_000_000;
+    private static final int MAX_SPINS = 100;
+    private static final long FLUSH_INTERVAL_NANOS = 100_000_000;
+    /**
+     * Stored in {@code claimed} by the writer once it has drained the ring on close, so that no producer
+     * can claim a slot the writer would never read.
+     */
+    private static final long SEALED = Long.MIN_VALUE;
+
+    private final Path dir;
+    private final String runId;
+    private final long maxBytes;
+    private final Slot[] slots;
+    private final AtomicLongArray published;
+    private final int mask;
+    private final AtomicLong claimed = new AtomicLong();
+    private volatile long consumed;
+    private volatile boolean closing;
+    private final Thread writerThread;
+
+    private final Map<Long, Integer> pollsSinceChange = new HashMap<>();
+    private final StringBuilder line = new StringBuilder(256);
+    private Writer out;
+    private long segmentBytes;
+    private int segment;
+
+    /**
+     * @param capacity ring buffer slots, rounded up to a power of two
+     */
+    public EventLog(Path dir, String runId, long maxBytes, int capacity) throws IOException {
+        this.dir = Files.createDirectories(dir);
+        this.runId = runId;
+        this.maxBytes = maxBytes;
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.slots = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot();
+        }
+        this.published = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            published.set(i, -1);
+        }
+        this.mask = size - 1;
+        openSegment();
+        this.writerThread = new Thread(this::drainLoop, "event-log-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        log.info("Writing orchestration events to {}", dir.resolve(segmentName(1)));
+    }
+
+    /**
+     * Records an event; never blocks. Unused fields are {@code null} or 0.
+     */
+    public void publish(EventType type, String flow, String row, long projectId, long pipelineId, String previous, String status, long value) {
+        long seq;
+        do {
+            seq = claimed.get();
+            if (seq - consumed >= slots.length || closing) {
+                DROPPED.inc();
+                return;
+            }
+        } while (!claimed.compareAndSet(seq, seq + 1));
+        Slot slot = slots[(int) seq & mask];
+        slot.type = type;
+        slot.timeMillis = System.currentTimeMillis();
+        slot.flow = flow;
+        slot.row = row;
+        slot.projectId = projectId;
+        slot.pipelineId = pipelineId;
+        slot.previous = previous;
+        slot.status = status;
+        slot.value = value;
+        published.lazySet((int) seq & mask, seq);
+    }
+
+    private void drainLoop() {
+        long next = 0;
+        long lastFlush = System.nanoTime();
+        boolean dirty = false;
+        int spins = 0;
+        while (true) {
+            int index = (int) next & mask;
+            if (published.get(index) == next) {
+                write(slots[index]);
+                slots[index].clear();
+                next++;
+                consumed = next;
+                dirty = true;
+                spins = 0;
+                continue;
+            }
+            // Nothing published at the head: either the ring is drained or a producer is mid-write.
+            boolean drained = next == claimed.get();
+            // A producer that checked closing before it was set may still claim a slot, so the writer only
+            // stops once sealing proves nothing was claimed since; such a producer then retries and drops.
+            if (closing && drained && claimed.compareAndSet(next, SEALED)) {
+                break;
+            }
+            if (!drained && ++spins < MAX_SPINS) {
+                Thread.onSpinWait();
+                continue;
+            }
+            spins = 0;
+            if (dirty && System.nanoTime() - lastFlush >= FLUSH_INTERVAL_NANOS) {
+                flush();
+                lastFlush = System.nanoTime();
+                dirty = false;
+            }
+            LockSupport.parkNanos(IDLE_PARK_NANOS);
+        }
+        flush();
+    }
+
+    private void write(Slot e) {
+        Integer polls = null;
+        if (e.type == EventType.POLLED) {
+            pollsSinceChange.merge(e.pipelineId, 1, Integer::sum);
+            COALESCED.inc();
+            return;
+        }
+        if (e.type == EventType.STATUS_CHANGED) {
+            polls = pollsSinceChange.remove(e.pipelineId);
+        }
+        line.setLength(0);
+        line.append("{\"time\":\"").append(Instant.ofEpochMilli(e.timeMillis)).append("\",\"type\":\"").append(e.type.getJsonName()).append('"');
+        string("flow", e.flow);
+        string("row", e.row);
+        if (e.projectId > 0) {
+            number("projectId", e.projectId);
+        }
+        if (e.pipelineId > 0) {
+            number("pipelineId", e.pipelineId);
+        }
+        string("from", e.previous);
+        string("status", e.status);
+        if (e.type == EventType.ARTIFACT_FETCHED) {
+            number("vars", e.value);
+        } else if (e.type == EventType.ROW_FINISHED) {
+            number("millis", e.value);
+        }
+        if (polls != null) {
+            number("polls", polls);
+        }
+        line.append("}\n");
+        try {
+            if (segmentBytes >= maxBytes) {
+                out.close();
+                openSegment();
+            }
+            out.append(line);
+            segmentBytes += utf8Length(line);
+        } catch (IOException ex) {
+            log.warn("Failed to write event log segment {}: {}", segmentName(segment), ex.getMessage());
+        }
+    }
+
+    private void string(String name, String value) {
+        if (value == null) {
+            return;
+        }
+        line.append(",\"").append(name).append("\":\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                line.append('\\').append(c);
+            } else if (c < 0x20) {
+                line.append(String.format("\\u%04x", (int) c));
+            } else {
+                line.append(c);
+            }
+        }
+        line.append('"');
+    }
+
+    private static int utf8Length(CharSequence s) {
+        int bytes = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                bytes++;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+
+    private void number(String name, long value) {
+        line.append(",\"").append(name).append("\":").append(value);
+    }
+
+    private void openSegment() throws IOException {
+        segment++;
+        segmentBytes = 0;
+        out = Files.newBufferedWriter(dir.resolve(segmentName(segment)), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    private String segmentName(int n) {
+        return String.format("events-%s-%04d.jsonl", runId, n);
+    }
+
+    private void flush() {
+        try {
+            out.flush();
+        } catch (IOException e) {
+            log.warn("Failed to flush event log: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Writes every event published so far and closes the current segment.
+     */
+    @Override
+    public void close() {
+        closing = true;
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            out.close();
+        } catch (IOException e) {
+            log.warn("Failed to close event log: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * A reusable event; written by one producer, then read by the writer thread after it is published.
+     */
+    private static final class Slot {
+        EventType type;
+        long timeMillis;
+        String flow;
+        String row;
+        long projectId;
+        long pipelineId;
+        String previous;
+        String status;
+        long value;
+
+        void clear() {
+            flow = null;
+            row = null;
+            previous = null;
+            status = null;
+        }
+    }
+}
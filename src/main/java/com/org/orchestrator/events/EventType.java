@@ -0,0 +1,22 @@
+package com.org.orchestrator.events;
+
+/**
+ * Kinds of orchestration events written to the event log.
+ */
+public enum EventType {
+    TRIGGERED("triggered"),
+    POLLED("polled"),
+    STATUS_CHANGED("status-changed"),
+    ARTIFACT_FETCHED("artifact-fetched"),
+    ROW_FINISHED("row-finished");
+
+    private final String jsonName;
+
+    EventType(String jsonName) {
+        this.jsonName = jsonName;
+    }
+
+    public String getJsonName() {
+        return jsonName;
+    }
+}
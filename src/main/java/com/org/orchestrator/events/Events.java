@@ -0,0 +1,57 @@
+package com.org.orchestrator.events;
+
+/**
+ * Process-wide entry point for orchestration events. Every method is a no-op unless an {@link EventLog}
+ * has been installed with {@code --eventLogDir}.
+ */
+public final class Events {
+    private static volatile EventLog eventLog;
+
+    private Events() {
+    }
+
+    /**
+     * Routes events to {@code log}, or stops recording them when {@code null}.
+     */
+    public static void install(EventLog log) {
+        eventLog = log;
+    }
+
+    public static void triggered(String flow, String row, long projectId, long pipelineId) {
+        EventLog log = eventLog;
+        if (log != null) {
+            log.publish(EventType.TRIGGERED, flow, row, projectId, pipelineId, null, null, 0);
+        }
+    }
+
+    /**
+     * A status check that found the pipeline in the status it already had.
+     */
+    public static void polled(long projectId, long pipelineId, String status) {
+        EventLog log = eventLog;
+        if (log != null) {
+            log.publish(EventType.POLLED, null, null, projectId, pipelineId, null, status, 0);
+        }
+    }
+
+    public static void statusChanged(long projectId, long pipelineId, String previous, String status) {
+        EventLog log = eventLog;
+        if (log != null) {
+            log.publish(EventType.STATUS_CHANGED, null, null, projectId, pipelineId, previous, status, 0);
+        }
+    }
+
+    public static void artifactFetched(String flow, String row, long projectId, long pipelineId, int vars) {
+        EventLog log = eventLog;
+        if (log != null) {
+            log.publish(EventType.ARTIFACT_FETCHED, flow, row, projectId, pipelineId, null, null, vars);
+        }
+    }
+
+    public static void rowFinished(String flow, String row, long projectId, long pipelineId, String status, long millis) {
+        EventLog log = eventLog;
+        if (log != null) {
+            log.publish(EventType.ROW_FINISHED, flow, row, projectId, pipelineId, null, status, millis);
+        }
+    }
+}
@@ -1,83 +1,754 @@
 package com.org.orchestrator.executor;
 
+import com.org.orchestrator.cache.ResultCache;
 import com.org.orchestrator.csv.FlowCsvReader;
+import com.org.orchestrator.events.Events;
 import com.org.orchestrator.gitlab.GitLabClient;
+import com.org.orchestrator.gitlab.PipelineStatusPoller;
+import com.org.orchestrator.journal.FlowJournal;
+import com.org.orchestrator.journal.JournalReplay;
+import com.org.orchestrator.metrics.Counter;
+import com.org.orchestrator.metrics.Gauge;
+import com.org.orchestrator.metrics.Histogram;
+import com.org.orchestrator.metrics.Metrics;
 import com.org.orchestrator.model.ExecutionSummary;
+import com.org.orchestrator.model.JobInfo;
 import com.org.orchestrator.model.PipelineResult;
 import com.org.orchestrator.model.PipelineRow;
 import com.org.orchestrator.model.PipelineStatusInfo;
+import com.org.orchestrator.model.PipelineTimings;
+import com.org.orchestrator.trace.Tracing;
 import com.org.orchestrator.util.Config;
+import com.org.orchestrator.util.PersistentMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.org.orchestrator.util.Config;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
+import java.io.IOException;
 import java.nio.file.Path;
+import java.time.Instant;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
-import java.util.stream.Collectors;
 
 public class CsvFlowWorker implements Supplier<ExecutionSummary> {
     private static final Logger log = LoggerFactory.getLogger(CsvFlowWorker.class);
+
+    private static final Gauge ROWS_RUNNING = Metrics.gauge("orchestrator_rows_running", "Pipeline rows currently being executed");
+    private static final Counter ROWS_SUCCEEDED = Metrics.counter("orchestrator_rows_total", "Pipeline rows executed, by outcome", "outcome", "success");
+    private static final Counter ROWS_FAILED = Metrics.counter("orchestrator_rows_total", "Pipeline rows executed, by outcome", "outcome", "failed");
+    private static final Counter ROWS_ERRORED = Metrics.counter("orchestrator_rows_total", "Pipeline rows executed, by outcome", "outcome", "error");
+    private static final Counter ROWS_CANCELLED = Metrics.counter("orchestrator_rows_total", "Pipeline rows executed, by outcome", "outcome", "canceled");
+    /** How long a cancelled pipeline may take to report {@code canceled} before the row stops waiting for it. */
+    private static final long CANCEL_GRACE_SECONDS = 5;
+    private static final Histogram ROW_QUEUED = rowPhase("queued");
+    private static final Histogram ROW_RUNNING = rowPhase("running");
+    private static final Histogram ROW_ARTIFACT = rowPhase("artifact");
+    private static final Histogram ROW_TOTAL = rowPhase("total");
     private final Path csvPath;
+    private final String flowName;
     private final GitLabClient gitlab;
+    private final PipelineStatusPoller poller;
     private final Config cfg;
+    private final Executor rowExecutor;
+    private final Path resumeJournal;
+    private final ResultCache cache;
+    private final PipelineScheduler scheduler;
+    private final RunControl control;
+    private PipelineScheduler.Flow slots;
+    private RunControl.Flow flowControl;
+    private String abandoned;
+    private long flowSpan;
 
-    public CsvFlowWorker(Path csvPath, GitLabClient gitlab, Config cfg) {
+    /**
+     * @param resumeJournal journal of an interrupted run of this CSV to continue from, or {@code null}
+     */
+    public CsvFlowWorker(Path csvPath, Path resumeJournal, FlowContext context) {
         this.csvPath = csvPath;
-        this.gitlab = gitlab;
-        this.cfg = cfg;
+        this.flowName = csvPath.getFileName().toString();
+        this.gitlab = context.getGitlab();
+        this.poller = context.getPoller();
+        this.cfg = context.getCfg();
+        this.rowExecutor = context.getRowExecutor();
+        this.resumeJournal = resumeJournal;
+        this.cache = context.getCache();
+        this.scheduler = context.getScheduler();
+        this.control = context.getControl();
     }
 
     @Override
     public ExecutionSummary get() {
         log.info("Starting processing of CSV file: {}", csvPath);
         List<PipelineRow> rows = FlowCsvReader.read(csvPath);
-        Map<String, String> runtimeVars = new HashMap<>();
         ExecutionSummary summary = new ExecutionSummary(csvPath.getFileName().toString());
+        flowSpan = Tracing.flowStarted(flowName);
+        FlowGraph graph;
+        try {
+            graph = FlowGraph.build(rows, cfg.isParallelRows());
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid row dependencies in CSV file {}: {}", csvPath, e.getMessage());
+            summary.addPipelineResult(new PipelineResult(-1, "ERROR: " + e.getMessage(), Collections.emptyMap(), Collections.emptyMap()));
+            Tracing.flowFinished(flowSpan, summary.getStatus());
+            return summary;
+        }
+        JournalReplay replay;
+        try {
+            replay = loadReplay();
+        } catch (IOException | IllegalStateException e) {
+            log.error("Cannot resume CSV file {} from journal {}: {}", csvPath, resumeJournal, e.getMessage());
+            summary.addPipelineResult(new PipelineResult(-1, "ERROR: " + e.getMessage(), Collections.emptyMap(), Collections.emptyMap()));
+            Tracing.flowFinished(flowSpan, summary.getStatus());
+            return summary;
+        }
 
-        for (PipelineRow row : rows) {
-            try {
-                Map<String, String> triggerVars = mergeRowVars(row, runtimeVars);
-                log.info("Triggering pipeline for '{}' on branch '{}' with vars: {}", row.getApplicationName(), row.getBranch(), triggerVars);
+        if (scheduler != null) {
+            slots = scheduler.register(csvPath.getFileName().toString(), weight(rows));
+        }
+        if (control != null) {
+            RunControl.Flow registered = control.register(flowName);
+            String reason;
+            synchronized (this) {
+                flowControl = registered;
+                reason = abandoned;
+            }
+            if (reason != null) {
+                registered.abandon(reason);
+            }
+        }
+        try (FlowJournal journal = openJournal()) {
+            runGraph(graph, summary, replay, journal);
+            if (flowControl != null && flowControl.isCancelled()) {
+                summary.markCancelled(flowControl.getCancelReason());
+            }
+        } finally {
+            if (slots != null) {
+                slots.close();
+            }
+            if (flowControl != null) {
+                flowControl.close();
+            }
+        }
+        Tracing.flowFinished(flowSpan, summary.getStatus());
+        Metrics.counter("orchestrator_flows_total", "CSV flows finished, by status", "status", summary.getStatus()).inc();
+        log.info("Finished processing CSV file: {}. Final status: {}", csvPath, summary.getStatus());
+        return summary;
+    }
+
+    /**
+     * Stops the flow, also if it has not started yet, without cancelling its pipelines in GitLab: another
+     * process has taken the flow over. The flow then finishes as {@code CANCELLED}.
+     */
+    public void abandon(String reason) {
+        RunControl.Flow registered;
+        synchronized (this) {
+            abandoned = reason;
+            registered = flowControl;
+        }
+        if (registered != null) {
+            registered.abandon(reason);
+        }
+    }
 
-                long pipelineId = gitlab.triggerPipeline(row.getProjectId(), row.getBranch(), triggerVars, row.getAccessToken());
-                PipelineStatusInfo status = gitlab.pollPipeline(row.getProjectId(), pipelineId, row.getAccessToken(), cfg.getPollInterval());
+    /**
+     * The flow's share of pipeline slots: its {@code --flowWeights} entry, else the highest row priority.
+     */
+    private int weight(List<PipelineRow> rows) {
+        Integer configured = cfg.getFlowWeights().get(csvPath.getFileName().toString());
+        if (configured != null) {
+            return configured;
+        }
+        return rows.stream().mapToInt(PipelineRow::getPriority).max().orElse(1);
+    }
 
-                log.info("Pipeline {} for '{}' finished with status: {}", pipelineId, row.getApplicationName(), status.getResult());
+    private void runGraph(FlowGraph graph, ExecutionSummary summary, JournalReplay replay, FlowJournal journal) {
+        // Rows of a sequential flow run inline on the flow's own thread; parallel stages fan out.
+        int maxParallel = cfg.isParallelRows() ? Math.max(1, cfg.getMaxParallelRows()) : 1;
+        // Rows released early (--earlyRelease) post their pipeline's final status to the same queue later.
+        BlockingQueue<Future<RowOutcome>> finished = new LinkedBlockingQueue<>();
+        CompletionService<RowOutcome> completions = new ExecutorCompletionService<>(cfg.isParallelRows() ? rowExecutor : Runnable::run, finished);
+        // Runtime variables visible after each finished row, tagged with the rank of the row that wrote them.
+        List<PersistentMap<String, RankedValue>> runtimeAfter = new ArrayList<>(Collections.nCopies(graph.size(), null));
+        boolean[] done = replay == null ? new boolean[graph.size()] : restore(graph, replay, summary, runtimeAfter);
 
-                Map<String, String> parsed = gitlab.fetchOutputEnv(row.getProjectId(), pipelineId, row.getArtifactJobName(), row.getAccessToken(), "target/output.env");
-                if (!parsed.isEmpty()) {
-                    log.info("Merging runtime vars from pipeline {}: {}", pipelineId, parsed);
-                    runtimeVars.putAll(parsed);
-                } else {
-                    log.warn("No output.env found or parsed for pipeline {}", pipelineId);
+        PriorityQueue<Integer> ready = new PriorityQueue<>(Comparator.comparingInt(graph::rank));
+        int[] pendingDeps = new int[graph.size()];
+        for (int i = 0; i < graph.size(); i++) {
+            for (int dep : graph.dependenciesOf(i)) {
+                if (!done[dep]) {
+                    pendingDeps[i]++;
+                }
+            }
+            if (!done[i] && pendingDeps[i] == 0) {
+                ready.add(i);
+            }
+        }
+        int running = 0;
+        int tails = 0;
+        boolean[] awaitingTail = new boolean[graph.size()];
+        boolean halted = false;
+
+        while (running > 0 || tails > 0 || (!halted && !ready.isEmpty())) {
+            if (!halted && flowControl != null && flowControl.isCancelled()) {
+                log.warn("CSV file {} was cancelled ({}); not starting its remaining rows.", csvPath, flowControl.getCancelReason());
+                halted = true;
+            }
+            while (!halted && running < maxParallel && !ready.isEmpty()) {
+                int index = ready.poll();
+                PersistentMap<String, RankedValue> input = mergeUpstream(graph, index, runtimeAfter);
+                JournalReplay.RowState previous = replay == null ? null : replay.row(index);
+                long attachTo = previous != null && previous.isInFlight() ? previous.getPipelineId() : -1;
+                completions.submit(() -> executeRow(index, graph.row(index), input, attachTo, journal));
+                running++;
+            }
+            if (running == 0 && tails == 0) {
+                break; // Cancelled with nothing left in flight.
+            }
+
+            RowOutcome outcome = take(completions);
+            PipelineRow row = graph.row(outcome.index);
+            if (awaitingTail[outcome.index]) {
+                awaitingTail[outcome.index] = false;
+                tails--;
+                summary.addPipelineResult(new PipelineResult(outcome.pipelineId, outcome.status, values(runtimeAfter.get(outcome.index)), row.getAllVars(), outcome.timings));
+                if (!"success".equalsIgnoreCase(outcome.status)) {
+                    if (!halted) {
+                        log.error("Pipeline {} of row '{}' in CSV file {} ended {} after its artifact job had already released the next rows. Halting execution for the flow.",
+                                outcome.pipelineId, row.getApplicationName(), csvPath, outcome.status);
+                    }
+                    halted = true;
+                    rowFailed(outcome);
+                }
+                continue;
+            }
+            running--;
+            PersistentMap<String, RankedValue> after = withOutputs(outcome.input, outcome.outputVars, graph.rank(outcome.index));
+            runtimeAfter.set(outcome.index, after);
+
+            if (outcome.tail != null) {
+                awaitingTail[outcome.index] = true;
+                tails++;
+                outcome.tail.whenComplete((t, e) -> finished.add(outcome.tail));
+            } else {
+                summary.addPipelineResult(new PipelineResult(outcome.pipelineId, outcome.status, values(after), row.getAllVars(), outcome.timings));
+            }
+
+            if (!"success".equalsIgnoreCase(outcome.status)) {
+                if (!halted) {
+                    log.error("Row '{}' of CSV file {} did not succeed ({}). Halting execution for the flow.", row.getApplicationName(), csvPath, outcome.status);
                 }
+                halted = true; // Stop scheduling further rows of this CSV if a pipeline fails
+                rowFailed(outcome);
+                continue;
+            }
+            for (int dependent : graph.dependentsOf(outcome.index)) {
+                if (--pendingDeps[dependent] == 0) {
+                    ready.add(dependent);
+                }
+            }
+        }
+    }
+
+    /**
+     * Lets the flow's fail-fast group know; a row cancelled along with its flow is not a failure.
+     */
+    private void rowFailed(RowOutcome outcome) {
+        if (flowControl != null && !"canceled".equalsIgnoreCase(outcome.status)) {
+            flowControl.failed();
+        }
+    }
+
+    /**
+     * Rebuilds the rows a previous run already finished, in rank order so upstream variables exist before
+     * they are merged, and returns which rows need no further work.
+     */
+    private boolean[] restore(FlowGraph graph, JournalReplay replay, ExecutionSummary summary, List<PersistentMap<String, RankedValue>> runtimeAfter) {
+        boolean[] done = new boolean[graph.size()];
+        Integer[] byRank = new Integer[graph.size()];
+        for (int i = 0; i < byRank.length; i++) {
+            byRank[i] = i;
+        }
+        Arrays.sort(byRank, Comparator.comparingInt(graph::rank));
+        int restored = 0;
+        for (int index : byRank) {
+            JournalReplay.RowState state = replay.row(index);
+            if (state == null || !state.isDone() || !graph.dependenciesOf(index).stream().allMatch(dep -> done[dep])) {
+                continue;
+            }
+            PersistentMap<String, RankedValue> after = withOutputs(mergeUpstream(graph, index, runtimeAfter), state.getOutputs(), graph.rank(index));
+            runtimeAfter.set(index, after);
+            summary.addPipelineResult(new PipelineResult(state.getPipelineId(), state.getStatus(), values(after), graph.row(index).getAllVars()));
+            done[index] = true;
+            restored++;
+        }
+        log.info("Resumed CSV file {} from journal {}: {} of {} rows already finished", csvPath, replay.getJournalFile(), restored, graph.size());
+        return done;
+    }
+
+    private JournalReplay loadReplay() throws IOException {
+        if (resumeJournal == null) {
+            return null;
+        }
+        JournalReplay replay = JournalReplay.read(resumeJournal);
+        String current = FlowJournal.fingerprint(csvPath);
+        if (!current.equals(replay.getFingerprint())) {
+            throw new IllegalStateException("CSV file changed since the journal was written (fingerprint " + current + " vs " + replay.getFingerprint() + ")");
+        }
+        return replay;
+    }
 
-                summary.addPipelineResult(new PipelineResult(pipelineId, status.getResult(), new HashMap<>(runtimeVars), row.getAllVars()));
+    private FlowJournal openJournal() {
+        try {
+            if (resumeJournal != null) {
+                return FlowJournal.reopen(resumeJournal, cfg.getJournalSyncMillis());
+            }
+            if (cfg.getJournalDir() != null) {
+                return FlowJournal.create(cfg.getJournalDir(), csvPath, cfg.getRunId(), cfg.getJournalSyncMillis());
+            }
+        } catch (IOException e) {
+            log.error("Failed to open journal for CSV file {}, continuing without checkpoints: {}", csvPath, e.getMessage());
+        }
+        return null;
+    }
 
-                if (!"success".equalsIgnoreCase(status.getResult())) {
-                    log.error("Pipeline {} failed. Halting execution for CSV file: {}", pipelineId, csvPath);
-                    break; // Stop processing this CSV if a pipeline fails
+    /**
+     * Runs a row, or takes its result from the cache: stored from an earlier identical pipeline, or shared
+     * with an identical row that is running right now.
+     */
+    private RowOutcome executeRow(int index, PipelineRow row, PersistentMap<String, RankedValue> input, long attachTo, FlowJournal journal) {
+        if (cache == null || attachTo > 0) {
+            return runRow(index, row, input, attachTo, journal);
+        }
+        Instant started = Instant.now();
+        String key;
+        try {
+            String commit = gitlab.resolveCommit(row.getProjectId(), row.getBranch(), row.getAccessToken());
+            key = ResultCache.key(row.getProjectId(), row.getBranch(), commit, row.getArtifactJobName(), mergeRowVars(row, values(input)));
+        } catch (RuntimeException e) {
+            log.warn("Cannot resolve branch '{}' of project {} for the result cache, triggering '{}' uncached: {}",
+                    row.getBranch(), row.getProjectId(), row.getApplicationName(), e.getMessage());
+            return runRow(index, row, input, attachTo, journal);
+        }
+        ResultCache.CachedResult cached;
+        // A holder that got no result releases the key: one of the waiting rows claims it and the rest wait again.
+        while ((cached = cache.get(key)) == null) {
+            CompletableFuture<ResultCache.CachedResult> holder = cache.claim(key);
+            if (holder == null) {
+                RowOutcome outcome = runRow(index, row, input, attachTo, journal);
+                if (outcome.tail != null) {
+                    // Only the pipeline's final status may be cached, so identical rows wait for the tail.
+                    outcome.tail.thenAccept(t -> cache.complete(key, shareable(t)));
+                } else {
+                    cache.complete(key, shareable(outcome));
+                }
+                return outcome;
+            }
+            log.info("Waiting for an identical pipeline of another row instead of triggering '{}'", row.getApplicationName());
+            if (flowControl != null) {
+                CompletableFuture.anyOf(holder, flowControl.whenCancelled()).join();
+                if (!holder.isDone()) {
+                    log.warn("Stopped waiting for an identical pipeline for '{}': {}", row.getApplicationName(), flowControl.getCancelReason());
+                    PipelineTimings timings = new PipelineTimings();
+                    timings.setStarted(started);
+                    recordRow(row, -1, "canceled", timings);
+                    return new RowOutcome(index, input, -1, "canceled", Collections.emptyMap(), timings);
                 }
-            } catch (Exception e) {
-                log.error("A critical error occurred while processing a row for {}. Halting flow.", csvPath, e);
-                summary.addPipelineResult(new PipelineResult(-1, "ERROR: " + e.getMessage(), new HashMap<>(runtimeVars), row.getAllVars()));
+            }
+            cached = holder.join();
+            if (cached != null) {
                 break;
             }
         }
-        log.info("Finished processing CSV file: {}. Final status: {}", csvPath, summary.getStatus());
-        return summary;
+        log.info("Reusing pipeline {} ({}) for '{}' instead of triggering it again", cached.getPipelineId(), cached.getStatus(), row.getApplicationName());
+        if (journal != null) {
+            journal.recordTriggered(index, cached.getPipelineId());
+            journal.recordCompleted(index, cached.getPipelineId(), cached.getStatus());
+            journal.recordArtifact(index, cached.getOutputs());
+        }
+        PipelineTimings timings = new PipelineTimings();
+        timings.setStarted(started);
+        recordRow(row, cached.getPipelineId(), cached.getStatus(), timings);
+        return new RowOutcome(index, input, cached.getPipelineId(), cached.getStatus(), cached.getOutputs(), timings);
+    }
+
+    /**
+     * The result rows waiting on the same cache key may take over: only a pipeline that succeeded. Any other
+     * outcome is the holder's own, and one of the waiting rows runs the pipeline again.
+     */
+    private static ResultCache.CachedResult shareable(RowOutcome outcome) {
+        if (outcome.pipelineId <= 0 || !"success".equalsIgnoreCase(outcome.status)) {
+            return null;
+        }
+        return new ResultCache.CachedResult(outcome.pipelineId, outcome.status, outcome.outputVars);
+    }
+
+    private RowOutcome runRow(int index, PipelineRow row, PersistentMap<String, RankedValue> input, long attachTo, FlowJournal journal) {
+        long pipelineId = attachTo;
+        PipelineTimings timings = new PipelineTimings();
+        timings.setStarted(Instant.now());
+        ROWS_RUNNING.inc();
+        try {
+            CompletableFuture<PipelineStatusInfo> finished;
+            PipelineScheduler.Slot slot = slots == null ? null : slots.acquire(row, flowControl == null ? null : flowControl.whenCancelled());
+            if (slots != null && slot == null) {
+                log.warn("Stopped waiting for a slot for '{}': {}", row.getApplicationName(), flowControl.getCancelReason());
+                recordRow(row, pipelineId, "canceled", timings);
+                return new RowOutcome(index, input, pipelineId, "canceled", Collections.emptyMap(), timings);
+            }
+            try {
+                if (attachTo > 0) {
+                    log.info("Re-attaching to pipeline {} for '{}' from the journal instead of triggering it again", attachTo, row.getApplicationName());
+                } else {
+                    Map<String, String> triggerVars = mergeRowVars(row, values(input));
+                    log.info("Triggering pipeline for '{}' on branch '{}' with {} vars", row.getApplicationName(), row.getBranch(), triggerVars.size());
+                    log.debug("Trigger vars for '{}': {}", row.getApplicationName(), triggerVars);
+
+                    timings.setTriggerRequested(Instant.now());
+                    pipelineId = gitlab.triggerPipeline(row.getProjectId(), row.getBranch(), triggerVars, row.getAccessToken());
+                    timings.setCreated(Instant.now());
+                    Events.triggered(flowName, row.getApplicationName(), row.getProjectId(), pipelineId);
+                    if (journal != null) {
+                        journal.recordTriggered(index, pipelineId);
+                    }
+                }
+                finished = untilStopped(row, pipelineId, poller.track(row.getProjectId(), pipelineId, row.getAccessToken()));
+            } catch (RuntimeException e) {
+                if (slot != null) {
+                    slot.close();
+                }
+                throw e;
+            }
+            // The slot covers the pipeline's time on the runners; fetching its artifact does not need it.
+            if (slot != null) {
+                finished.whenComplete((s, e) -> slot.close());
+            }
+            if (cfg.isEarlyRelease() && row.getArtifactJobName() != null && !row.getArtifactJobName().isBlank()) {
+                JobInfo job = gitlab.async().awaitJob(row.getProjectId(), pipelineId, row.getArtifactJobName(), row.getAccessToken(),
+                        cfg.getPollInterval(), finished).join();
+                if (job != null && "success".equalsIgnoreCase(job.getStatus()) && !finished.isDone()) {
+                    return releaseEarly(index, row, input, pipelineId, finished, timings, journal);
+                }
+            }
+            PipelineStatusInfo status = finished.join();
+            if ("canceled".equalsIgnoreCase(status.getResult()) || status.getResult().startsWith("ERROR: ")) {
+                // Whatever a cancelled pipeline published is not handed on.
+                timings.setFinished(status.getFinishedAt());
+                recordStopped(journal, index, pipelineId, status.getResult());
+                recordRow(row, pipelineId, status.getResult(), timings);
+                return new RowOutcome(index, input, pipelineId, status.getResult(), Collections.emptyMap(), timings);
+            }
+            timings.setFirstRunning(status.getFirstRunningAt());
+            timings.setFinished(status.getFinishedAt());
+
+            log.info("Pipeline {} for '{}' finished with status: {}", pipelineId, row.getApplicationName(), status.getResult());
+
+            if (journal != null) {
+                journal.recordCompleted(index, pipelineId, status.getResult());
+            }
+
+            Map<String, String> parsed = gitlab.fetchOutputEnv(row.getProjectId(), pipelineId, row.getArtifactJobName(), row.getAccessToken(), "target/output.env", timings);
+            timings.setArtifactParsed(Instant.now());
+            Events.artifactFetched(flowName, row.getApplicationName(), row.getProjectId(), pipelineId, parsed.size());
+            if (!parsed.isEmpty()) {
+                log.info("Merging {} runtime vars from pipeline {}", parsed.size(), pipelineId);
+                log.debug("Runtime vars from pipeline {}: {}", pipelineId, parsed);
+            } else {
+                log.warn("No output.env found or parsed for pipeline {}", pipelineId);
+            }
+            if (journal != null) {
+                journal.recordArtifact(index, parsed);
+            }
+            recordRow(row, pipelineId, status.getResult(), timings);
+            return new RowOutcome(index, input, pipelineId, status.getResult(), parsed, timings);
+        } catch (Exception e) {
+            log.error("A critical error occurred while processing a row for {}. Halting flow.", csvPath, e);
+            if (journal != null && pipelineId > 0) {
+                journal.recordCompleted(index, pipelineId, "ERROR: " + e.getMessage());
+            }
+            ROWS_ERRORED.inc();
+            String error = "ERROR: " + e.getMessage();
+            Events.rowFinished(flowName, row.getApplicationName(), row.getProjectId(), pipelineId, error, 0);
+            Tracing.rowFinished(flowSpan, flowName, row.getApplicationName(), row.getProjectId(), pipelineId, error, timings);
+            return new RowOutcome(index, input, -1, error, Collections.emptyMap(), timings);
+        } finally {
+            ROWS_RUNNING.dec();
+        }
+    }
+
+    /**
+     * Hands the artifact job's output.env to the next rows while the rest of the pipeline is still running.
+     * The outcome's {@code tail} completes with the pipeline's final status, which decides the row's result.
+     */
+    private RowOutcome releaseEarly(int index, PipelineRow row, PersistentMap<String, RankedValue> input, long pipelineId,
+                                    CompletableFuture<PipelineStatusInfo> finished, PipelineTimings timings, FlowJournal journal) throws IOException {
+        log.info("Artifact job '{}' of pipeline {} succeeded; releasing the rows after '{}' while the rest of the pipeline runs",
+                row.getArtifactJobName(), pipelineId, row.getApplicationName());
+        Map<String, String> parsed = gitlab.fetchOutputEnv(row.getProjectId(), pipelineId, row.getArtifactJobName(), row.getAccessToken(), "target/output.env", timings);
+        timings.setArtifactParsed(Instant.now());
+        Events.artifactFetched(flowName, row.getApplicationName(), row.getProjectId(), pipelineId, parsed.size());
+        if (parsed.isEmpty()) {
+            log.warn("No output.env found or parsed for pipeline {}", pipelineId);
+        }
+        if (journal != null) {
+            journal.recordArtifact(index, parsed);
+        }
+        CompletableFuture<RowOutcome> tail = finished.handle((status, e) -> {
+            String result = e != null ? "ERROR: " + e.getMessage() : status.getResult();
+            if (status != null) {
+                timings.setFirstRunning(status.getFirstRunningAt());
+                timings.setFinished(status.getFinishedAt());
+            }
+            log.info("Pipeline {} for '{}' finished with status: {}", pipelineId, row.getApplicationName(), result);
+            if (e != null) {
+                if (journal != null) {
+                    journal.recordCompleted(index, pipelineId, result);
+                }
+            } else {
+                recordStopped(journal, index, pipelineId, result);
+            }
+            recordRow(row, pipelineId, result, timings);
+            return new RowOutcome(index, input, pipelineId, result, parsed, timings);
+        });
+        return new RowOutcome(index, input, pipelineId, "success", parsed, timings, tail);
+    }
+
+    /**
+     * Completes like {@code tracked}, unless the flow is cancelled or the row's timeout passes first: the
+     * pipeline is then cancelled in GitLab and the result is the status it reports within
+     * {@link #CANCEL_GRACE_SECONDS}, or {@code canceled} if it reports none. A pipeline cancelled for its
+     * row's timeout is an error of the row rather than a cancellation of the flow.
+     */
+    private CompletableFuture<PipelineStatusInfo> untilStopped(PipelineRow row, long pipelineId, CompletableFuture<PipelineStatusInfo> tracked) {
+        if (flowControl == null) {
+            return tracked;
+        }
+        CompletableFuture<String> stop = flowControl.started(row.getProjectId(), pipelineId, row.getAccessToken());
+        CompletableFuture<PipelineStatusInfo> finished = CompletableFuture.anyOf(tracked, stop).thenCompose(first -> {
+            if (tracked.isDone()) {
+                return tracked;
+            }
+            String reason = stop.join();
+            log.warn("Stopped waiting for pipeline {} of '{}': {}", pipelineId, row.getApplicationName(), reason);
+            CompletableFuture<PipelineStatusInfo> cancelled = tracked.copy()
+                    .completeOnTimeout(new PipelineStatusInfo(pipelineId, "canceled", null, Instant.now()), CANCEL_GRACE_SECONDS, TimeUnit.SECONDS);
+            if (flowControl.isCancelled()) {
+                return cancelled;
+            }
+            return cancelled.thenApply(s -> "canceled".equalsIgnoreCase(s.getResult())
+                    ? new PipelineStatusInfo(pipelineId, "ERROR: " + reason, s.getFirstRunningAt(), s.getFinishedAt()) : s);
+        });
+        finished.whenComplete((s, e) -> flowControl.ended(pipelineId));
+        return finished;
+    }
+
+    /**
+     * Journals the final status of a pipeline that {@link #untilStopped} may have stopped. One stopped for its
+     * row's timeout comes back as an {@code ERROR} but has been cancelled in GitLab, so resuming must trigger
+     * the row again instead of re-attaching to it.
+     */
+    private static void recordStopped(FlowJournal journal, int index, long pipelineId, String status) {
+        if (journal == null) {
+            return;
+        }
+        if (status.startsWith("ERROR: ")) {
+            journal.recordTimedOut(index, pipelineId, status.substring("ERROR: ".length()));
+        } else {
+            journal.recordCompleted(index, pipelineId, status);
+        }
+    }
+
+    private void recordRow(PipelineRow row, long pipelineId, String status, PipelineTimings t) {
+        ("success".equalsIgnoreCase(status) ? ROWS_SUCCEEDED : "canceled".equalsIgnoreCase(status) ? ROWS_CANCELLED : ROWS_FAILED).inc();
+        Long millis = PipelineTimings.millisBetween(t.getTriggerRequested(), t.getFinished());
+        Events.rowFinished(flowName, row.getApplicationName(), row.getProjectId(), pipelineId, status, millis == null ? 0 : millis);
+        Tracing.rowFinished(flowSpan, flowName, row.getApplicationName(), row.getProjectId(), pipelineId, status, t);
+        recordPhase(ROW_QUEUED, t.getCreated(), t.getFirstRunning());
+        recordPhase(ROW_RUNNING, t.getFirstRunning(), t.getFinished());
+        recordPhase(ROW_ARTIFACT, t.getFinished(), t.getArtifactParsed());
+        recordPhase(ROW_TOTAL, t.getTriggerRequested(), t.getArtifactParsed());
+    }
+
+    private static void recordPhase(Histogram histogram, Instant from, Instant to) {
+        Long millis = PipelineTimings.millisBetween(from, to);
+        if (millis != null) {
+            histogram.record(millis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static Histogram rowPhase(String phase) {
+        return Metrics.histogram("orchestrator_row_phase_seconds", "Time pipeline rows spent per phase", "phase", phase);
+    }
+
+    /**
+     * Runtime variables a row starts from: the union of what its dependencies saw, where the value written
+     * by the upstream row with the highest topological rank wins. For a sequential flow this is exactly
+     * the previous row's runtime map, and the result never depends on completion order.
+     */
+    private PersistentMap<String, RankedValue> mergeUpstream(FlowGraph graph, int index, List<PersistentMap<String, RankedValue>> runtimeAfter) {
+        List<Integer> deps = graph.dependenciesOf(index);
+        if (deps.isEmpty()) {
+            return PersistentMap.empty();
+        }
+        // Start from the largest upstream map; entries the others share with it are the same instances and cost nothing.
+        PersistentMap<String, RankedValue> merged = runtimeAfter.get(deps.get(0));
+        for (int dep : deps) {
+            if (runtimeAfter.get(dep).size() > merged.size()) {
+                merged = runtimeAfter.get(dep);
+            }
+        }
+        for (int dep : deps) {
+            PersistentMap<String, RankedValue> upstream = runtimeAfter.get(dep);
+            if (upstream == merged) {
+                continue;
+            }
+            for (Map.Entry<String, RankedValue> e : upstream.entrySet()) {
+                RankedValue current = merged.get(e.getKey());
+                if (current == null || current.rank < e.getValue().rank) {
+                    merged = merged.plus(e.getKey(), e.getValue());
+                }
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * The runtime variables after a row: its input plus the outputs it wrote, sharing everything else
+     * with the input.
+     */
+    private static PersistentMap<String, RankedValue> withOutputs(PersistentMap<String, RankedValue> input, Map<String, String> outputs, int rank) {
+        PersistentMap<String, RankedValue> after = input;
+        for (Map.Entry<String, String> e : outputs.entrySet()) {
+            after = after.plus(e.getKey(), new RankedValue(e.getValue(), rank));
+        }
+        return after;
+    }
+
+    private RowOutcome take(CompletionService<RowOutcome> completions) {
+        try {
+            return completions.take().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for rows of " + csvPath, e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Row execution failed unexpectedly for " + csvPath, e.getCause());
+        }
     }
 
-    private Map<String, String> mergeRowVars(PipelineRow row, Map<String, String> runtime) {
+    /**
+     * The plain values of a runtime map as a read-only view, so a {@link PipelineResult} keeps the shared
+     * snapshot instead of a copy of it.
+     */
+    private static Map<String, String> values(PersistentMap<String, RankedValue> ranked) {
+        return new RuntimeValues(ranked);
+    }
+
+    static Map<String, String> mergeRowVars(PipelineRow row, Map<String, String> runtime) {
         Map<String, String> vars = new HashMap<>(runtime);
         vars.putAll(row.getStaticVars());
         return vars;
     }
+
+    private static final class RuntimeValues extends AbstractMap<String, String> {
+        private final PersistentMap<String, RankedValue> ranked;
+
+        private RuntimeValues(PersistentMap<String, RankedValue> ranked) {
+            this.ranked = ranked;
+        }
+
+        @Override
+        public String get(Object key) {
+            RankedValue v = ranked.get(key);
+            return v == null ? null : v.value;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return ranked.containsKey(key);
+        }
+
+        @Override
+        public int size() {
+            return ranked.size();
+        }
+
+        @Override
+        public Set<Entry<String, String>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<String, String>> iterator() {
+                    Iterator<Entry<String, RankedValue>> it = ranked.entrySet().iterator();
+                    return new Iterator<>() {
+                        @Override
+                        public boolean hasNext() {
+                            return it.hasNext();
+                        }
+
+                        @Override
+                        public Entry<String, String> next() {
+                            Entry<String, RankedValue> e = it.next();
+                            return new SimpleImmutableEntry<>(e.getKey(), e.getValue().value);
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return ranked.size();
+                }
+            };
+        }
+    }
+
+    private static final class RankedValue {
+        private final String value;
+        private final int rank;
+
+        private RankedValue(String value, int rank) {
+            this.value = value;
+            this.rank = rank;
+        }
+    }
+
+    private static final class RowOutcome {
+        private final int index;
+        private final PersistentMap<String, RankedValue> input;
+        private final long pipelineId;
+        private final String status;
+        private final Map<String, String> outputVars;
+        private final PipelineTimings timings;
+        /** For a row released early: completes with the outcome carrying the pipeline's final status. */
+        private final CompletableFuture<RowOutcome> tail;
+
+        private RowOutcome(int index, PersistentMap<String, RankedValue> input, long pipelineId, String status, Map<String, String> outputVars, PipelineTimings timings) {
+            this(index, input, pipelineId, status, outputVars, timings, null);
+        }
+
+        private RowOutcome(int index, PersistentMap<String, RankedValue> input, long pipelineId, String status, Map<String, String> outputVars,
+                           PipelineTimings timings, CompletableFuture<RowOutcome> tail) {
+            this.index = index;
+            this.input = input;
+            this.pipelineId = pipelineId;
+            this.status = status;
+            this.outputVars = outputVars;
+            this.timings = timings;
+            this.tail = tail;
+        }
+    }
 }
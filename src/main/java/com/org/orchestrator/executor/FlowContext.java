@@ -0,0 +1,46 @@
+package com.org.orchestrator.executor;
+
+import com.org.orchestrator.cache.ResultCache;
+import com.org.orchestrator.gitlab.GitLabClient;
+import com.org.orchestrator.gitlab.PipelineStatusPoller;
+import com.org.orchestrator.util.Config;
+
+import java.util.concurrent.Executor;
+
+/**
+ * What every {@link CsvFlowWorker} of a run shares: the GitLab client and status poller, the settings, the
+ * executor for parallel rows, and the run-wide result cache, pipeline limits and cancellation.
+ */
+public final class FlowContext {
+    private final GitLabClient gitlab;
+    private final PipelineStatusPoller poller;
+    private final Config cfg;
+    private final Executor rowExecutor;
+    private final ResultCache cache;
+    private final PipelineScheduler scheduler;
+    private final RunControl control;
+
+    /**
+     * @param cache     result cache, or {@code null} to always trigger
+     * @param scheduler project and runner group limits, or {@code null} for none
+     * @param control   deadlines and cancellation, or {@code null} for none
+     */
+    public FlowContext(GitLabClient gitlab, PipelineStatusPoller poller, Config cfg, Executor rowExecutor,
+                       ResultCache cache, PipelineScheduler scheduler, RunControl control) {
+        this.gitlab = gitlab;
+        this.poller = poller;
+        this.cfg = cfg;
+        this.rowExecutor = rowExecutor;
+        this.cache = cache;
+        this.scheduler = scheduler;
+        this.control = control;
+    }
+
+    GitLabClient getGitlab() { return gitlab; }
+    PipelineStatusPoller getPoller() { return poller; }
+    Config getCfg() { return cfg; }
+    Executor getRowExecutor() { return rowExecutor; }
+    ResultCache getCache() { return cache; }
+    PipelineScheduler getScheduler() { return scheduler; }
+    RunControl getControl() { return control; }
+}
@@ -0,0 +1,163 @@
+package com.org.orchestrator.executor;
+
+import com.org.orchestrator.util.Config;
+import com.org.orchestrator.util.ExecutorMode;
+import com.org.orchestrator.util.VirtualThreads;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Runs CSV flows either on a fixed pool of platform threads (the thread count is the concurrency cap)
+ * or on one virtual thread per flow, with {@code --maxConcurrentFlows} as the cap.
+ * <p>
+ * Flows beyond the cap wait in a queue ordered by weight, highest first, then by size, smallest first, so
+ * short flows overtake large ones. A flow that has waited {@value #MAX_QUEUED_MILLIS} ms goes next
+ * regardless, so a stream of small flows cannot starve a large one.
+ */
+public class FlowExecutor implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(FlowExecutor.class);
+
+    private static final long MAX_QUEUED_MILLIS = 10 * 60 * 1000;
+
+    private final ExecutorMode mode;
+    private final ExecutorService executor;
+    private final ExecutorService rowExecutor;
+    private final int concurrency;
+    private final List<Queued> queued = new ArrayList<>();
+    private int running;
+
+    private FlowExecutor(ExecutorMode mode, ExecutorService executor, ExecutorService rowExecutor, int concurrency) {
+        this.mode = mode;
+        this.executor = executor;
+        this.rowExecutor = rowExecutor;
+        this.concurrency = concurrency;
+    }
+
+    public static FlowExecutor create(Config cfg, int flowCount) {
+        ExecutorMode mode = cfg.getExecutorMode();
+        if (mode == ExecutorMode.VIRTUAL && !VirtualThreads.isSupported()) {
+            log.warn("--executor=virtual requires Java 21+, running on {}. Falling back to platform threads.", Runtime.version());
+            mode = ExecutorMode.PLATFORM;
+        }
+        if (mode == ExecutorMode.VIRTUAL) {
+            int limit = Math.max(1, cfg.getMaxConcurrentFlows());
+            return new FlowExecutor(mode, VirtualThreads.newThreadPerTaskExecutor("flow"),
+                    VirtualThreads.newThreadPerTaskExecutor("flow-row"), limit);
+        }
+        int threads = Math.max(1, Math.min(cfg.getMaxThreads(), flowCount));
+        return new FlowExecutor(mode, Executors.newFixedThreadPool(threads), Executors.newCachedThreadPool(), threads);
+    }
+
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        return submit(task, 1, 0);
+    }
+
+    /**
+     * @param weight precedence over other waiting flows, higher first
+     * @param size   estimated amount of work, e.g. the CSV's size; smaller flows start first among equal weights
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task, int weight, long size) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Runnable run = () -> {
+            try {
+                result.complete(task.get());
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            } finally {
+                finished();
+            }
+        };
+        synchronized (this) {
+            queued.add(new Queued(run, result, weight, size));
+        }
+        dispatch();
+        return result;
+    }
+
+    private void dispatch() {
+        List<Queued> start = new ArrayList<>();
+        synchronized (this) {
+            while (running < concurrency && !queued.isEmpty()) {
+                Queued next = next();
+                queued.remove(next);
+                running++;
+                start.add(next);
+            }
+        }
+        for (Queued flow : start) {
+            try {
+                executor.execute(flow.task);
+            } catch (RejectedExecutionException e) {
+                flow.result.completeExceptionally(e);
+                finished();
+            }
+        }
+    }
+
+    private Queued next() {
+        long now = System.currentTimeMillis();
+        Queued best = null;
+        for (Queued q : queued) {
+            if (now - q.queuedAt > MAX_QUEUED_MILLIS) {
+                return q; // the oldest, as the list is in submission order
+            }
+            if (best == null || q.weight > best.weight || (q.weight == best.weight && q.size < best.size)) {
+                best = q;
+            }
+        }
+        return best;
+    }
+
+    private void finished() {
+        synchronized (this) {
+            running--;
+        }
+        dispatch();
+    }
+
+    /**
+     * Executor for the rows a flow runs concurrently within a parallel stage. Rows are not counted
+     * against the flow limit; {@code --maxParallelRows} bounds them per flow instead.
+     */
+    public Executor rowExecutor() {
+        return rowExecutor;
+    }
+
+    public ExecutorMode getMode() {
+        return mode;
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+        rowExecutor.shutdown();
+    }
+
+    private static final class Queued {
+        private final Runnable task;
+        private final CompletableFuture<?> result;
+        private final int weight;
+        private final long size;
+        private final long queuedAt = System.currentTimeMillis();
+
+        private Queued(Runnable task, CompletableFuture<?> result, int weight, long size) {
+            this.task = task;
+            this.result = result;
+            this.weight = weight;
+            this.size = size;
+        }
+    }
+}
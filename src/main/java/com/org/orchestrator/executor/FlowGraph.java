@@ -0,0 +1,156 @@
+package com.org.orchestrator.executor;
+
+import com.org.orchestrator.model.PipelineRow;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Dependency graph over the rows of one CSV flow, indexed by row position after the {@code order} sort.
+ * <p>
+ * In sequential mode every row depends on the previous one, which reproduces the classic one-at-a-time
+ * execution. In parallel mode rows with the same {@code order} form a stage that waits for the previous
+ * stage of its {@code group}; rows without a group act as barriers across all groups, and an explicit
+ * {@code dependsOn} list of application names replaces the implicit stage dependencies of a row.
+ */
+class FlowGraph {
+    private final List<PipelineRow> rows;
+    private final List<List<Integer>> dependencies;
+    private final List<List<Integer>> dependents;
+    private final int[] rank;
+
+    private FlowGraph(List<PipelineRow> rows, List<List<Integer>> dependencies) {
+        this.rows = rows;
+        this.dependencies = dependencies;
+        this.dependents = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            dependents.add(new ArrayList<>());
+        }
+        for (int i = 0; i < rows.size(); i++) {
+            for (int dep : dependencies.get(i)) {
+                dependents.get(dep).add(i);
+            }
+        }
+        this.rank = topologicalRanks();
+    }
+
+    static FlowGraph build(List<PipelineRow> rows, boolean parallel) {
+        List<List<Integer>> dependencies = new ArrayList<>(rows.size());
+        if (!parallel) {
+            for (int i = 0; i < rows.size(); i++) {
+                dependencies.add(i == 0 ? Collections.emptyList() : List.of(i - 1));
+            }
+            return new FlowGraph(rows, dependencies);
+        }
+
+        Map<String, TreeMap<Integer, List<Integer>>> stagesByGroup = new HashMap<>();
+        Map<String, List<Integer>> byName = new HashMap<>();
+        for (int i = 0; i < rows.size(); i++) {
+            PipelineRow row = rows.get(i);
+            stagesByGroup.computeIfAbsent(row.getGroup(), g -> new TreeMap<>())
+                    .computeIfAbsent(row.getOrder(), o -> new ArrayList<>()).add(i);
+            byName.computeIfAbsent(row.getApplicationName(), n -> new ArrayList<>()).add(i);
+        }
+        TreeMap<Integer, List<Integer>> barriers = stagesByGroup.getOrDefault("", new TreeMap<>());
+
+        for (int i = 0; i < rows.size(); i++) {
+            PipelineRow row = rows.get(i);
+            Set<Integer> deps = new LinkedHashSet<>();
+            if (!row.getDependsOn().isEmpty()) {
+                for (String name : row.getDependsOn()) {
+                    List<Integer> targets = byName.get(name);
+                    if (targets == null) {
+                        throw new IllegalArgumentException("Row '" + row.getApplicationName() + "' depends on unknown application: " + name);
+                    }
+                    deps.addAll(targets);
+                }
+            } else if (row.getGroup().isEmpty()) {
+                for (TreeMap<Integer, List<Integer>> stages : stagesByGroup.values()) {
+                    deps.addAll(previousStage(stages, barriers, row.getOrder()));
+                }
+            } else {
+                deps.addAll(previousStage(stagesByGroup.get(row.getGroup()), barriers, row.getOrder()));
+            }
+            deps.remove(i);
+            dependencies.add(new ArrayList<>(deps));
+        }
+        return new FlowGraph(rows, dependencies);
+    }
+
+    /**
+     * The latest stage before {@code order} among a group's own stages and the ungrouped barrier stages.
+     */
+    private static List<Integer> previousStage(TreeMap<Integer, List<Integer>> stages, TreeMap<Integer, List<Integer>> barriers, int order) {
+        Map.Entry<Integer, List<Integer>> own = stages.lowerEntry(order);
+        Map.Entry<Integer, List<Integer>> barrier = barriers.lowerEntry(order);
+        if (own == null && barrier == null) {
+            return Collections.emptyList();
+        }
+        if (own == null || (barrier != null && barrier.getKey() > own.getKey())) {
+            return barrier.getValue();
+        }
+        if (barrier == null || own.getKey() > barrier.getKey()) {
+            return own.getValue();
+        }
+        List<Integer> both = new ArrayList<>(own.getValue());
+        both.addAll(barrier.getValue());
+        return both;
+    }
+
+    /**
+     * Kahn's algorithm, preferring lower row positions, so ranks are stable for a given CSV.
+     * Ranks decide which value wins when several upstream rows produced the same variable.
+     */
+    private int[] topologicalRanks() {
+        int[] pending = new int[rows.size()];
+        PriorityQueue<Integer> ready = new PriorityQueue<>();
+        for (int i = 0; i < rows.size(); i++) {
+            pending[i] = dependencies.get(i).size();
+            if (pending[i] == 0) {
+                ready.add(i);
+            }
+        }
+        int[] ranks = new int[rows.size()];
+        int next = 0;
+        while (!ready.isEmpty()) {
+            int i = ready.poll();
+            ranks[i] = next++;
+            for (int d : dependents.get(i)) {
+                if (--pending[d] == 0) {
+                    ready.add(d);
+                }
+            }
+        }
+        if (next != rows.size()) {
+            throw new IllegalArgumentException("Cyclic dependsOn declarations between rows of the flow");
+        }
+        return ranks;
+    }
+
+    int size() {
+        return rows.size();
+    }
+
+    PipelineRow row(int index) {
+        return rows.get(index);
+    }
+
+    List<Integer> dependenciesOf(int index) {
+        return dependencies.get(index);
+    }
+
+    List<Integer> dependentsOf(int index) {
+        return dependents.get(index);
+    }
+
+    int rank(int index) {
+        return rank[index];
+    }
+}
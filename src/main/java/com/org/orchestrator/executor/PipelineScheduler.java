@@ -0,0 +1,224 @@
+package com.org.orchestrator.executor;
+
+import com.org.orchestrator.metrics.Gauge;
+import com.org.orchestrator.metrics.Histogram;
+import com.org.orchestrator.metrics.Metrics;
+import com.org.orchestrator.model.PipelineRow;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits how many pipelines run at once per GitLab project and per runner group, and decides whose pipeline
+ * goes next when rows of several flows wait for the same limit.
+ * <p>
+ * A row holds a slot from before its trigger until its pipeline finishes. Free slots go to the waiting flow
+ * that has received the least service relative to its weight (start-time fair queuing): a flow of weight 3
+ * gets three pipelines for every one of a flow of weight 1, and a flow that joins late starts level with
+ * the others instead of queueing behind their backlog, so short flows are not stuck behind a large batch.
+ * Within a flow, rows are served in the order they asked. A waiting row whose project or group is full
+ * does not hold up rows of other projects.
+ * <p>
+ * Without limits every slot is granted immediately.
+ */
+public class PipelineScheduler {
+    private static final Logger log = LoggerFactory.getLogger(PipelineScheduler.class);
+
+    private static final Gauge WAITING = Metrics.gauge("orchestrator_pipelines_waiting", "Rows waiting for a project or runner group slot");
+    private static final Histogram WAIT = Metrics.histogram("orchestrator_pipeline_slot_wait_seconds", "Time rows waited for a project or runner group slot");
+
+    private final int maxPerProject;
+    private final Map<Long, Integer> projectLimits;
+    private final Map<String, Integer> groupLimits;
+    private final Map<Long, Integer> runningPerProject = new HashMap<>();
+    private final Map<String, Integer> runningPerGroup = new HashMap<>();
+    private final List<Flow> flows = new ArrayList<>();
+    private double virtualTime;
+
+    /**
+     * @param maxPerProject  limit for projects without an entry in {@code projectLimits}; 0 for none
+     * @param projectLimits  limits of individual projects
+     * @param groupLimits    limits of runner groups; groups without an entry are unlimited
+     */
+    public PipelineScheduler(int maxPerProject, Map<Long, Integer> projectLimits, Map<String, Integer> groupLimits) {
+        this.maxPerProject = maxPerProject;
+        this.projectLimits = projectLimits;
+        this.groupLimits = groupLimits;
+        if (maxPerProject > 0 || !projectLimits.isEmpty() || !groupLimits.isEmpty()) {
+            log.info("Pipeline limits: {} per project{}{}", maxPerProject > 0 ? maxPerProject : "unlimited",
+                    projectLimits.isEmpty() ? "" : ", projects " + projectLimits, groupLimits.isEmpty() ? "" : ", runner groups " + groupLimits);
+        }
+    }
+
+    /**
+     * Registers a flow; its rows then compete for slots with {@link Flow#acquire}.
+     */
+    public synchronized Flow register(String name, int weight) {
+        Flow flow = new Flow(name, Math.max(1, weight));
+        flow.virtualTime = virtualTime;
+        flows.add(flow);
+        return flow;
+    }
+
+    private synchronized void unregister(Flow flow) {
+        flows.remove(flow);
+    }
+
+    private synchronized Ticket enqueue(Flow flow, PipelineRow row) {
+        Ticket ticket = new Ticket(row.getProjectId(), row.getRunnerGroup());
+        flow.waiting.add(ticket);
+        WAITING.inc();
+        dispatch();
+        return ticket;
+    }
+
+    /**
+     * Takes a ticket out of its flow's queue, unless it has been granted meanwhile.
+     */
+    private synchronized boolean withdraw(Flow flow, Ticket ticket) {
+        if (ticket.granted.isDone()) {
+            return false;
+        }
+        flow.waiting.remove(ticket);
+        WAITING.dec();
+        return true;
+    }
+
+    private synchronized void release(Ticket ticket) {
+        runningPerProject.merge(ticket.projectId, -1, Integer::sum);
+        runningPerGroup.merge(ticket.group, -1, Integer::sum);
+        dispatch();
+    }
+
+    /**
+     * Grants slots while some waiting row fits its limits, always to the eligible flow furthest behind.
+     */
+    private void dispatch() {
+        while (true) {
+            Flow next = null;
+            Ticket grant = null;
+            double nextStart = 0;
+            for (Flow flow : flows) {
+                // A flow that has been idle must not bank credit: it resumes level with the others.
+                double start = Math.max(flow.virtualTime, virtualTime);
+                if (next != null && start >= nextStart) {
+                    continue;
+                }
+                for (Ticket ticket : flow.waiting) {
+                    if (fits(ticket)) {
+                        next = flow;
+                        grant = ticket;
+                        nextStart = start;
+                        break;
+                    }
+                }
+            }
+            if (grant == null) {
+                return;
+            }
+            next.waiting.remove(grant);
+            next.virtualTime = nextStart + 1.0 / next.weight;
+            virtualTime = nextStart;
+            runningPerProject.merge(grant.projectId, 1, Integer::sum);
+            runningPerGroup.merge(grant.group, 1, Integer::sum);
+            WAITING.dec();
+            WAIT.record(System.nanoTime() - grant.queuedAt, TimeUnit.NANOSECONDS);
+            grant.granted.complete(null);
+        }
+    }
+
+    private boolean fits(Ticket ticket) {
+        int projectLimit = projectLimits.getOrDefault(ticket.projectId, maxPerProject);
+        if (projectLimit > 0 && runningPerProject.getOrDefault(ticket.projectId, 0) >= projectLimit) {
+            return false;
+        }
+        Integer groupLimit = groupLimits.get(ticket.group);
+        return groupLimit == null || runningPerGroup.getOrDefault(ticket.group, 0) < groupLimit;
+    }
+
+    /**
+     * A flow's share of the pipeline slots.
+     */
+    public final class Flow implements AutoCloseable {
+        private final String name;
+        private final int weight;
+        private final ArrayDeque<Ticket> waiting = new ArrayDeque<>();
+        private double virtualTime;
+
+        private Flow(String name, int weight) {
+            this.name = name;
+            this.weight = weight;
+        }
+
+        /**
+         * Blocks until the row's pipeline may be triggered; the returned slot must be closed when the
+         * pipeline has finished.
+         *
+         * @param stop completes when the row should no longer wait, such as when its flow is cancelled, or
+         *             {@code null}
+         * @return the slot, or {@code null} if {@code stop} completed first; the row then leaves the queue
+         */
+        public Slot acquire(PipelineRow row, CompletableFuture<?> stop) {
+            Ticket ticket = enqueue(this, row);
+            if (!ticket.granted.isDone()) {
+                log.info("Row '{}' of {} waits for a slot in project {} / runner group '{}'", row.getApplicationName(), name,
+                        row.getProjectId(), row.getRunnerGroup());
+            }
+            if (stop != null) {
+                CompletableFuture.anyOf(ticket.granted, stop).join();
+                if (stop.isDone()) {
+                    if (!withdraw(this, ticket)) {
+                        ticket.close();
+                    }
+                    return null;
+                }
+            }
+            ticket.granted.join();
+            return ticket;
+        }
+
+        @Override
+        public void close() {
+            unregister(this);
+        }
+    }
+
+    /**
+     * Permission to run one pipeline.
+     */
+    public interface Slot extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private final class Ticket implements Slot {
+        private final long projectId;
+        private final String group;
+        private final long queuedAt = System.nanoTime();
+        private final CompletableFuture<Void> granted = new CompletableFuture<>();
+        private boolean released;
+
+        private Ticket(long projectId, String group) {
+            this.projectId = projectId;
+            this.group = group;
+        }
+
+        @Override
+        public void close() {
+            synchronized (PipelineScheduler.this) {
+                if (released) {
+                    return;
+                }
+                released = true;
+            }
+            release(this);
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.org.orchestrator.executor;
+
+import com.org.orchestrator.gitlab.GitLabAsyncClient;
+import com.org.orchestrator.gitlab.PipelineStatusPoller;
+import com.org.orchestrator.metrics.Counter;
+import com.org.orchestrator.metrics.Metrics;
+import com.org.orchestrator.util.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deadlines and cancellation for the flows of a run.
+ * <p>
+ * Every flow registers and reports the pipelines it has in flight. Cancelling a flow stops it from starting
+ * further rows and cancels those pipelines in GitLab, so an aborted run does not leave them holding
+ * runners. Flows are cancelled when the run exceeds {@code --maxRuntime} (in a daemon or spool worker, when
+ * the flow itself has run that long), when the orchestrator shuts down,
+ * and, for flows in a fail-fast group ({@code --failFast}, {@code --failFastGroups}), when another flow of
+ * the group fails; in a batch run that includes flows of the group still queued to start. A single pipeline
+ * is cancelled when its row exceeds {@code --rowTimeout}.
+ */
+public class RunControl implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(RunControl.class);
+
+    private static final Counter CANCELLED = Metrics.counter("orchestrator_pipelines_cancelled_total", "Pipelines cancelled in GitLab by the orchestrator");
+
+    private final GitLabAsyncClient gitlab;
+    private final PipelineStatusPoller poller;
+    private final long rowTimeoutMillis;
+    private final boolean failFast;
+    private final Map<String, String> failFastGroups;
+    private final boolean longRunning;
+    private final Set<Flow> flows = ConcurrentHashMap.newKeySet();
+    private final Map<String, String> failedGroups = new ConcurrentHashMap<>();
+    private final int maxRuntime;
+    private final ScheduledThreadPoolExecutor deadline;
+    private volatile String runCancelled;
+
+    public RunControl(GitLabAsyncClient gitlab, PipelineStatusPoller poller, Config cfg) {
+        this.gitlab = gitlab;
+        this.poller = poller;
+        this.rowTimeoutMillis = cfg.getRowTimeout() * 1000L;
+        this.failFast = cfg.isFailFast();
+        this.failFastGroups = cfg.getFailFastGroups();
+        this.longRunning = cfg.isDaemon() || cfg.getSpoolDir() != null;
+        this.maxRuntime = cfg.getMaxRuntime();
+        if (maxRuntime > 0) {
+            this.deadline = new ScheduledThreadPoolExecutor(1, r -> {
+                Thread t = new Thread(r, "run-deadline");
+                t.setDaemon(true);
+                return t;
+            });
+            // Per-flow deadlines of finished flows are dropped rather than held until they are due.
+            deadline.setRemoveOnCancelPolicy(true);
+            if (!longRunning) {
+                deadline.schedule(() -> cancelAll("the run exceeded --maxRuntime of " + maxRuntime + " s"), maxRuntime, TimeUnit.SECONDS);
+            }
+        } else {
+            this.deadline = null;
+        }
+    }
+
+    /**
+     * Registers a flow; its rows report their pipelines to the returned {@link Flow}.
+     */
+    public Flow register(String name) {
+        String group = failFastGroups.getOrDefault(name, failFast ? "" : null);
+        Flow flow = new Flow(name, group);
+        flows.add(flow);
+        if (deadline != null && longRunning) {
+            flow.runtimeLimit = deadline.schedule(() -> flow.cancel("the flow exceeded --maxRuntime of " + maxRuntime + " s"), maxRuntime, TimeUnit.SECONDS);
+        }
+        String reason = runCancelled;
+        if (reason == null && group != null) {
+            reason = failedGroups.get(group);
+        }
+        if (reason != null) {
+            flow.cancel(reason);
+        }
+        return flow;
+    }
+
+    /**
+     * Cancels every flow of the run, including flows registered from now on.
+     */
+    public void cancelAll(String reason) {
+        runCancelled = reason;
+        for (Flow flow : flows) {
+            flow.cancel(reason);
+        }
+    }
+
+    private void failed(Flow failed) {
+        if (failed.group == null) {
+            return;
+        }
+        String reason = "flow " + failed.name + (failed.group.isEmpty() ? "" : " of fail-fast group " + failed.group) + " failed";
+        if (!longRunning) {
+            // Flows of the group still waiting for a thread are cancelled as they register. A daemon or spool
+            // worker takes each submitted flow as a run of its own, so there only running flows are affected.
+            failedGroups.putIfAbsent(failed.group, reason);
+        }
+        for (Flow flow : flows) {
+            if (flow != failed && failed.group.equals(flow.group)) {
+                flow.cancel(reason);
+            }
+        }
+    }
+
+    /**
+     * Asks GitLab to cancel a pipeline, and hands the status it answers with to the poller so the row
+     * waiting for the pipeline sees the cancellation without another poll.
+     */
+    private void cancelPipeline(String flow, long projectId, long pipelineId, String token, String reason) {
+        log.warn("Cancelling pipeline {} of project {} in flow {}: {}", pipelineId, projectId, flow, reason);
+        CANCELLED.inc();
+        gitlab.cancelPipeline(projectId, pipelineId, token).thenAccept(status -> poller.onStatus(projectId, pipelineId, status.getResult()));
+    }
+
+    @Override
+    public void close() {
+        if (deadline != null) {
+            deadline.shutdownNow();
+        }
+    }
+
+    /**
+     * The cancellation state and in-flight pipelines of one flow.
+     */
+    public final class Flow implements AutoCloseable {
+        private final String name;
+        private final String group;
+        private final Map<Long, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+        private final CompletableFuture<String> cancelled = new CompletableFuture<>();
+        private volatile String cancelReason;
+        private volatile boolean keepPipelines;
+        private volatile ScheduledFuture<?> runtimeLimit;
+
+        private Flow(String name, String group) {
+            this.name = name;
+            this.group = group;
+        }
+
+        /**
+         * Reports a triggered pipeline. The returned future completes with the reason to stop waiting for it
+         * once the flow is cancelled or the row's timeout passes, by which time the pipeline is being
+         * cancelled in GitLab; it completes with {@code null} once {@link #ended} is called.
+         */
+        public CompletableFuture<String> started(long projectId, long pipelineId, String token) {
+            CompletableFuture<String> stop = new CompletableFuture<>();
+            inFlight.put(pipelineId, stop);
+            stop.thenAccept(reason -> {
+                if (reason != null && !keepPipelines) {
+                    cancelPipeline(name, projectId, pipelineId, token, reason);
+                }
+            });
+            if (rowTimeoutMillis > 0) {
+                stop.completeOnTimeout("the row exceeded --rowTimeout of " + rowTimeoutMillis / 1000 + " s", rowTimeoutMillis, TimeUnit.MILLISECONDS);
+            }
+            String reason = cancelReason;
+            if (reason != null) {
+                stop.complete(reason);
+            }
+            return stop;
+        }
+
+        /**
+         * The pipeline reached a final status, or is no longer waited for.
+         */
+        public void ended(long pipelineId) {
+            CompletableFuture<String> stop = inFlight.remove(pipelineId);
+            if (stop != null) {
+                stop.complete(null);
+            }
+        }
+
+        public boolean isCancelled() {
+            return cancelReason != null;
+        }
+
+        public String getCancelReason() {
+            return cancelReason;
+        }
+
+        /**
+         * Completes with the reason once the flow is cancelled, so the flow can stop waiting for anything
+         * other than its own pipelines.
+         */
+        public CompletableFuture<String> whenCancelled() {
+            return cancelled;
+        }
+
+        /**
+         * Stops the flow from starting rows and cancels its pipelines in flight.
+         */
+        public void cancel(String reason) {
+            synchronized (this) {
+                if (cancelReason != null) {
+                    return;
+                }
+                cancelReason = reason;
+            }
+            log.warn("Cancelling flow {} ({} pipelines in flight): {}", name, inFlight.size(), reason);
+            inFlight.values().forEach(stop -> stop.complete(reason));
+            cancelled.complete(reason);
+        }
+
+        /**
+         * Stops the flow like {@link #cancel}, but leaves its pipelines running in GitLab, for a flow that
+         * another process has taken over and re-attached to.
+         */
+        public void abandon(String reason) {
+            keepPipelines = true;
+            cancel(reason);
+        }
+
+        /**
+         * A row of the flow failed; cancels the other flows of its fail-fast group.
+         */
+        public void failed() {
+            if (!isCancelled()) {
+                RunControl.this.failed(this);
+            }
+        }
+
+        @Override
+        public void close() {
+            flows.remove(this);
+            ScheduledFuture<?> due = runtimeLimit;
+            if (due != null) {
+                due.cancel(false);
+            }
+        }
+    }
+}
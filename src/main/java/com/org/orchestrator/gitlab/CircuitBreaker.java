@@ -0,0 +1,136 @@
+package com.org.orchestrator.gitlab;
+
+import com.org.orchestrator.metrics.Gauge;
+import com.org.orchestrator.metrics.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stops sending requests to a GitLab host that keeps failing, and holds them until it answers again.
+ * <p>
+ * After {@code threshold} consecutive transient failures the breaker opens: new requests wait instead of
+ * failing their flows. Once the cooldown has passed a single request is let through as a probe. If it
+ * gets any answer the breaker closes and the waiting requests are released spread over a few seconds, so
+ * the recovering host is not hit by all of them at once; if it fails the breaker opens again for twice as
+ * long, up to eight times the initial cooldown.
+ */
+class CircuitBreaker {
+    private static final Logger log = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    private static final Gauge PAUSED = Metrics.gauge("gitlab_requests_paused", "GitLab requests held while a host's circuit breaker is open");
+    private static final long RECOVERY_SPREAD_MILLIS = 2000;
+    private static final CompletableFuture<Void> ADMITTED = CompletableFuture.completedFuture(null);
+
+    private enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String host;
+    private final int threshold;
+    private final long baseCooldownMillis;
+    private final ArrayDeque<CompletableFuture<Void>> waiting = new ArrayDeque<>();
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long cooldownMillis;
+    private long openUntil;
+
+    /**
+     * @param threshold consecutive failures that open the breaker; 0 disables it
+     */
+    CircuitBreaker(String host, int threshold, long cooldownMillis) {
+        this.host = host;
+        this.threshold = threshold;
+        this.baseCooldownMillis = cooldownMillis;
+        this.cooldownMillis = cooldownMillis;
+        Metrics.gauge("gitlab_circuit_open", "Whether requests to the GitLab host are held by its circuit breaker", this::openGauge, "host", host);
+    }
+
+    /**
+     * Completes when a request to the host may be sent.
+     */
+    synchronized CompletableFuture<Void> admit() {
+        if (threshold <= 0 || state == State.CLOSED) {
+            return ADMITTED;
+        }
+        if (state == State.OPEN && System.currentTimeMillis() >= openUntil) {
+            state = State.HALF_OPEN;
+            log.info("Probing GitLab host {} after {} s", host, cooldownMillis / 1000);
+            return ADMITTED;
+        }
+        CompletableFuture<Void> admitted = new CompletableFuture<>();
+        waiting.add(admitted);
+        PAUSED.inc();
+        return admitted;
+    }
+
+    /**
+     * The host answered, whatever the status.
+     */
+    void onSuccess() {
+        List<CompletableFuture<Void>> released;
+        synchronized (this) {
+            consecutiveFailures = 0;
+            if (state == State.CLOSED) {
+                return;
+            }
+            log.info("GitLab host {} is answering again; releasing {} held requests", host, waiting.size());
+            state = State.CLOSED;
+            cooldownMillis = baseCooldownMillis;
+            released = List.copyOf(waiting);
+            waiting.clear();
+        }
+        for (CompletableFuture<Void> admitted : released) {
+            PAUSED.dec();
+            long delay = ThreadLocalRandom.current().nextLong(RECOVERY_SPREAD_MILLIS + 1);
+            CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS).execute(() -> admitted.complete(null));
+        }
+    }
+
+    /**
+     * The request failed without an answer, or with a server error.
+     */
+    synchronized void onFailure() {
+        if (threshold <= 0) {
+            return;
+        }
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN) {
+            cooldownMillis = Math.min(cooldownMillis * 2, baseCooldownMillis * 8);
+            open("the probe failed");
+        } else if (state == State.CLOSED && consecutiveFailures >= threshold) {
+            open(consecutiveFailures + " consecutive failures");
+        }
+    }
+
+    private void open(String reason) {
+        state = State.OPEN;
+        openUntil = System.currentTimeMillis() + cooldownMillis;
+        log.warn("GitLab host {} looks unavailable ({}); holding its requests for {} s", host, reason, cooldownMillis / 1000);
+        // Without new requests nobody would probe, so one of the waiting requests is let through when the cooldown ends.
+        CompletableFuture.delayedExecutor(cooldownMillis, TimeUnit.MILLISECONDS).execute(this::probeWaiting);
+    }
+
+    private void probeWaiting() {
+        CompletableFuture<Void> probe;
+        synchronized (this) {
+            if (state != State.OPEN || System.currentTimeMillis() < openUntil || waiting.isEmpty()) {
+                return;
+            }
+            state = State.HALF_OPEN;
+            probe = waiting.poll();
+            log.info("Probing GitLab host {} after {} s", host, cooldownMillis / 1000);
+        }
+        PAUSED.dec();
+        probe.complete(null);
+    }
+
+    private synchronized long openGauge() {
+        return state == State.CLOSED ? 0 : 1;
+    }
+}
@@ -0,0 +1,822 @@
+package com.org.orchestrator.gitlab;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.org.orchestrator.metrics.Counter;
+import com.org.orchestrator.metrics.Histogram;
+import com.org.orchestrator.metrics.Metrics;
+import com.org.orchestrator.model.JobInfo;
+import com.org.orchestrator.model.PipelineStatusInfo;
+import com.org.orchestrator.model.PipelineTimings;
+import com.org.orchestrator.util.BoundedInputStream;
+import com.org.orchestrator.util.Config;
+import com.org.orchestrator.util.ExecutorMode;
+import com.org.orchestrator.util.OutputEnvParser;
+import com.org.orchestrator.util.VirtualThreads;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.async.methods.SimpleRequestProducer;
+import org.apache.hc.client5.http.async.methods.SimpleResponseConsumer;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.config.TlsConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.nio.support.BasicRequestProducer;
+import org.apache.hc.core5.http.message.BasicHttpRequest;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.http2.config.H2Config;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.reactor.IOReactorConfig;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Non-blocking GitLab API client on the httpclient5 async (HTTP/1.1 and HTTP/2) transport.
+ * <p>
+ * Every call returns a {@link CompletableFuture} and no thread waits for a response. Connections are pooled
+ * per route and kept alive; with HTTP/2 many requests are multiplexed over each connection, which is how
+ * concurrent requests are pipelined. All requests pass through a {@link RequestGovernor} that keeps them
+ * under GitLab's rate limits. {@link GitLabClient} is the blocking facade over this client.
+ * <p>
+ * Connection failures and server errors are retried with backoff as described by {@link RetryPolicy}, and
+ * a {@link CircuitBreaker} per host holds requests while GitLab is down rather than failing their flows.
+ */
+public class GitLabAsyncClient implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(GitLabAsyncClient.class);
+
+    private static final RequestMetrics TRIGGER = new RequestMetrics("trigger_pipeline");
+    private static final RequestMetrics GET_PIPELINE = new RequestMetrics("get_pipeline");
+    private static final RequestMetrics LIST_PIPELINES = new RequestMetrics("list_pipelines");
+    private static final RequestMetrics LIST_JOBS = new RequestMetrics("list_jobs");
+    private static final RequestMetrics ARTIFACT_FILE = new RequestMetrics("artifact_file");
+    private static final RequestMetrics ARTIFACT_ARCHIVE = new RequestMetrics("artifact_archive");
+    private static final RequestMetrics GET_BRANCH = new RequestMetrics("get_branch");
+    private static final RequestMetrics PIPELINE_VARIABLES = new RequestMetrics("pipeline_variables");
+    private static final RequestMetrics CANCEL_PIPELINE = new RequestMetrics("cancel_pipeline");
+
+    /** Allowance for GitLab's clock being behind ours when looking for a pipeline a failed trigger created. */
+    private static final Duration CLOCK_SKEW = Duration.ofMinutes(1);
+    private static final Duration CLAIM_RETENTION = Duration.ofHours(1);
+
+    private static final AtomicBoolean FIRST_TRIGGER = new AtomicBoolean();
+
+    private final String baseUrl;
+    private final HttpSettings settings;
+    private final ExecutorService bodyParsers;
+    private final long artifactMaxBytes;
+    private final RequestGovernor governor;
+    private final RetryPolicy retryPolicy;
+    private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+    /** Pipelines this client created, with when, so a failed trigger never adopts another row's pipeline. */
+    private final Map<Long, Instant> triggered = new ConcurrentHashMap<>();
+    private volatile Instant nextClaimPrune = Instant.now().plus(CLAIM_RETENTION);
+    private volatile CloseableHttpAsyncClient http;
+
+    public GitLabAsyncClient(String baseUrl) {
+        this(baseUrl, HttpSettings.defaults(), Executors.newCachedThreadPool(daemonThreads("gitlab-body-parser")));
+    }
+
+    public GitLabAsyncClient(Config cfg) {
+        this(cfg.getGitlabBaseUrl(), HttpSettings.from(cfg),
+                cfg.getExecutorMode() == ExecutorMode.VIRTUAL && VirtualThreads.isSupported()
+                        ? VirtualThreads.newThreadPerTaskExecutor("gitlab-body-parser")
+                        : Executors.newCachedThreadPool(daemonThreads("gitlab-body-parser")));
+    }
+
+    private GitLabAsyncClient(String baseUrl, HttpSettings settings, ExecutorService bodyParsers) {
+        this.baseUrl = baseUrl;
+        this.settings = settings;
+        this.bodyParsers = bodyParsers;
+        this.artifactMaxBytes = settings.artifactMaxBytes;
+        this.governor = new RequestGovernor(settings.tokenRate, settings.hostRate, settings.rateLimitRetries);
+        this.retryPolicy = new RetryPolicy(settings.retryMax, settings.retryTriggerMax, settings.retryBaseMillis, settings.retryMaxMillis);
+    }
+
+    /**
+     * Creates a pipeline. Creating is not idempotent, so after a failed attempt the pipeline is only
+     * triggered again once {@link #findTriggeredPipeline} has made sure the attempt did not create one.
+     */
+    public CompletableFuture<Long> triggerPipeline(long projectId, String branch, Map<String, String> vars, String token) {
+        String url = baseUrl + "/projects/" + projectId + "/pipeline";
+        SimpleHttpRequest post = SimpleRequestBuilder.post(url)
+                .setHeader("PRIVATE-TOKEN", token)
+                .setBody(buildTriggerPayload(branch, vars), ContentType.APPLICATION_JSON)
+                .build();
+
+        return triggerAttempt(projectId, branch, vars, token, post, 0).whenComplete((id, e) -> {
+            if (e != null) {
+                log.error("Error triggering pipeline for project {}: {}", projectId, rootMessage(e));
+            }
+        });
+    }
+
+    private CompletableFuture<Long> triggerAttempt(long projectId, String branch, Map<String, String> vars, String token, SimpleHttpRequest post, int retries) {
+        Instant attemptedAt = Instant.now();
+        return sendOnce(TRIGGER, RequestGovernor.Priority.TRIGGER, post, response -> {
+            if (response.getCode() != 201) {
+                throw new IOException("Failed to trigger pipeline: " + response.getCode() + " " + response.getBodyText());
+            }
+            JsonNode root = Json.MAPPER.readTree(response.getBodyBytes());
+            long pipelineId = root.get("id").asLong();
+            log.info("Triggered pipeline with ID: {} for project {}", pipelineId, projectId);
+            claim(pipelineId);
+            if (FIRST_TRIGGER.compareAndSet(false, true)) {
+                recordFirstTrigger();
+            }
+            return pipelineId;
+        }).handle((id, e) -> {
+            if (e == null) {
+                return CompletableFuture.completedFuture(id);
+            }
+            if (!RetryPolicy.isTransient(e) || retries >= retryPolicy.getMaxTriggerRetries()) {
+                return CompletableFuture.<Long>failedFuture(e);
+            }
+            // The request may have reached GitLab even though its answer did not reach us.
+            return findTriggeredPipeline(projectId, branch, vars, token, attemptedAt).thenCompose(found -> {
+                if (found.isPresent()) {
+                    log.warn("Triggering a pipeline for project {} failed ({}) but created pipeline {}; using it", projectId, rootMessage(e), found.get());
+                    return CompletableFuture.completedFuture(found.get());
+                }
+                long delay = retryPolicy.backoffMillis(retries);
+                TRIGGER.retried();
+                log.warn("Triggering a pipeline for project {} failed ({}); no pipeline was created, retry {} of {} in {} ms",
+                        projectId, rootMessage(e), retries + 1, retryPolicy.getMaxTriggerRetries(), delay);
+                return after(delay).thenCompose(ignored -> triggerAttempt(projectId, branch, vars, token, post, retries + 1));
+            });
+        }).thenCompose(f -> f);
+    }
+
+    /**
+     * Looks for a pipeline that a trigger sent at {@code since} created although its response was lost:
+     * one on the branch, updated since then, not created by any other trigger of this client and with
+     * exactly the variables that were sent. Completes exceptionally when GitLab cannot be asked, in which
+     * case triggering again could create a duplicate.
+     */
+    private CompletableFuture<Optional<Long>> findTriggeredPipeline(long projectId, String branch, Map<String, String> vars, String token, Instant since) {
+        String url = baseUrl + "/projects/" + projectId + "/pipelines?ref=" + URLEncoder.encode(branch, StandardCharsets.UTF_8)
+                + "&source=api&updated_after=" + since.minus(CLOCK_SKEW) + "&order_by=id&sort=desc&per_page=20";
+        return send(LIST_PIPELINES, RequestGovernor.Priority.TRIGGER, get(url, token), response -> {
+            if (response.getCode() != 200) {
+                throw new IOException("Failed to list pipelines: " + response.getCode() + " " + response.getBodyText());
+            }
+            List<Long> candidates = new ArrayList<>();
+            JsonNode root = Json.MAPPER.readTree(response.getBodyBytes());
+            if (root.isArray()) {
+                for (JsonNode node : root) {
+                    long id = node.get("id").asLong();
+                    if (!triggered.containsKey(id)) {
+                        candidates.add(id);
+                    }
+                }
+            }
+            return candidates;
+        }).thenCompose(candidates -> matchVariables(projectId, candidates, 0, vars, token));
+    }
+
+    private CompletableFuture<Optional<Long>> matchVariables(long projectId, List<Long> candidates, int index, Map<String, String> vars, String token) {
+        if (index >= candidates.size()) {
+            return CompletableFuture.completedFuture(Optional.empty());
+        }
+        long pipelineId = candidates.get(index);
+        String url = baseUrl + "/projects/" + projectId + "/pipelines/" + pipelineId + "/variables";
+        return send(PIPELINE_VARIABLES, RequestGovernor.Priority.TRIGGER, get(url, token), response -> {
+            if (response.getCode() != 200) {
+                throw new IOException("Failed to read variables of pipeline " + pipelineId + ": " + response.getCode() + " " + response.getBodyText());
+            }
+            Map<String, String> actual = new HashMap<>();
+            JsonNode root = Json.MAPPER.readTree(response.getBodyBytes());
+            if (root.isArray()) {
+                for (JsonNode node : root) {
+                    actual.put(node.get("key").asText(), node.path("value").asText());
+                }
+            }
+            return actual;
+        }).thenCompose(actual -> actual.equals(vars) && claim(pipelineId)
+                ? CompletableFuture.completedFuture(Optional.of(pipelineId))
+                : matchVariables(projectId, candidates, index + 1, vars, token));
+    }
+
+    /**
+     * Records a pipeline as created by this client; false when it already was.
+     */
+    private boolean claim(long pipelineId) {
+        Instant now = Instant.now();
+        if (now.isAfter(nextClaimPrune)) {
+            nextClaimPrune = now.plus(CLAIM_RETENTION);
+            triggered.values().removeIf(at -> at.isBefore(now.minus(CLAIM_RETENTION)));
+        }
+        return triggered.putIfAbsent(pipelineId, now) == null;
+    }
+
+    /**
+     * Time from JVM start to the first pipeline GitLab accepted, which is what startup tuning is judged by.
+     */
+    private static void recordFirstTrigger() {
+        Instant jvmStart = ProcessHandle.current().info().startInstant().orElse(null);
+        if (jvmStart == null) {
+            return;
+        }
+        long millis = Duration.between(jvmStart, Instant.now()).toMillis();
+        Metrics.gauge("orchestrator_time_to_first_trigger_milliseconds", "Time from JVM start until the first pipeline was created", () -> millis);
+        log.info("First pipeline created {} ms after JVM start", millis);
+    }
+
+    static String buildTriggerPayload(String branch, Map<String, String> vars) {
+        StringBuilder jsonPayload = new StringBuilder();
+        jsonPayload.append("{\"ref\":\"").append(branch).append("\", \"variables\":[");
+        vars.forEach((k, v) -> jsonPayload.append("{\"key\":\"").append(k).append("\",\"value\":\"").append(v).append("\"},"));
+        if (!vars.isEmpty()) {
+            jsonPayload.setLength(jsonPayload.length() - 1); // Remove last comma
+        }
+        jsonPayload.append("]}");
+        return jsonPayload.toString();
+    }
+
+    /**
+     * Cancels a pipeline's pending and running jobs. Completes with the status GitLab reports afterwards,
+     * usually {@code canceled}.
+     */
+    public CompletableFuture<PipelineStatusInfo> cancelPipeline(long projectId, long pipelineId, String token) {
+        String url = baseUrl + "/projects/" + projectId + "/pipelines/" + pipelineId + "/cancel";
+        SimpleHttpRequest post = SimpleRequestBuilder.post(url).setHeader("PRIVATE-TOKEN", token).build();
+        // Cancelling twice does no harm, so a failed attempt is retried like a read.
+        return send(CANCEL_PIPELINE, RequestGovernor.Priority.TRIGGER, post, response -> {
+            if (response.getCode() != 200) {
+                throw new IOException("Failed to cancel pipeline: " + response.getCode() + " " + response.getBodyText());
+            }
+            JsonNode root = Json.MAPPER.readTree(response.getBodyBytes());
+            return new PipelineStatusInfo(pipelineId, root.path("status").asText("canceled"));
+        }).whenComplete((status, e) -> {
+            if (e != null) {
+                log.error("Error cancelling pipeline {} for project {}: {}", pipelineId, projectId, rootMessage(e));
+            }
+        });
+    }
+
+    public CompletableFuture<PipelineStatusInfo> getPipelineStatus(long projectId, long pipelineId, String token) {
+        String url = baseUrl + "/projects/" + projectId + "/pipelines/" + pipelineId;
+        return send(GET_PIPELINE, RequestGovernor.Priority.POLL, get(url, token), response -> {
+            if (response.getCode() != 200) {
+                throw new IOException("Failed to poll pipeline: " + response.getCode() + " " + response.getBodyText());
+            }
+            JsonNode root = Json.MAPPER.readTree(response.getBodyBytes());
+            return new PipelineStatusInfo(pipelineId, root.get("status").asText());
+        }).whenComplete((status, e) -> {
+            if (e != null) {
+                log.error("Error polling pipeline {} for project {}: {}", pipelineId, projectId, rootMessage(e));
+            }
+        });
+    }
+
+    /**
+     * Lists the pipelines of a project that were updated after the given instant, newest first.
+     * One call answers for every in-flight pipeline of the project that changed since then.
+     */
+    public CompletableFuture<List<PipelineStatusInfo>> listPipelines(long projectId, String token, Instant updatedAfter, int perPage) {
+        String url = baseUrl + "/projects/" + projectId + "/pipelines?updated_after=" + updatedAfter
+                + "&order_by=updated_at&sort=desc&per_page=" + perPage;
+        return send(LIST_PIPELINES, RequestGovernor.Priority.POLL, get(url, token), response -> {
+            if (response.getCode() != 200) {
+                throw new IOException("Failed to list pipelines: " + response.getCode() + " " + response.getBodyText());
+            }
+            List<PipelineStatusInfo> pipelines = new ArrayList<>();
+            JsonNode root = Json.MAPPER.readTree(response.getBodyBytes());
+            if (root.isArray()) {
+                for (JsonNode node : root) {
+                    pipelines.add(new PipelineStatusInfo(node.get("id").asLong(), node.get("status").asText()));
+                }
+            }
+            return pipelines;
+        }).whenComplete((pipelines, e) -> {
+            if (e != null) {
+                log.error("Error listing pipelines for project {}: {}", projectId, rootMessage(e));
+            }
+        });
+    }
+
+    /**
+     * Resolves the commit SHA a branch currently points at.
+     */
+    public CompletableFuture<String> resolveCommit(long projectId, String branch, String token) {
+        String url = baseUrl + "/projects/" + projectId + "/repository/branches/" + URLEncoder.encode(branch, StandardCharsets.UTF_8);
+        return send(GET_BRANCH, RequestGovernor.Priority.TRIGGER, get(url, token), response -> {
+            if (response.getCode() != 200) {
+                throw new IOException("Failed to resolve branch " + branch + ": " + response.getCode() + " " + response.getBodyText());
+            }
+            JsonNode root = Json.MAPPER.readTree(response.getBodyBytes());
+            return root.path("commit").path("id").asText();
+        });
+    }
+
+    public CompletableFuture<List<JobInfo>> listJobs(long projectId, long pipelineId, String token) {
+        String url = baseUrl + "/projects/" + projectId + "/pipelines/" + pipelineId + "/jobs";
+        return send(LIST_JOBS, RequestGovernor.Priority.ARTIFACT, get(url, token), response -> {
+            if (response.getCode() != 200) {
+                throw new IOException("Failed to list jobs: " + response.getCode() + " " + response.getBodyText());
+            }
+            List<JobInfo> jobs = new ArrayList<>();
+            JsonNode root = Json.MAPPER.readTree(response.getBodyBytes());
+            if (root.isArray()) {
+                for (JsonNode jobNode : root) {
+                    boolean hasArtifacts = jobNode.has("artifacts") && jobNode.get("artifacts").isArray() && !jobNode.get("artifacts").isEmpty();
+                    jobs.add(new JobInfo(jobNode.get("id").asLong(), jobNode.get("name").asText(), hasArtifacts, jobNode.path("status").asText(null)));
+                }
+            }
+            return jobs;
+        });
+    }
+
+    /**
+     * Polls the jobs of a pipeline until the latest job named {@code jobName} has finished, and completes
+     * with it. Completes with {@code null} instead once {@code until} completes, typically the pipeline
+     * itself finishing, after which its jobs are of no further interest.
+     */
+    public CompletableFuture<JobInfo> awaitJob(long projectId, long pipelineId, String jobName, String token, int pollInterval, CompletableFuture<?> until) {
+        if (until.isDone()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return listJobs(projectId, pipelineId, token).handle((jobs, e) -> {
+            if (e != null) {
+                log.debug("Listing jobs of pipeline {} failed, retrying: {}", pipelineId, rootMessage(e));
+                return null;
+            }
+            // A retried job is listed again under a new id; the newest attempt counts.
+            return jobs.stream()
+                    .filter(j -> jobName.equals(j.getName()))
+                    .max(Comparator.comparingLong(JobInfo::getId))
+                    .filter(j -> GitLabClient.isTerminal(j.getStatus()) || "skipped".equals(j.getStatus()))
+                    .orElse(null);
+        }).thenCompose(job -> job != null
+                ? CompletableFuture.completedFuture(job)
+                : CompletableFuture.anyOf(until, CompletableFuture.runAsync(() -> { }, CompletableFuture.delayedExecutor(pollInterval, TimeUnit.SECONDS)))
+                        .thenCompose(ignored -> awaitJob(projectId, pipelineId, jobName, token, pollInterval, until)));
+    }
+
+    /**
+     * Finds the job that published artifacts in the pipeline and extracts {@code artifactPath} from it,
+     * preferring GitLab's single-file artifact endpoint over downloading the whole archive. Completes with
+     * an empty map, never exceptionally, when nothing can be fetched.
+     */
+    public CompletableFuture<Map<String, String>> fetchOutputEnv(long projectId, long pipelineId, String artifactJobName, String accessToken, String artifactPath) {
+        return fetchOutputEnv(projectId, pipelineId, artifactJobName, accessToken, artifactPath, null);
+    }
+
+    /**
+     * As {@link #fetchOutputEnv(long, long, String, String, String)}, recording when the job list arrived
+     * in {@code timings} if given.
+     */
+    public CompletableFuture<Map<String, String>> fetchOutputEnv(long projectId, long pipelineId, String artifactJobName, String accessToken, String artifactPath, PipelineTimings timings) {
+        log.info("Attempting to fetch artifact '{}' for job '{}' in pipeline {} (project {})", artifactPath, artifactJobName, pipelineId, projectId);
+        return listJobs(projectId, pipelineId, accessToken).thenCompose(jobs -> {
+            if (timings != null) {
+                timings.setArtifactListed(Instant.now());
+            }
+            Optional<JobInfo> targetJob = pickJobWithArtifacts(jobs, artifactJobName);
+            if (targetJob.isEmpty()) {
+                log.warn("No suitable job with artifacts found for pipeline {} with job name {}", pipelineId, artifactJobName);
+                return CompletableFuture.completedFuture(Collections.<String, String>emptyMap());
+            }
+            long jobId = targetJob.get().getId();
+            return fetchSingleFile(projectId, jobId, accessToken, artifactPath).thenCompose(file -> file.isPresent()
+                    ? CompletableFuture.completedFuture(file.get())
+                    : fetchFromArchive(projectId, jobId, accessToken, artifactPath));
+        }).exceptionally(e -> {
+            log.error("A critical error occurred during artifact fetching for pipeline {}: {}", pipelineId, rootMessage(e));
+            return Collections.emptyMap();
+        });
+    }
+
+    /**
+     * Downloads only {@code artifactPath} via {@code /jobs/:id/artifacts/*artifact_path}. Completes empty when
+     * the endpoint cannot serve the file (not found, older GitLab), meaning the archive has to be scanned.
+     */
+    private CompletableFuture<Optional<Map<String, String>>> fetchSingleFile(long projectId, long jobId, String accessToken, String artifactPath) {
+        String url = String.format("%s/projects/%d/jobs/%d/artifacts/%s", baseUrl, projectId, jobId, encodePath(artifactPath));
+        return stream(ARTIFACT_FILE, url, accessToken, (response, body) -> {
+            if (response.getCode() != 200) {
+                log.debug("Single-file artifact download for job {} returned {}; falling back to the archive", jobId, response.getCode());
+                return Optional.empty();
+            }
+            Header length = response.getFirstHeader(HttpHeaders.CONTENT_LENGTH);
+            if (length != null && Long.parseLong(length.getValue()) > artifactMaxBytes) {
+                log.warn("Artifact '{}' of job {} is {} bytes, above the {} byte limit. Skipping it.", artifactPath, jobId, length.getValue(), artifactMaxBytes);
+                return Optional.of(Collections.emptyMap());
+            }
+            try {
+                Map<String, String> parsed = OutputEnvParser.parse(new BoundedInputStream(body, artifactMaxBytes));
+                log.info("Fetched '{}' for job {} via the single-file artifact endpoint.", artifactPath, jobId);
+                return Optional.of(parsed);
+            } catch (IOException e) {
+                log.warn("Failed to read '{}' for job {}: {}", artifactPath, jobId, e.getMessage());
+                return Optional.of(Collections.emptyMap());
+            }
+        });
+    }
+
+    /**
+     * Scans the artifact archive as it streams in and aborts the download as soon as the entry is parsed.
+     */
+    private CompletableFuture<Map<String, String>> fetchFromArchive(long projectId, long jobId, String accessToken, String artifactPath) {
+        String url = String.format("%s/projects/%d/jobs/%d/artifacts", baseUrl, projectId, jobId);
+        return stream(ARTIFACT_ARCHIVE, url, accessToken, (response, body) -> {
+            if (response.getCode() != 200) {
+                log.warn("Failed to download artifact archive for job {}. Status: {}", jobId, response.getCode());
+                return Collections.emptyMap();
+            }
+            try (ZipInputStream zis = new ZipInputStream(body)) {
+                ZipEntry entry;
+                while ((entry = zis.getNextEntry()) != null) {
+                    if (!entry.isDirectory() && entry.getName().equals(artifactPath)) {
+                        if (entry.getSize() > artifactMaxBytes) {
+                            log.warn("Artifact '{}' of job {} is {} bytes, above the {} byte limit. Skipping it.", artifactPath, jobId, entry.getSize(), artifactMaxBytes);
+                            return Collections.emptyMap();
+                        }
+                        log.info("Found '{}' in artifacts for job {}. Parsing.", entry.getName(), jobId);
+                        return OutputEnvParser.parse(new BoundedInputStream(zis, artifactMaxBytes));
+                    }
+                    zis.closeEntry();
+                }
+            } catch (Exception e) {
+                log.error("Failed to process artifacts zip stream for job {}. Error: {}", jobId, e.toString());
+                return Collections.emptyMap();
+            }
+            log.warn("Could not find '{}' in artifacts for job {}", artifactPath, jobId);
+            return Collections.emptyMap();
+        });
+    }
+
+    /**
+     * Streams an artifact download through the governor. A new consumer is needed for each attempt, so a
+     * rate-limited response is discarded before the parser sees it and the request is issued again.
+     * Downloads are idempotent, so one that fails part way is retried like any other read.
+     */
+    private <T> CompletableFuture<T> stream(RequestMetrics metrics, String url, String token, StreamingResponseConsumer.BodyParser<T> parser) {
+        URI uri = URI.create(url);
+        return retrying(metrics, uri.getPath(), () -> streamOnce(metrics, uri, token, parser), 0);
+    }
+
+    private <T> CompletableFuture<T> streamOnce(RequestMetrics metrics, URI uri, String token, StreamingResponseConsumer.BodyParser<T> parser) {
+        CircuitBreaker breaker = breaker(uri.getAuthority());
+        return breaker.admit().thenCompose(admitted -> {
+            CompletableFuture<T> result = new CompletableFuture<>();
+            governor.execute(uri.getAuthority(), token, RequestGovernor.Priority.ARTIFACT, permit -> {
+                AtomicBoolean requeued = new AtomicBoolean();
+                AtomicBoolean answered = new AtomicBoolean();
+                long startedAt = System.nanoTime();
+                StreamingResponseConsumer<T> consumer = new StreamingResponseConsumer<>((response, body) -> {
+                    answered.set(true);
+                    metrics.completed(response.getCode(), startedAt);
+                    if (isServerError(response.getCode())) {
+                        breaker.onFailure();
+                        throw new TransientGitLabException("GitLab answered " + response.getCode() + " for " + uri.getPath());
+                    }
+                    breaker.onSuccess();
+                    if (permit.retryLater(response)) {
+                        requeued.set(true);
+                        return null;
+                    }
+                    return parser.parse(response, body);
+                }, bodyParsers);
+                BasicHttpRequest get = new BasicHttpRequest("GET", uri);
+                get.setHeader("PRIVATE-TOKEN", token);
+                consumer.attach(http().execute(new BasicRequestProducer(get, null), consumer, null));
+                consumer.result().whenComplete((value, e) -> {
+                    if (e == null) {
+                        if (!requeued.get()) {
+                            result.complete(value);
+                        }
+                    } else if (e instanceof TransientGitLabException) {
+                        result.completeExceptionally(e);
+                    } else {
+                        metrics.failed(startedAt);
+                        if (!answered.get()) {
+                            breaker.onFailure();
+                        }
+                        result.completeExceptionally(new TransientGitLabException("Downloading " + uri.getPath() + " failed: " + e.getMessage(), e));
+                    }
+                });
+            });
+            return result;
+        });
+    }
+
+    private static String encodePath(String path) {
+        return Arrays.stream(path.split("/"))
+                .map(segment -> URLEncoder.encode(segment, StandardCharsets.UTF_8).replace("+", "%20"))
+                .collect(Collectors.joining("/"));
+    }
+
+    private Optional<JobInfo> pickJobWithArtifacts(List<JobInfo> jobs, String jobName) {
+        java.util.stream.Stream<JobInfo> jobStream = jobs.stream();
+
+        // If a specific job name is given, filter by it first.
+        if (jobName != null && !jobName.isBlank()) {
+            jobStream = jobStream.filter(j -> jobName.equals(j.getName()));
+        }
+
+        // From the filtered stream (or the whole stream), find the first one with artifacts.
+        return jobStream.filter(JobInfo::getHaveArtifacts).findFirst();
+    }
+
+    private SimpleHttpRequest get(String url, String token) {
+        return SimpleRequestBuilder.get(url).setHeader("PRIVATE-TOKEN", token).build();
+    }
+
+    /**
+     * Issues an idempotent request, retrying it with backoff when it fails transiently.
+     */
+    private <T> CompletableFuture<T> send(RequestMetrics metrics, RequestGovernor.Priority priority, SimpleHttpRequest request, ResponseHandler<T> handler) {
+        return retrying(metrics, request.getPath(), () -> sendOnce(metrics, priority, request, handler), 0);
+    }
+
+    private <T> CompletableFuture<T> retrying(RequestMetrics metrics, String path, Supplier<CompletableFuture<T>> attempt, int retries) {
+        return attempt.get().handle((value, e) -> {
+            if (e == null) {
+                return CompletableFuture.completedFuture(value);
+            }
+            if (!RetryPolicy.isTransient(e) || retries >= retryPolicy.getMaxRetries()) {
+                return CompletableFuture.<T>failedFuture(e);
+            }
+            long delay = retryPolicy.backoffMillis(retries);
+            metrics.retried();
+            log.warn("GitLab request {} failed ({}); retry {} of {} in {} ms", path, rootMessage(e), retries + 1, retryPolicy.getMaxRetries(), delay);
+            return after(delay).thenCompose(ignored -> retrying(metrics, path, attempt, retries + 1));
+        }).thenCompose(f -> f);
+    }
+
+    /**
+     * Issues a buffered request once the host's circuit breaker admits it and the governor grants it a
+     * permit. A 429 answer is not handed to {@code handler}; the governor queues the request again instead.
+     * Connection failures and server errors complete the result with a {@link TransientGitLabException}.
+     */
+    private <T> CompletableFuture<T> sendOnce(RequestMetrics metrics, RequestGovernor.Priority priority, SimpleHttpRequest request, ResponseHandler<T> handler) {
+        String host = request.getAuthority().toString();
+        CircuitBreaker breaker = breaker(host);
+        Header token = request.getFirstHeader("PRIVATE-TOKEN");
+        return breaker.admit().thenCompose(admitted -> {
+            CompletableFuture<T> result = new CompletableFuture<>();
+            governor.execute(host, token == null ? null : token.getValue(), priority, permit -> {
+                long startedAt = System.nanoTime();
+                FutureCallback<SimpleHttpResponse> callback = new FutureCallback<SimpleHttpResponse>() {
+                    @Override
+                    public void completed(SimpleHttpResponse response) {
+                        metrics.completed(response.getCode(), startedAt);
+                        if (isServerError(response.getCode())) {
+                            breaker.onFailure();
+                            result.completeExceptionally(new TransientGitLabException("GitLab answered " + response.getCode() + " for " + request.getPath()));
+                            return;
+                        }
+                        breaker.onSuccess();
+                        if (permit.retryLater(response)) {
+                            return;
+                        }
+                        try {
+                            result.complete(handler.handle(response));
+                        } catch (Exception e) {
+                            result.completeExceptionally(e);
+                        }
+                    }
+
+                    @Override
+                    public void failed(Exception e) {
+                        metrics.failed(startedAt);
+                        breaker.onFailure();
+                        result.completeExceptionally(new TransientGitLabException(request.getPath() + " failed: " + e.getMessage(), e));
+                    }
+
+                    @Override
+                    public void cancelled() {
+                        breaker.onFailure();
+                        result.cancel(false);
+                    }
+                };
+                http().execute(SimpleRequestProducer.create(request), SimpleResponseConsumer.create(), callback);
+            });
+            return result;
+        });
+    }
+
+    private CircuitBreaker breaker(String host) {
+        return breakers.computeIfAbsent(host, h -> new CircuitBreaker(h, settings.breakerThreshold, settings.breakerCooldownSeconds * 1000L));
+    }
+
+    private static boolean isServerError(int code) {
+        return code == 500 || code == 502 || code == 503 || code == 504;
+    }
+
+    private static CompletableFuture<Void> after(long millis) {
+        return CompletableFuture.runAsync(() -> { }, CompletableFuture.delayedExecutor(millis, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * The HTTP client, built and started by the first request so that its classes, I/O reactor threads
+     * and connection pool cost nothing until a flow actually talks to GitLab.
+     */
+    private CloseableHttpAsyncClient http() {
+        CloseableHttpAsyncClient client = http;
+        if (client == null) {
+            synchronized (this) {
+                client = http;
+                if (client == null) {
+                    client = createHttpClient(settings);
+                    http = client;
+                }
+            }
+        }
+        return client;
+    }
+
+    private static CloseableHttpAsyncClient createHttpClient(HttpSettings settings) {
+        CloseableHttpAsyncClient client = HttpAsyncClients.custom()
+                .setConnectionManager(PoolingAsyncClientConnectionManagerBuilder.create()
+                        .setMaxConnPerRoute(settings.maxConnPerRoute)
+                        .setMaxConnTotal(settings.maxConnTotal)
+                        .setDefaultConnectionConfig(ConnectionConfig.custom()
+                                .setConnectTimeout(Timeout.ofSeconds(settings.connectTimeoutSeconds))
+                                .setSocketTimeout(Timeout.ofSeconds(settings.responseTimeoutSeconds))
+                                .setTimeToLive(TimeValue.ofSeconds(settings.keepAliveSeconds * 10L))
+                                .setValidateAfterInactivity(TimeValue.ofSeconds(settings.keepAliveSeconds))
+                                .build())
+                        .setDefaultTlsConfig(TlsConfig.custom()
+                                .setVersionPolicy(settings.versionPolicy)
+                                .build())
+                        .build())
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setResponseTimeout(Timeout.ofSeconds(settings.responseTimeoutSeconds))
+                        .setConnectionKeepAlive(TimeValue.ofSeconds(settings.keepAliveSeconds))
+                        .build())
+                .setH2Config(H2Config.custom().setPushEnabled(false).setMaxConcurrentStreams(settings.maxStreamsPerConnection).build())
+                .setIOReactorConfig(IOReactorConfig.custom()
+                        .setSoTimeout(Timeout.ofSeconds(settings.responseTimeoutSeconds))
+                        .setSoKeepAlive(true)
+                        .setTcpNoDelay(true)
+                        .build())
+                .build();
+        client.start();
+        log.info("GitLab async client ready: {} connections per route, {} total, version policy {}",
+                settings.maxConnPerRoute, settings.maxConnTotal, settings.versionPolicy);
+        return client;
+    }
+
+    static String rootMessage(Throwable e) {
+        return RetryPolicy.unwrap(e).getMessage();
+    }
+
+    @Override
+    public void close() {
+        governor.close();
+        if (http != null) {
+            http.close(CloseMode.GRACEFUL);
+        }
+        bodyParsers.shutdownNow();
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        return r -> {
+            Thread t = new Thread(r, name);
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    /**
+     * Holds the mapper so that Jackson is only loaded once a response has to be parsed.
+     */
+    private static final class Json {
+        static final ObjectMapper MAPPER = new ObjectMapper();
+    }
+
+    @FunctionalInterface
+    private interface ResponseHandler<T> {
+        T handle(SimpleHttpResponse response) throws IOException;
+    }
+
+    /**
+     * Call counts by outcome and response latency of one kind of GitLab request.
+     */
+    private static final class RequestMetrics {
+        private final Histogram latency;
+        private final Counter ok;
+        private final Counter httpError;
+        private final Counter rateLimited;
+        private final Counter failed;
+        private final Counter retries;
+
+        private RequestMetrics(String operation) {
+            this.latency = Metrics.histogram("gitlab_request_duration_seconds", "Time from sending a GitLab API request to its response headers", "operation", operation);
+            String help = "GitLab API requests by outcome";
+            this.ok = Metrics.counter("gitlab_requests_total", help, "operation", operation, "outcome", "ok");
+            this.httpError = Metrics.counter("gitlab_requests_total", help, "operation", operation, "outcome", "http_error");
+            this.rateLimited = Metrics.counter("gitlab_requests_total", help, "operation", operation, "outcome", "rate_limited");
+            this.failed = Metrics.counter("gitlab_requests_total", help, "operation", operation, "outcome", "failed");
+            this.retries = Metrics.counter("gitlab_retries_total", "GitLab API requests retried after a connection failure or server error", "operation", operation);
+        }
+
+        void completed(int code, long startedAt) {
+            latency.recordSince(startedAt);
+            (code == 429 ? rateLimited : code >= 400 ? httpError : ok).inc();
+        }
+
+        void failed(long startedAt) {
+            latency.recordSince(startedAt);
+            failed.inc();
+        }
+
+        void retried() {
+            retries.inc();
+        }
+    }
+
+    /**
+     * Transport tuning taken from the command line.
+     */
+    static final class HttpSettings {
+        private int maxConnPerRoute = 64;
+        private int maxConnTotal = 256;
+        private int maxStreamsPerConnection = 100;
+        private int connectTimeoutSeconds = 10;
+        private int responseTimeoutSeconds = 60;
+        private int keepAliveSeconds = 30;
+        private HttpVersionPolicy versionPolicy = HttpVersionPolicy.NEGOTIATE;
+        private long artifactMaxBytes = 1024 * 1024;
+        private double tokenRate = 30;
+        private double hostRate = 100;
+        private int rateLimitRetries = 20;
+        private int retryMax = 5;
+        private int retryTriggerMax = 3;
+        private long retryBaseMillis = 500;
+        private long retryMaxMillis = 30_000;
+        private int breakerThreshold = 5;
+        private int breakerCooldownSeconds = 15;
+
+        static HttpSettings defaults() {
+            return new HttpSettings();
+        }
+
+        static HttpSettings from(Config cfg) {
+            HttpSettings settings = new HttpSettings();
+            settings.maxConnPerRoute = cfg.getHttpMaxConnPerRoute();
+            settings.maxConnTotal = Math.max(cfg.getHttpMaxConnTotal(), cfg.getHttpMaxConnPerRoute());
+            settings.maxStreamsPerConnection = cfg.getHttpMaxStreams();
+            settings.connectTimeoutSeconds = cfg.getHttpConnectTimeout();
+            settings.responseTimeoutSeconds = cfg.getHttpResponseTimeout();
+            settings.keepAliveSeconds = cfg.getHttpKeepAlive();
+            settings.artifactMaxBytes = cfg.getArtifactMaxBytes();
+            settings.tokenRate = cfg.getRateLimitPerToken();
+            settings.hostRate = cfg.getRateLimitPerHost();
+            settings.rateLimitRetries = cfg.getRateLimitRetries();
+            settings.retryMax = cfg.getRetryMax();
+            settings.retryTriggerMax = cfg.getRetryTriggerMax();
+            settings.retryBaseMillis = cfg.getRetryBaseMillis();
+            settings.retryMaxMillis = cfg.getRetryMaxMillis();
+            settings.breakerThreshold = cfg.getBreakerThreshold();
+            settings.breakerCooldownSeconds = cfg.getBreakerCooldown();
+            switch (cfg.getHttpVersion()) {
+                case "http1":
+                    settings.versionPolicy = HttpVersionPolicy.FORCE_HTTP_1;
+                    break;
+                case "http2":
+                    settings.versionPolicy = HttpVersionPolicy.FORCE_HTTP_2;
+                    break;
+                default:
+                    settings.versionPolicy = HttpVersionPolicy.NEGOTIATE;
+            }
+            return settings;
+        }
+    }
+}
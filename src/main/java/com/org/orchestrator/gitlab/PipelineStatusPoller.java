@@ -0,0 +1,302 @@
+package com.org.orchestrator.gitlab;
+
+import com.org.orchestrator.events.Events;
+import com.org.orchestrator.metrics.Metrics;
+import com.org.orchestrator.model.PipelineStatusInfo;
+import com.org.orchestrator.util.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shared status poller for every in-flight pipeline of the run.
+ * <p>
+ * Instead of one sleeping thread per pipeline, a single scheduler ticks over all tracked pipelines,
+ * groups the ones that are due by project and access token, and resolves each group with one
+ * {@code /projects/:id/pipelines?updated_after=...} call issued on the async client, so waiting for
+ * responses holds no thread either. Poll intervals adapt per pipeline: fast
+ * right after the trigger and around the project's typical duration, slow in between.
+ * <p>
+ * When a {@link WebhookListener} feeds status changes through {@link #onStatus}, pipelines complete as soon
+ * as GitLab reports them and polling only runs every {@code --webhookFallbackInterval} seconds, to catch
+ * events that were never delivered.
+ */
+public class PipelineStatusPoller implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(PipelineStatusPoller.class);
+
+    private static final long TICK_MILLIS = 250;
+    private static final long FAST_WINDOW_MILLIS = 30_000;
+    private static final long CLOCK_SKEW_MILLIS = 60_000;
+    private static final int BATCH_PAGE_SIZE = 100;
+    private static final double EXPECTED_DURATION_WEIGHT = 0.3;
+    private static final long EARLY_EVENT_TTL_MILLIS = 5 * 60_000;
+
+    private final GitLabAsyncClient gitlab;
+    private final long fastIntervalMillis;
+    private final long slowIntervalMillis;
+    private final long fallbackIntervalMillis;
+    private final ScheduledExecutorService scheduler;
+    private final Map<Long, TrackedPipeline> inFlight = new ConcurrentHashMap<>();
+    private final Map<Long, Long> expectedDurations = new ConcurrentHashMap<>();
+    private final Set<GroupKey> busyGroups = ConcurrentHashMap.newKeySet();
+    private final Map<Long, EarlyEvent> earlyEvents = new ConcurrentHashMap<>();
+
+    public PipelineStatusPoller(GitLabAsyncClient gitlab, Config cfg) {
+        this.gitlab = gitlab;
+        this.slowIntervalMillis = cfg.getPollInterval() * 1000L;
+        this.fastIntervalMillis = Math.min(cfg.getMinPollInterval() * 1000L, slowIntervalMillis);
+        this.fallbackIntervalMillis = cfg.getWebhookPort() > 0 ? cfg.getWebhookFallbackInterval() * 1000L : 0;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(daemonThreads("pipeline-poller"));
+        this.scheduler.scheduleWithFixedDelay(this::tick, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+        Metrics.gauge("orchestrator_pipelines_in_flight", "Triggered pipelines that have not reached a terminal status", this::inFlightCount);
+    }
+
+    /**
+     * Starts tracking a freshly triggered pipeline. The returned future completes once the pipeline
+     * reaches a terminal status, or exceptionally if its status can no longer be fetched.
+     */
+    public CompletableFuture<PipelineStatusInfo> track(long projectId, long pipelineId, String token) {
+        TrackedPipeline tracked = inFlight.computeIfAbsent(pipelineId, id -> new TrackedPipeline(projectId, id, token, fallbackIntervalMillis));
+        log.debug("Tracking pipeline {} for project {} ({} in flight)", pipelineId, projectId, inFlight.size());
+        EarlyEvent early = earlyEvents.remove(pipelineId);
+        if (early != null && early.projectId == projectId) {
+            apply(tracked, early.status, early.receivedAt);
+        }
+        return tracked.future;
+    }
+
+    /**
+     * Applies a status pushed by GitLab. A terminal status for a pipeline that is not tracked yet is kept
+     * for a few minutes, since the event can arrive before the trigger response has been handled.
+     *
+     * @return whether the status belonged to a pipeline of this run
+     */
+    public boolean onStatus(long projectId, long pipelineId, String status) {
+        TrackedPipeline p = inFlight.get(pipelineId);
+        if (p == null || p.projectId != projectId) {
+            if (GitLabClient.isTerminal(status)) {
+                earlyEvents.put(pipelineId, new EarlyEvent(projectId, status, System.currentTimeMillis()));
+            }
+            return false;
+        }
+        if ("running".equalsIgnoreCase(status) || GitLabClient.isTerminal(status)) {
+            apply(p, status, System.currentTimeMillis());
+        }
+        return true;
+    }
+
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    private void tick() {
+        try {
+            long now = System.currentTimeMillis();
+            if (!earlyEvents.isEmpty()) {
+                earlyEvents.values().removeIf(e -> now - e.receivedAt > EARLY_EVENT_TTL_MILLIS);
+            }
+            Map<GroupKey, List<TrackedPipeline>> due = new HashMap<>();
+            for (TrackedPipeline p : inFlight.values()) {
+                if (p.nextPollAt <= now) {
+                    due.computeIfAbsent(new GroupKey(p.projectId, p.token), k -> new ArrayList<>()).add(p);
+                }
+            }
+            due.forEach((group, pipelines) -> {
+                if (busyGroups.add(group)) {
+                    refresh(group, pipelines).whenComplete((v, e) -> busyGroups.remove(group));
+                }
+            });
+        } catch (Exception e) {
+            log.error("Pipeline poller tick failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private CompletableFuture<Void> refresh(GroupKey group, List<TrackedPipeline> pipelines) {
+        CompletableFuture<List<TrackedPipeline>> individually = pipelines.size() > 1
+                ? refreshBatch(group, pipelines)
+                : CompletableFuture.completedFuture(pipelines);
+        return individually.thenCompose(remaining -> CompletableFuture.allOf(remaining.stream()
+                .map(this::refreshOne)
+                .toArray(CompletableFuture[]::new)));
+    }
+
+    private CompletableFuture<Void> refreshOne(TrackedPipeline p) {
+        long requestedAt = System.currentTimeMillis();
+        return gitlab.getPipelineStatus(p.projectId, p.pipelineId, p.token).handle((status, e) -> {
+            if (e != null) {
+                inFlight.remove(p.pipelineId);
+                p.future.completeExceptionally(e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+            } else {
+                apply(p, status.getResult(), requestedAt);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Resolves a group of due pipelines with a single list call. Pipelines absent from the
+     * {@code updated_after} window are unchanged since they were last confirmed. Completes with the
+     * pipelines that could not be resolved from the batch and need an individual fetch.
+     */
+    private CompletableFuture<List<TrackedPipeline>> refreshBatch(GroupKey group, List<TrackedPipeline> pipelines) {
+        long requestedAt = System.currentTimeMillis();
+        long since = pipelines.stream().mapToLong(p -> p.lastConfirmedAt).min().orElse(requestedAt) - CLOCK_SKEW_MILLIS;
+        return gitlab.listPipelines(group.projectId, group.token, Instant.ofEpochMilli(since), BATCH_PAGE_SIZE).handle((updated, e) -> {
+            if (e != null) {
+                log.warn("Batch status fetch failed for project {}, falling back to per-pipeline polling: {}", group.projectId, GitLabAsyncClient.rootMessage(e));
+                return pipelines;
+            }
+            Map<Long, String> byId = new HashMap<>();
+            updated.forEach(s -> byId.put(s.getPipelineId(), s.getResult()));
+            boolean truncated = updated.size() >= BATCH_PAGE_SIZE;
+
+            List<TrackedPipeline> unresolved = new ArrayList<>();
+            for (TrackedPipeline p : pipelines) {
+                String status = byId.get(p.pipelineId);
+                if (status != null) {
+                    apply(p, status, requestedAt);
+                } else if (truncated) {
+                    unresolved.add(p);
+                } else {
+                    apply(p, p.lastStatus, requestedAt);
+                }
+            }
+            log.debug("Resolved {} pipelines of project {} with one batch call ({} need individual fetch)",
+                    pipelines.size() - unresolved.size(), group.projectId, unresolved.size());
+            return unresolved;
+        });
+    }
+
+    private void apply(TrackedPipeline p, String status, long confirmedAt) {
+        long now = System.currentTimeMillis();
+        p.lastConfirmedAt = confirmedAt;
+        if (!Objects.equals(status, p.lastStatus)) {
+            log.info("Pipeline {} for project {} changed status: {} -> {}", p.pipelineId, p.projectId, p.lastStatus, status);
+            Events.statusChanged(p.projectId, p.pipelineId, p.lastStatus, status);
+            p.lastStatus = status;
+            if ("running".equalsIgnoreCase(status) && p.firstRunningAt == null) {
+                p.firstRunningAt = Instant.ofEpochMilli(now);
+            }
+        } else {
+            log.debug("Polling pipeline {} for project {}. Current status: {}", p.pipelineId, p.projectId, status);
+            Events.polled(p.projectId, p.pipelineId, status);
+        }
+        if (status != null && GitLabClient.isTerminal(status)) {
+            if (inFlight.remove(p.pipelineId, p)) {
+                recordDuration(p.projectId, now - p.triggeredAt);
+            }
+            p.future.complete(new PipelineStatusInfo(p.pipelineId, status, p.firstRunningAt, Instant.ofEpochMilli(now)));
+            return;
+        }
+        p.nextPollAt = now + nextInterval(p, now);
+    }
+
+    /**
+     * Fast right after the trigger (quick failures, validation errors) and once the pipeline nears
+     * the project's typical duration; slow while it is most likely still running.
+     */
+    private long nextInterval(TrackedPipeline p, long now) {
+        if (fallbackIntervalMillis > 0) {
+            return fallbackIntervalMillis;
+        }
+        long elapsed = now - p.triggeredAt;
+        if (elapsed < FAST_WINDOW_MILLIS) {
+            return fastIntervalMillis;
+        }
+        Long expected = expectedDurations.get(p.projectId);
+        if (expected != null && elapsed >= expected * 0.8 && elapsed <= expected * 1.5) {
+            return fastIntervalMillis;
+        }
+        return slowIntervalMillis;
+    }
+
+    private void recordDuration(long projectId, long durationMillis) {
+        expectedDurations.merge(projectId, durationMillis,
+                (old, latest) -> Math.round(old * (1 - EXPECTED_DURATION_WEIGHT) + latest * EXPECTED_DURATION_WEIGHT));
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        inFlight.values().forEach(p -> p.future.completeExceptionally(new IllegalStateException("Pipeline poller was shut down")));
+        inFlight.clear();
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        return r -> {
+            Thread t = new Thread(r, name);
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    private static final class TrackedPipeline {
+        private final long projectId;
+        private final long pipelineId;
+        private final String token;
+        private final long triggeredAt;
+        private final CompletableFuture<PipelineStatusInfo> future = new CompletableFuture<>();
+        private volatile String lastStatus;
+        private volatile Instant firstRunningAt;
+        private volatile long lastConfirmedAt;
+        private volatile long nextPollAt;
+
+        private TrackedPipeline(long projectId, long pipelineId, String token, long firstPollDelayMillis) {
+            this.projectId = projectId;
+            this.pipelineId = pipelineId;
+            this.token = token;
+            this.triggeredAt = System.currentTimeMillis();
+            this.lastConfirmedAt = triggeredAt;
+            this.nextPollAt = triggeredAt + firstPollDelayMillis;
+        }
+    }
+
+    private static final class EarlyEvent {
+        private final long projectId;
+        private final String status;
+        private final long receivedAt;
+
+        private EarlyEvent(long projectId, String status, long receivedAt) {
+            this.projectId = projectId;
+            this.status = status;
+            this.receivedAt = receivedAt;
+        }
+    }
+
+    private static final class GroupKey {
+        private final long projectId;
+        private final String token;
+
+        private GroupKey(long projectId, String token) {
+            this.projectId = projectId;
+            this.token = token;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof GroupKey)) return false;
+            GroupKey other = (GroupKey) o;
+            return projectId == other.projectId && Objects.equals(token, other.token);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(projectId, token);
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package com.org.orchestrator.gitlab;
+
+import com.org.orchestrator.metrics.Histogram;
+import com.org.orchestrator.metrics.Metrics;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Client-side rate limiting for GitLab API calls.
+ * <p>
+ * Every request needs a permit from the token bucket of its access token and from the bucket of the GitLab
+ * host. Requests that cannot get one wait in a queue ordered by {@link Priority}, so triggers and artifact
+ * downloads overtake status polls. The {@code RateLimit-*} headers of each response re-tune the token's
+ * bucket to pace the remaining quota over the current window, and a 429 puts the request back in the
+ * queue until {@code Retry-After} instead of failing it.
+ */
+class RequestGovernor implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(RequestGovernor.class);
+
+    private static final double MIN_RATE = 0.5; // requests per second
+    private static final long DEFAULT_BACKOFF_MILLIS = 1000;
+    private static final Histogram QUEUE_WAIT = Metrics.histogram("gitlab_governor_wait_seconds", "Time GitLab requests waited for a rate limit permit");
+
+    enum Priority {
+        TRIGGER, ARTIFACT, POLL
+    }
+
+    private final double tokenRate;
+    private final double hostRate;
+    private final int maxRetries;
+    private final Map<String, Bucket> tokenBuckets = new HashMap<>();
+    private final Map<String, Bucket> hostBuckets = new HashMap<>();
+    private final PriorityQueue<Call> queue = new PriorityQueue<>(
+            Comparator.comparing((Call c) -> c.priority).thenComparingLong(c -> c.seq));
+    private final ScheduledExecutorService dispatcher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "gitlab-governor");
+        t.setDaemon(true);
+        return t;
+    });
+    private ScheduledFuture<?> nextDrain;
+    private long nextDrainAt = Long.MAX_VALUE;
+    private long seq;
+
+    /**
+     * @param tokenRate  initial requests per second allowed per access token, until GitLab reports its limits
+     * @param hostRate   requests per second allowed to one GitLab host across all tokens
+     * @param maxRetries how often a request answered with 429 is queued again before the 429 is returned
+     */
+    RequestGovernor(double tokenRate, double hostRate, int maxRetries) {
+        this.tokenRate = tokenRate;
+        this.hostRate = hostRate;
+        this.maxRetries = maxRetries;
+        Metrics.gauge("gitlab_governor_queued_requests", "GitLab requests waiting for a rate limit permit", this::queued);
+    }
+
+    /**
+     * Runs {@code call} once both buckets grant a permit. The call must report its response through
+     * {@link Permit#retryLater(HttpResponse)}.
+     */
+    void execute(String host, String token, Priority priority, Consumer<Permit> call) {
+        enqueue(new Call(host, token == null ? "" : token, priority, call));
+    }
+
+    private synchronized void enqueue(Call call) {
+        call.seq = seq++;
+        call.enqueuedAt = System.nanoTime();
+        queue.add(call);
+        scheduleDrain(0);
+    }
+
+    private void scheduleDrain(long delayNanos) {
+        long at = System.nanoTime() + delayNanos;
+        if (nextDrain != null && !nextDrain.isDone() && nextDrainAt <= at) {
+            return;
+        }
+        if (nextDrain != null) {
+            nextDrain.cancel(false);
+        }
+        nextDrainAt = at;
+        nextDrain = dispatcher.schedule(this::drain, delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void drain() {
+        List<Call> ready = new ArrayList<>();
+        synchronized (this) {
+            nextDrainAt = Long.MAX_VALUE;
+            long now = System.nanoTime();
+            long wait = Long.MAX_VALUE;
+            List<Call> waiting = new ArrayList<>();
+            while (!queue.isEmpty()) {
+                Call call = queue.poll();
+                Bucket token = tokenBuckets.computeIfAbsent(call.token, k -> new Bucket(tokenRate));
+                Bucket host = hostBuckets.computeIfAbsent(call.host, k -> new Bucket(hostRate));
+                long tokenWait = token.waitNanos(now);
+                long hostWait = host.waitNanos(now);
+                if (tokenWait == 0 && hostWait == 0) {
+                    token.take();
+                    host.take();
+                    QUEUE_WAIT.record(now - call.enqueuedAt);
+                    ready.add(call);
+                } else {
+                    waiting.add(call);
+                    wait = Math.min(wait, Math.max(tokenWait, hostWait));
+                }
+            }
+            queue.addAll(waiting);
+            if (!queue.isEmpty()) {
+                log.debug("{} GitLab requests waiting for rate limit permits", queue.size());
+                scheduleDrain(Math.max(wait, TimeUnit.MILLISECONDS.toNanos(1)));
+            }
+        }
+        for (Call call : ready) {
+            try {
+                call.run.accept(new Permit(call));
+            } catch (RuntimeException e) {
+                log.error("GitLab request could not be started: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Adjusts the token's bucket from the response's rate limit headers.
+     */
+    private synchronized void observe(Call call, HttpResponse response) {
+        Bucket bucket = tokenBuckets.get(call.token);
+        if (bucket == null) {
+            return;
+        }
+        long limit = headerLong(response, "RateLimit-Limit", -1);
+        long remaining = headerLong(response, "RateLimit-Remaining", -1);
+        long resetEpoch = headerLong(response, "RateLimit-Reset", -1);
+        double maxRate = limit > 0 ? limit / 60.0 : tokenRate;
+        if (remaining >= 0 && resetEpoch > 0) {
+            long secondsLeft = Math.max(1, resetEpoch - System.currentTimeMillis() / 1000);
+            if (remaining == 0) {
+                bucket.blockFor(TimeUnit.SECONDS.toNanos(secondsLeft));
+            }
+            bucket.setRate(Math.max(MIN_RATE, Math.min(maxRate, (double) remaining / secondsLeft)));
+        } else if (limit > 0) {
+            bucket.setRate(Math.max(MIN_RATE, maxRate));
+        }
+        if (response.getCode() == 429) {
+            long retryAfter = headerLong(response, "Retry-After", -1);
+            long backoffNanos = retryAfter >= 0
+                    ? TimeUnit.SECONDS.toNanos(retryAfter)
+                    : resetEpoch > 0
+                    ? TimeUnit.SECONDS.toNanos(Math.max(1, resetEpoch - System.currentTimeMillis() / 1000))
+                    : TimeUnit.MILLISECONDS.toNanos(DEFAULT_BACKOFF_MILLIS);
+            bucket.blockFor(backoffNanos);
+            bucket.setRate(Math.max(MIN_RATE, bucket.rate / 2));
+        }
+    }
+
+    private static long headerLong(HttpResponse response, String name, long fallback) {
+        Header header = response.getFirstHeader(name);
+        if (header == null) {
+            return fallback;
+        }
+        try {
+            return Long.parseLong(header.getValue().trim());
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    synchronized int queued() {
+        return queue.size();
+    }
+
+    @Override
+    public void close() {
+        dispatcher.shutdownNow();
+    }
+
+    /**
+     * Handed to a dispatched call to report the response it received.
+     */
+    final class Permit {
+        private final Call call;
+
+        private Permit(Call call) {
+            this.call = call;
+        }
+
+        /**
+         * Feeds the response headers back into the buckets. Returns {@code true} when the response was a 429
+         * and the call has been queued to run again, in which case the caller must ignore the response.
+         */
+        boolean retryLater(HttpResponse response) {
+            observe(call, response);
+            if (response.getCode() != 429 || call.attempts >= maxRetries) {
+                return false;
+            }
+            call.attempts++;
+            log.warn("GitLab rate limit hit ({} request, attempt {}), queueing it again", call.priority, call.attempts);
+            enqueue(call);
+            return true;
+        }
+    }
+
+    private static final class Call {
+        private final String host;
+        private final String token;
+        private final Priority priority;
+        private final Consumer<Permit> run;
+        private long seq;
+        private long enqueuedAt;
+        private int attempts;
+
+        private Call(String host, String token, Priority priority, Consumer<Permit> run) {
+            this.host = host;
+            this.token = token;
+            this.priority = priority;
+            this.run = run;
+        }
+    }
+
+    /**
+     * Token bucket holding one second's worth of requests.
+     */
+    private static final class Bucket {
+        private double rate;
+        private double tokens;
+        private long refilledAt = System.nanoTime();
+        private long blockedUntil = refilledAt;
+
+        private Bucket(double rate) {
+            this.rate = rate;
+            this.tokens = Math.max(1, rate);
+        }
+
+        private void refill(long now) {
+            tokens = Math.min(Math.max(1, rate), tokens + (now - refilledAt) * rate / 1e9);
+            refilledAt = now;
+        }
+
+        long waitNanos(long now) {
+            if (blockedUntil - now > 0) {
+                return blockedUntil - now;
+            }
+            refill(now);
+            return tokens >= 1 ? 0 : (long) ((1 - tokens) / rate * 1e9);
+        }
+
+        void take() {
+            tokens -= 1;
+        }
+
+        void setRate(double rate) {
+            refill(System.nanoTime());
+            this.rate = rate;
+        }
+
+        void blockFor(long nanos) {
+            long until = System.nanoTime() + nanos;
+            if (until - blockedUntil > 0) {
+                blockedUntil = until;
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.org.orchestrator.gitlab;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * How often and how far apart failed GitLab requests are retried. Reads are retried freely; a trigger is
+ * only retried after checking that the failed attempt did not create a pipeline after all.
+ * <p>
+ * Waits grow exponentially from {@code baseMillis} up to {@code maxMillis}, each drawn at random from the
+ * upper half of its range, so flows that failed together do not retry in lockstep.
+ */
+final class RetryPolicy {
+    private final int maxRetries;
+    private final int maxTriggerRetries;
+    private final long baseMillis;
+    private final long maxMillis;
+
+    RetryPolicy(int maxRetries, int maxTriggerRetries, long baseMillis, long maxMillis) {
+        this.maxRetries = maxRetries;
+        this.maxTriggerRetries = maxTriggerRetries;
+        this.baseMillis = Math.max(1, baseMillis);
+        this.maxMillis = Math.max(this.baseMillis, maxMillis);
+    }
+
+    int getMaxRetries() {
+        return maxRetries;
+    }
+
+    int getMaxTriggerRetries() {
+        return maxTriggerRetries;
+    }
+
+    /**
+     * @param attempt number of retries already made
+     */
+    long backoffMillis(int attempt) {
+        long cap = Math.min(maxMillis, baseMillis << Math.min(attempt, 20));
+        return cap / 2 + ThreadLocalRandom.current().nextLong(cap / 2 + 1);
+    }
+
+    static boolean isTransient(Throwable e) {
+        return unwrap(e) instanceof TransientGitLabException;
+    }
+
+    static Throwable unwrap(Throwable e) {
+        Throwable cause = e;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+}
@@ -0,0 +1,214 @@
+package com.org.orchestrator.gitlab;
+
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.nio.AsyncResponseConsumer;
+import org.apache.hc.core5.http.nio.CapacityChannel;
+import org.apache.hc.core5.http.protocol.HttpContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Async response consumer that exposes the response body as a blocking {@link InputStream} to a parser
+ * running on a separate executor, so large bodies (artifact archives) are parsed while they stream in
+ * instead of being buffered in memory. The I/O reactor only lets {@value #WINDOW_BYTES} bytes run ahead
+ * of the parser. When the parser closes the stream before the body ends, the exchange is aborted so
+ * the rest of the body is never transferred.
+ */
+class StreamingResponseConsumer<T> implements AsyncResponseConsumer<Integer> {
+
+    interface BodyParser<T> {
+        T parse(HttpResponse response, InputStream body) throws IOException;
+    }
+
+    private static final int WINDOW_BYTES = 256 * 1024;
+    private static final byte[] END_OF_STREAM = new byte[0];
+
+    private final BodyParser<T> parser;
+    private final Executor parserExecutor;
+    private final CompletableFuture<T> result = new CompletableFuture<>();
+    private final BlockingQueue<byte[]> chunks = new LinkedBlockingQueue<>();
+    private final AtomicInteger buffered = new AtomicInteger();
+    private volatile CapacityChannel capacityChannel;
+    private volatile FutureCallback<Integer> callback;
+    private volatile int statusCode;
+    private volatile Exception failure;
+    private volatile boolean abandoned;
+    private volatile boolean ended;
+    private volatile Future<?> exchange;
+
+    StreamingResponseConsumer(BodyParser<T> parser, Executor parserExecutor) {
+        this.parser = parser;
+        this.parserExecutor = parserExecutor;
+    }
+
+    /**
+     * Completes with the parser's result, which may be available before the body has been fully received.
+     */
+    CompletableFuture<T> result() {
+        return result;
+    }
+
+    /**
+     * Registers the running exchange so it can be cancelled once the parser no longer needs the body.
+     */
+    void attach(Future<?> exchange) {
+        this.exchange = exchange;
+        if (abandoned && !ended) {
+            exchange.cancel(true);
+        }
+    }
+
+    @Override
+    public void consumeResponse(HttpResponse response, EntityDetails entityDetails, HttpContext context, FutureCallback<Integer> callback) {
+        parserExecutor.execute(() -> {
+            try (InputStream body = new ChunkInputStream()) {
+                result.complete(parser.parse(response, body));
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        });
+        if (entityDetails == null) {
+            ended = true;
+            chunks.add(END_OF_STREAM);
+            callback.completed(response.getCode());
+        } else {
+            this.callback = callback;
+            this.statusCode = response.getCode();
+        }
+    }
+
+    @Override
+    public void informationResponse(HttpResponse response, HttpContext context) {
+    }
+
+    @Override
+    public void updateCapacity(CapacityChannel capacityChannel) throws IOException {
+        this.capacityChannel = capacityChannel;
+        int available = WINDOW_BYTES - buffered.get();
+        if (available > 0) {
+            capacityChannel.update(available);
+        }
+    }
+
+    @Override
+    public void consume(ByteBuffer src) throws IOException {
+        if (abandoned) {
+            // The parser is done; drain the rest of the body without holding it.
+            int skipped = src.remaining();
+            src.position(src.limit());
+            CapacityChannel channel = capacityChannel;
+            if (channel != null) {
+                channel.update(skipped);
+            }
+            return;
+        }
+        byte[] chunk = new byte[src.remaining()];
+        src.get(chunk);
+        buffered.addAndGet(chunk.length);
+        chunks.add(chunk);
+    }
+
+    @Override
+    public void streamEnd(List<? extends Header> trailers) {
+        ended = true;
+        chunks.add(END_OF_STREAM);
+        FutureCallback<Integer> cb = callback;
+        if (cb != null) {
+            cb.completed(statusCode);
+        }
+    }
+
+    @Override
+    public void failed(Exception cause) {
+        ended = true;
+        failure = cause;
+        chunks.add(END_OF_STREAM);
+        result.completeExceptionally(cause);
+    }
+
+    @Override
+    public void releaseResources() {
+    }
+
+    private final class ChunkInputStream extends InputStream {
+        private byte[] current = new byte[0];
+        private int pos;
+        private boolean eof;
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            int n = read(one, 0, 1);
+            return n == -1 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            while (pos >= current.length) {
+                if (eof || !nextChunk()) {
+                    return -1;
+                }
+            }
+            int n = Math.min(len, current.length - pos);
+            System.arraycopy(current, pos, b, off, n);
+            pos += n;
+            return n;
+        }
+
+        private boolean nextChunk() throws IOException {
+            byte[] chunk;
+            try {
+                chunk = chunks.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while streaming response body", e);
+            }
+            if (chunk == END_OF_STREAM) {
+                eof = true;
+                if (failure != null) {
+                    throw new IOException("Response stream failed: " + failure.getMessage(), failure);
+                }
+                return false;
+            }
+            current = chunk;
+            pos = 0;
+            buffered.addAndGet(-chunk.length);
+            CapacityChannel channel = capacityChannel;
+            if (channel != null) {
+                channel.update(chunk.length);
+            }
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            abandoned = true;
+            chunks.clear();
+            Future<?> running = exchange;
+            if (!ended && running != null) {
+                running.cancel(true);
+                return;
+            }
+            int released = buffered.getAndSet(0);
+            CapacityChannel channel = capacityChannel;
+            if (channel != null && released > 0) {
+                channel.update(released);
+            }
+        }
+    }
+}
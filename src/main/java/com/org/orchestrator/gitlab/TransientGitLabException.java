@@ -0,0 +1,19 @@
+package com.org.orchestrator.gitlab;
+
+import java.io.IOException;
+
+/**
+ * A GitLab request that failed in a way worth retrying: the connection failed or timed out, or GitLab
+ * answered with a server error.
+ */
+class TransientGitLabException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    TransientGitLabException(String message) {
+        super(message);
+    }
+
+    TransientGitLabException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,149 @@
+package com.org.orchestrator.gitlab;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.org.orchestrator.metrics.Counter;
+import com.org.orchestrator.metrics.Metrics;
+import com.org.orchestrator.util.BoundedInputStream;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Receives GitLab pipeline and job webhooks at {@code /webhook} and hands the statuses to the
+ * {@link PipelineStatusPoller}, so a pipeline completes as soon as GitLab reports it instead of at the
+ * next poll.
+ * <p>
+ * Requests must carry the configured secret in {@code X-Gitlab-Token}. Recorded payloads can be replayed
+ * with e.g. {@code curl -H 'X-Gitlab-Token: secret' --data @pipeline-event.json localhost:8090/webhook}.
+ */
+public class WebhookListener implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(WebhookListener.class);
+
+    private static final long MAX_BODY_BYTES = 1024 * 1024;
+
+    private static final Counter APPLIED = events("applied");
+    private static final Counter IGNORED = events("ignored");
+    private static final Counter REJECTED = events("rejected");
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final byte[] secret;
+    private final PipelineStatusPoller poller;
+    private final ObjectMapper jsonMapper = new ObjectMapper();
+
+    public WebhookListener(int port, String secret, PipelineStatusPoller poller) throws IOException {
+        this.secret = secret == null || secret.isEmpty() ? null : secret.getBytes(StandardCharsets.UTF_8);
+        this.poller = poller;
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "gitlab-webhooks");
+            t.setDaemon(true);
+            return t;
+        });
+        server.createContext("/webhook", this::handle);
+        server.setExecutor(executor);
+        server.start();
+        if (this.secret == null) {
+            log.warn("No --webhookSecret configured; webhook events will be accepted without verification.");
+        }
+        log.info("Listening for GitLab webhooks on http://localhost:{}/webhook", server.getAddress().getPort());
+    }
+
+    private static Counter events(String outcome) {
+        return Metrics.counter("orchestrator_webhook_events_total", "GitLab webhook events received", "outcome", outcome);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                reject(exchange, 405);
+                return;
+            }
+            if (!authorized(exchange.getRequestHeaders().getFirst("X-Gitlab-Token"))) {
+                REJECTED.inc();
+                log.warn("Rejected webhook from {}: invalid X-Gitlab-Token", exchange.getRemoteAddress());
+                reject(exchange, 401);
+                return;
+            }
+            JsonNode event;
+            try (InputStream body = new BoundedInputStream(exchange.getRequestBody(), MAX_BODY_BYTES)) {
+                event = jsonMapper.readTree(body);
+            } catch (IOException e) {
+                REJECTED.inc();
+                log.warn("Rejected malformed webhook payload: {}", e.getMessage());
+                exchange.sendResponseHeaders(400, -1);
+                return;
+            }
+            if (dispatch(event)) {
+                APPLIED.inc();
+            } else {
+                IGNORED.inc();
+            }
+            exchange.sendResponseHeaders(200, -1);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Reads what is left of the request body before answering, since the server drops a connection whose
+     * request was not read to the end and a client reusing it then fails. A body over the size limit is not
+     * read; the connection is closed instead.
+     */
+    private static void reject(HttpExchange exchange, int code) throws IOException {
+        try (InputStream body = new BoundedInputStream(exchange.getRequestBody(), MAX_BODY_BYTES)) {
+            body.transferTo(OutputStream.nullOutputStream());
+        } catch (IOException e) {
+            exchange.getResponseHeaders().set("Connection", "close");
+        }
+        exchange.sendResponseHeaders(code, -1);
+    }
+
+    private boolean authorized(String token) {
+        return secret == null || (token != null && MessageDigest.isEqual(secret, token.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Pipeline events carry the pipeline's status; job ("build") events only tell that the pipeline is
+     * running, which is kept for the timings.
+     */
+    private boolean dispatch(JsonNode event) {
+        if (event == null) {
+            return false;
+        }
+        String kind = event.path("object_kind").asText();
+        if ("pipeline".equals(kind)) {
+            JsonNode attributes = event.path("object_attributes");
+            long pipelineId = attributes.path("id").asLong(-1);
+            String status = attributes.path("status").asText(null);
+            long projectId = event.path("project").path("id").asLong(-1);
+            log.debug("Webhook: pipeline {} of project {} is {}", pipelineId, projectId, status);
+            return pipelineId > 0 && status != null && poller.onStatus(projectId, pipelineId, status);
+        }
+        if ("build".equals(kind)) {
+            long pipelineId = event.path("pipeline_id").asLong(-1);
+            long projectId = event.path("project_id").asLong(-1);
+            String jobStatus = event.path("build_status").asText(null);
+            log.debug("Webhook: job {} of pipeline {} is {}", event.path("build_name").asText(), pipelineId, jobStatus);
+            return pipelineId > 0 && "running".equals(jobStatus) && poller.onStatus(projectId, pipelineId, "running");
+        }
+        return false;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
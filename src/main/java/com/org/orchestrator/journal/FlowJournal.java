@@ -0,0 +1,272 @@
+package com.org.orchestrator.journal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only checkpoint journal of one CSV flow.
+ * <p>
+ * One tab-separated record per line: a header naming the CSV and its fingerprint, then trigger, completion
+ * and artifact events keyed by row position. Trigger records are forced to disk before the flow moves on,
+ * since losing one would re-trigger a running pipeline on resume; everything else is flushed in batches.
+ * Concurrent writers waiting for durability share a single {@code fsync} (group commit).
+ */
+public class FlowJournal implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(FlowJournal.class);
+
+    static final String HEADER = "H";
+    static final String TRIGGERED = "T";
+    static final String COMPLETED = "C";
+    static final String ARTIFACT = "A";
+    static final int FORMAT_VERSION = 1;
+    /** Status prefix of a pipeline the orchestrator cancelled because its row exceeded {@code --rowTimeout}. */
+    public static final String TIMED_OUT = "TIMED OUT: ";
+
+    private static final ScheduledExecutorService FLUSHER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "journal-flusher");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final Path file;
+    private final FileChannel channel;
+    private final StringBuilder pending = new StringBuilder();
+    private final Object syncLock = new Object();
+    private final ScheduledFuture<?> flushTask;
+    private long appendedSeq;
+    private volatile long syncedSeq;
+    private volatile boolean broken;
+
+    private FlowJournal(Path file, FileChannel channel, long syncMillis) {
+        this.file = file;
+        this.channel = channel;
+        this.flushTask = FLUSHER.scheduleWithFixedDelay(this::flushQuietly, syncMillis, syncMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Starts a new journal for {@code csvPath} in {@code journalDir}.
+     */
+    public static FlowJournal create(Path journalDir, Path csvPath, String runId, long syncMillis) throws IOException {
+        Files.createDirectories(journalDir);
+        Path file = journalDir.resolve(csvPath.getFileName() + "-" + runId + ".journal");
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        FlowJournal journal = new FlowJournal(file, channel, syncMillis);
+        journal.append(true, HEADER, String.valueOf(FORMAT_VERSION), csvPath.toAbsolutePath().toString(), fingerprint(csvPath));
+        log.info("Journaling flow {} to {}", csvPath, file);
+        return journal;
+    }
+
+    /**
+     * Reopens an existing journal to continue appending after a resume. A torn last record, which
+     * {@link JournalReplay} ignored, is cut off first so the next record does not run into it.
+     */
+    public static FlowJournal reopen(Path file, long syncMillis) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long end = endOfLastRecord(channel);
+            if (end < channel.size()) {
+                log.warn("Cutting a partially written last record off journal {}", file);
+                channel.truncate(end);
+                channel.force(false);
+            }
+            channel.position(end);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return new FlowJournal(file, channel, syncMillis);
+    }
+
+    private static long endOfLastRecord(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        long end = channel.size();
+        while (end > 0) {
+            long start = Math.max(0, end - buffer.capacity());
+            buffer.clear().limit((int) (end - start));
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, start + buffer.position()) < 0) {
+                    break;
+                }
+            }
+            for (int i = buffer.position() - 1; i >= 0; i--) {
+                if (buffer.get(i) == '\n') {
+                    return start + i + 1;
+                }
+            }
+            end = start;
+        }
+        return 0;
+    }
+
+    /**
+     * CRC32 and size of the CSV contents; resuming against a modified CSV would misalign row positions.
+     */
+    public static String fingerprint(Path csvPath) throws IOException {
+        CRC32 crc = new CRC32();
+        long size = 0;
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(csvPath)) {
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                crc.update(buffer, 0, n);
+                size += n;
+            }
+        }
+        return Long.toHexString(crc.getValue()) + ":" + size;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public void recordTriggered(int row, long pipelineId) {
+        append(true, TRIGGERED, String.valueOf(row), String.valueOf(pipelineId));
+    }
+
+    public void recordCompleted(int row, long pipelineId, String status) {
+        append(false, COMPLETED, String.valueOf(row), String.valueOf(pipelineId), status);
+    }
+
+    /**
+     * Records a pipeline cancelled because its row exceeded {@code --rowTimeout}. Unlike an {@code ERROR}
+     * status, after which the pipeline may still be running and is re-attached, resuming triggers the row again.
+     */
+    public void recordTimedOut(int row, long pipelineId, String reason) {
+        recordCompleted(row, pipelineId, TIMED_OUT + reason);
+    }
+
+    public void recordArtifact(int row, Map<String, String> vars) {
+        String[] fields = new String[2 + vars.size() * 2];
+        fields[0] = ARTIFACT;
+        fields[1] = String.valueOf(row);
+        int i = 2;
+        for (Map.Entry<String, String> e : vars.entrySet()) {
+            fields[i++] = e.getKey();
+            fields[i++] = e.getValue();
+        }
+        append(false, fields);
+    }
+
+    private void append(boolean durable, String... fields) {
+        if (broken) {
+            return;
+        }
+        long seq;
+        synchronized (this) {
+            for (int i = 0; i < fields.length; i++) {
+                if (i > 0) {
+                    pending.append('\t');
+                }
+                escape(fields[i], pending);
+            }
+            pending.append('\n');
+            seq = ++appendedSeq;
+        }
+        if (durable) {
+            sync(seq);
+        }
+    }
+
+    private void sync(long seq) {
+        synchronized (syncLock) {
+            if (syncedSeq >= seq || broken) {
+                return;
+            }
+            String batch;
+            long upTo;
+            synchronized (this) {
+                batch = pending.toString();
+                pending.setLength(0);
+                upTo = appendedSeq;
+            }
+            try {
+                ByteBuffer buffer = ByteBuffer.wrap(batch.getBytes(StandardCharsets.UTF_8));
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+                syncedSeq = upTo;
+            } catch (IOException e) {
+                broken = true;
+                log.error("Journal {} could not be written, checkpointing is disabled for this flow: {}", file, e.getMessage());
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        long seq;
+        synchronized (this) {
+            seq = appendedSeq;
+        }
+        sync(seq);
+    }
+
+    @Override
+    public void close() {
+        flushTask.cancel(false);
+        flushQuietly();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.warn("Failed to close journal {}: {}", file, e.getMessage());
+        }
+    }
+
+    private static void escape(String value, StringBuilder out) {
+        if (value == null) {
+            out.append("\\0");
+            return;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\': out.append("\\\\"); break;
+                case '\t': out.append("\\t"); break;
+                case '\n': out.append("\\n"); break;
+                case '\r': out.append("\\r"); break;
+                default: out.append(c);
+            }
+        }
+    }
+
+    static String unescape(String value) {
+        if (value.indexOf('\\') < 0) {
+            return value;
+        }
+        if (value.equals("\\0")) {
+            return null;
+        }
+        StringBuilder out = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                char next = value.charAt(++i);
+                switch (next) {
+                    case 't': out.append('\t'); break;
+                    case 'n': out.append('\n'); break;
+                    case 'r': out.append('\r'); break;
+                    default: out.append(next);
+                }
+            } else {
+                out.append(c);
+            }
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,142 @@
+package com.org.orchestrator.journal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * State of a flow rebuilt from its {@link FlowJournal}, in a single sequential pass over the file.
+ * A torn last record (the JVM died mid-write) is ignored.
+ */
+public class JournalReplay {
+    private static final Logger log = LoggerFactory.getLogger(JournalReplay.class);
+
+    private final Path journalFile;
+    private Path csvPath;
+    private String fingerprint;
+    private final Map<Integer, RowState> rows = new HashMap<>();
+
+    private JournalReplay(Path journalFile) {
+        this.journalFile = journalFile;
+    }
+
+    public static JournalReplay read(Path journalFile) throws IOException {
+        JournalReplay replay = new JournalReplay(journalFile);
+        String content = Files.readString(journalFile, StandardCharsets.UTF_8);
+        int end = content.lastIndexOf('\n');
+        if (end < content.length() - 1) {
+            log.warn("Ignoring a partially written last record in journal {}", journalFile);
+        }
+        try (BufferedReader reader = new BufferedReader(new StringReader(content.substring(0, end + 1)))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    replay.apply(line.split("\t", -1));
+                }
+            }
+        }
+        if (replay.csvPath == null) {
+            throw new IOException("Journal " + journalFile + " has no header record");
+        }
+        return replay;
+    }
+
+    private void apply(String[] fields) {
+        switch (fields[0]) {
+            case FlowJournal.HEADER:
+                csvPath = Paths.get(FlowJournal.unescape(fields[2]));
+                fingerprint = fields[3];
+                break;
+            case FlowJournal.TRIGGERED: {
+                RowState state = new RowState(Long.parseLong(fields[2]));
+                rows.put(Integer.parseInt(fields[1]), state);
+                break;
+            }
+            case FlowJournal.COMPLETED: {
+                RowState state = rows.get(Integer.parseInt(fields[1]));
+                if (state != null && state.pipelineId == Long.parseLong(fields[2])) {
+                    state.status = FlowJournal.unescape(fields[3]);
+                }
+                break;
+            }
+            case FlowJournal.ARTIFACT: {
+                RowState state = rows.get(Integer.parseInt(fields[1]));
+                if (state != null) {
+                    Map<String, String> vars = new HashMap<>();
+                    for (int i = 2; i + 1 < fields.length; i += 2) {
+                        vars.put(FlowJournal.unescape(fields[i]), FlowJournal.unescape(fields[i + 1]));
+                    }
+                    state.outputs = vars;
+                }
+                break;
+            }
+            default:
+                log.warn("Skipping unknown record type '{}' in journal {}", fields[0], journalFile);
+        }
+    }
+
+    public Path getJournalFile() {
+        return journalFile;
+    }
+
+    public Path getCsvPath() {
+        return csvPath;
+    }
+
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Latest recorded attempt of the row at {@code index}, or {@code null} if it was never triggered.
+     */
+    public RowState row(int index) {
+        return rows.get(index);
+    }
+
+    public static class RowState {
+        private final long pipelineId;
+        private String status;
+        private Map<String, String> outputs;
+
+        private RowState(long pipelineId) {
+            this.pipelineId = pipelineId;
+        }
+
+        public long getPipelineId() {
+            return pipelineId;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+
+        public Map<String, String> getOutputs() {
+            return outputs == null ? Collections.emptyMap() : outputs;
+        }
+
+        /** Finished successfully and its output.env was recorded; nothing left to do for the row. */
+        public boolean isDone() {
+            return "success".equalsIgnoreCase(status) && outputs != null;
+        }
+
+        /**
+         * Triggered but without a known final outcome: never completed, interrupted by an orchestrator-side
+         * error, or succeeded before its output.env was recorded. The pipeline is re-attached, not re-triggered.
+         * A pipeline cancelled for its row's timeout ({@link FlowJournal#TIMED_OUT}) is not in flight.
+         */
+        public boolean isInFlight() {
+            return status == null || status.startsWith("ERROR") || ("success".equalsIgnoreCase(status) && outputs == null);
+        }
+    }
+}
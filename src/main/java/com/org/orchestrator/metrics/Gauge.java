@@ -0,0 +1,29 @@
+package com.org.orchestrator.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Value that goes up and down, either maintained with {@link #inc()}/{@link #dec()} or read from a
+ * supplier when the metrics are scraped.
+ */
+public final class Gauge {
+    private final LongAdder value = new LongAdder();
+    private final LongSupplier supplier;
+
+    Gauge(LongSupplier supplier) {
+        this.supplier = supplier;
+    }
+
+    public void inc() {
+        value.increment();
+    }
+
+    public void dec() {
+        value.decrement();
+    }
+
+    public long get() {
+        return supplier != null ? supplier.getAsLong() : value.sum();
+    }
+}
@@ -0,0 +1,137 @@
+package com.org.orchestrator.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Process-wide metrics registry rendered in the Prometheus text exposition format.
+ * <p>
+ * Look metrics up once and keep the reference; registration builds label strings, recording does not.
+ * Histograms are exported as summaries with p50/p90/p99/p99.9 quantiles in seconds.
+ */
+public final class Metrics {
+    private static final Logger log = LoggerFactory.getLogger(Metrics.class);
+
+    private static final String[] QUANTILES = {"0.5", "0.9", "0.99", "0.999"};
+    private static final Map<String, Family> FAMILIES = new ConcurrentSkipListMap<>();
+
+    private Metrics() {
+    }
+
+    /**
+     * @param labels alternating label names and values
+     */
+    public static Counter counter(String name, String help, String... labels) {
+        return (Counter) family(name, help, "counter").metrics.computeIfAbsent(labelString(labels), k -> new Counter());
+    }
+
+    public static Gauge gauge(String name, String help, String... labels) {
+        return (Gauge) family(name, help, "gauge").metrics.computeIfAbsent(labelString(labels), k -> new Gauge(null));
+    }
+
+    /**
+     * Registers a gauge that reads {@code supplier} on every scrape, replacing an earlier one with the same labels.
+     */
+    public static void gauge(String name, String help, LongSupplier supplier, String... labels) {
+        family(name, help, "gauge").metrics.put(labelString(labels), new Gauge(supplier));
+    }
+
+    public static Histogram histogram(String name, String help, String... labels) {
+        return (Histogram) family(name, help, "summary").metrics.computeIfAbsent(labelString(labels), k -> new Histogram());
+    }
+
+    private static Family family(String name, String help, String type) {
+        Family family = FAMILIES.computeIfAbsent(name, n -> new Family(help, type));
+        if (!family.type.equals(type)) {
+            throw new IllegalArgumentException("Metric " + name + " is already registered as a " + family.type);
+        }
+        return family;
+    }
+
+    private static String labelString(String... labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be name/value pairs");
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(labels[i]).append("=\"")
+                    .append(labels[i + 1].replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n"))
+                    .append('"');
+        }
+        return sb.toString();
+    }
+
+    public static void writePrometheus(Writer out) throws IOException {
+        for (Map.Entry<String, Family> entry : FAMILIES.entrySet()) {
+            String name = entry.getKey();
+            Family family = entry.getValue();
+            out.write("# HELP " + name + " " + family.help + "\n");
+            out.write("# TYPE " + name + " " + family.type + "\n");
+            for (Map.Entry<String, Object> metric : family.metrics.entrySet()) {
+                String labels = metric.getKey();
+                Object value = metric.getValue();
+                if (value instanceof Counter) {
+                    sample(out, name, labels, Long.toString(((Counter) value).get()));
+                } else if (value instanceof Gauge) {
+                    sample(out, name, labels, Long.toString(((Gauge) value).get()));
+                } else {
+                    Histogram histogram = (Histogram) value;
+                    for (String q : QUANTILES) {
+                        String quantile = "quantile=\"" + q + "\"";
+                        String seconds = histogram.getCount() == 0 ? "NaN" : Double.toString(histogram.valueAtPercentile(Double.parseDouble(q) * 100) / 1e9);
+                        sample(out, name, labels.isEmpty() ? quantile : labels + "," + quantile, seconds);
+                    }
+                    sample(out, name + "_sum", labels, Double.toString(histogram.getSumNanos() / 1e9));
+                    sample(out, name + "_count", labels, Long.toString(histogram.getCount()));
+                }
+            }
+        }
+    }
+
+    private static void sample(Writer out, String name, String labels, String value) throws IOException {
+        out.write(name);
+        if (!labels.isEmpty()) {
+            out.write('{');
+            out.write(labels);
+            out.write('}');
+        }
+        out.write(' ');
+        out.write(value);
+        out.write('\n');
+    }
+
+    /**
+     * Writes the current values to {@code file}, for runs that end before anything scraped them.
+     */
+    public static void dump(Path file) {
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writePrometheus(out);
+            log.info("Metrics written to: {}", file.toAbsolutePath());
+        } catch (IOException e) {
+            log.error("Failed to write metrics to {}.", file, e);
+        }
+    }
+
+    private static final class Family {
+        private final String help;
+        private final String type;
+        private final Map<String, Object> metrics = new ConcurrentSkipListMap<>();
+
+        private Family(String help, String type) {
+            this.help = help;
+            this.type = type;
+        }
+    }
+}
@@ -7,6 +7,7 @@ public class ExecutionSummary {
     private final String csvName;
     private final List<PipelineResult> pipelineResults = new ArrayList<>();
     private String status = "PASSED"; // Default to PASSED
+    private String cancelReason;
 
     public ExecutionSummary(String csvName) {
         this.csvName = csvName;
@@ -14,11 +15,32 @@ public class ExecutionSummary {
 
     public void addPipelineResult(PipelineResult result) {
         pipelineResults.add(result);
-        if (!"success".equalsIgnoreCase(result.getStatus())) {
+        if ("canceled".equalsIgnoreCase(result.getStatus())) {
+            markCancelled(null);
+        } else if (!"success".equalsIgnoreCase(result.getStatus())) {
             this.status = "FAILED";
         }
     }
 
+    /**
+     * Records that the flow was cancelled before all its rows ran. A flow that already failed stays FAILED.
+     */
+    public void markCancelled(String reason) {
+        if (!"FAILED".equals(status)) {
+            this.status = "CANCELLED";
+        }
+        if (reason != null && cancelReason == null) {
+            this.cancelReason = reason;
+        }
+    }
+
+    /**
+     * Why the flow was cancelled, or {@code null}.
+     */
+    public String getCancelReason() {
+        return cancelReason;
+    }
+
     public String getCsvName() {
         return csvName;
     }
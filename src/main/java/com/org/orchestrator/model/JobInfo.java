@@ -4,11 +4,17 @@ public class JobInfo {
     private final long id;
     private final String name;
     private final boolean haveArtifacts;
+    private final String status;
 
     public JobInfo(long id, String name, boolean haveArtifacts) {
+        this(id, name, haveArtifacts, null);
+    }
+
+    public JobInfo(long id, String name, boolean haveArtifacts, String status) {
         this.id = id;
         this.name = name;
         this.haveArtifacts = haveArtifacts;
+        this.status = status;
     }
 
     public long getId() {
@@ -22,4 +28,8 @@ public class JobInfo {
     public boolean getHaveArtifacts() {
         return haveArtifacts;
     }
+
+    public String getStatus() {
+        return status;
+    }
 }
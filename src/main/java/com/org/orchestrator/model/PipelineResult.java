@@ -7,12 +7,22 @@ public class PipelineResult {
     private final String status;
     private final Map<String, String> mergedVars;
     private final Map<String, String> rowVars;
+    private final PipelineTimings timings;
 
     public PipelineResult(long pipelineId, String status, Map<String, String> mergedVars, Map<String, String> rowVars) {
+        this(pipelineId, status, mergedVars, rowVars, new PipelineTimings());
+    }
+
+    /**
+     * The maps are kept as given, not copied; the executor passes read-only views of snapshots that share
+     * their entries with the results of the rows before.
+     */
+    public PipelineResult(long pipelineId, String status, Map<String, String> mergedVars, Map<String, String> rowVars, PipelineTimings timings) {
         this.pipelineId = pipelineId;
         this.status = status;
         this.mergedVars = mergedVars;
         this.rowVars = rowVars;
+        this.timings = timings;
     }
 
     public long getPipelineId() {
@@ -30,4 +40,8 @@ public class PipelineResult {
     public Map<String, String> getRowVars() {
         return rowVars;
     }
+
+    public PipelineTimings getTimings() {
+        return timings;
+    }
 }
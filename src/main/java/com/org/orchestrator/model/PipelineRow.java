@@ -2,15 +2,20 @@ package com.org.orchestrator.model;
 
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 
 public class PipelineRow {
+    public static final String DEFAULT_RUNNER_GROUP = "default";
+
     private final String applicationName;
     private final long projectId;
     private final String accessToken;
@@ -18,12 +23,30 @@ public class PipelineRow {
     private final String variablesAndValues;
     private final String artifactJobName;
     private final int order;
+    private final String group;
+    private final Set<String> dependsOn;
+    private final int priority;
+    private final String runnerGroup;
 
     private final Map<String, String> staticVars;
     private final Set<String> declaredKeys;
+    private volatile Map<String, String> allVars;
 
     public PipelineRow(String applicationName, long projectId, String accessToken, String branch,
                        String variablesAndValues, String artifactJobName, int order) {
+        this(applicationName, projectId, accessToken, branch, variablesAndValues, artifactJobName, order, null, null, 1, null, UnaryOperator.identity());
+    }
+
+    /**
+     * @param priority    weight of the row's flow when pipelines of several flows wait for the same runners
+     * @param runnerGroup runners the row's pipeline competes for, limited by {@code --runnerGroupLimits};
+     *                    {@code null} or blank for the default group
+     * @param dedup       applied to the group, dependency names and variable keys and values, so readers of
+     *                    large files can share the strings that repeat across rows
+     */
+    public PipelineRow(String applicationName, long projectId, String accessToken, String branch, String variablesAndValues,
+                       String artifactJobName, int order, String group, String dependsOn, int priority, String runnerGroup,
+                       UnaryOperator<String> dedup) {
         this.applicationName = applicationName;
         this.projectId = projectId;
         this.accessToken = accessToken;
@@ -31,28 +54,56 @@ public class PipelineRow {
         this.variablesAndValues = variablesAndValues;
         this.artifactJobName = artifactJobName;
         this.order = order;
-        this.staticVars = parseVariables(variablesAndValues);
+        this.group = group == null ? "" : dedup.apply(group.trim());
+        this.dependsOn = parseDependsOn(dependsOn, dedup);
+        this.priority = Math.max(1, priority);
+        this.runnerGroup = runnerGroup == null || runnerGroup.isBlank() ? DEFAULT_RUNNER_GROUP : dedup.apply(runnerGroup.trim());
+        this.staticVars = parseVariables(variablesAndValues, dedup);
         this.declaredKeys = staticVars.keySet();
     }
 
-    private Map<String, String> parseVariables(String vars) {
+    private static Map<String, String> parseVariables(String vars, UnaryOperator<String> dedup) {
         if (vars == null || vars.isBlank()) {
             return Collections.emptyMap();
         }
         vars = vars.trim();
         if (vars.startsWith("{")) { // JSON
+            Map<String, String> map;
             try {
-                return new ObjectMapper().readValue(vars, new TypeReference<Map<String, String>>() {});
+                map = VarsReader.INSTANCE.readValue(vars);
             } catch (Exception e) {
                 throw new IllegalArgumentException("Invalid JSON in variablesAndValues column: " + vars, e);
             }
-        } else { // Key-value pairs
-            return Stream.of(vars.split("[;,]"))
-                    .map(String::trim)
-                    .filter(s -> s.contains("="))
-                    .map(kv -> kv.split("=", 2))
-                    .collect(Collectors.toMap(a -> a[0].trim(), a -> a[1].trim(), (v1, v2) -> v2, HashMap::new));
+            map.replaceAll((k, v) -> dedup.apply(v)); // Jackson already interns the keys
+            return map;
+        }
+        // Key-value pairs separated by ';' or ','; the last value of a repeated key wins
+        Map<String, String> map = new HashMap<>();
+        int start = 0;
+        int length = vars.length();
+        while (start <= length) {
+            int end = start;
+            while (end < length && vars.charAt(end) != ';' && vars.charAt(end) != ',') {
+                end++;
+            }
+            int eq = vars.indexOf('=', start);
+            if (eq >= 0 && eq < end) {
+                map.put(dedup.apply(vars.substring(start, eq).trim()), dedup.apply(vars.substring(eq + 1, end).trim()));
+            }
+            start = end + 1;
+        }
+        return map;
+    }
+
+    private static Set<String> parseDependsOn(String names, UnaryOperator<String> dedup) {
+        if (names == null || names.isBlank()) {
+            return Collections.emptySet();
         }
+        return Stream.of(names.split("[;|]"))
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .map(dedup)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
     }
 
     // Getters
@@ -63,17 +114,40 @@ public class PipelineRow {
     public String getVariablesAndValues() { return variablesAndValues; }
     public String getArtifactJobName() { return artifactJobName; }
     public int getOrder() { return order; }
+    public String getGroup() { return group; }
+    public Set<String> getDependsOn() { return dependsOn; }
+    public int getPriority() { return priority; }
+    public String getRunnerGroup() { return runnerGroup; }
     public Map<String, String> getStaticVars() { return staticVars; }
     public Set<String> getDeclaredKeys() { return declaredKeys; }
 
+    /**
+     * The row's columns and static variables, built on first use and shared by every caller.
+     */
     public Map<String, String> getAllVars() {
-        Map<String, String> allVars = new HashMap<>();
-        allVars.put("applicationName", applicationName);
-        allVars.put("projectId", String.valueOf(projectId));
-        allVars.put("branch", branch);
-        allVars.put("artifactJobName", artifactJobName);
-        allVars.put("order", String.valueOf(order));
-        allVars.putAll(staticVars);
-        return allVars;
+        Map<String, String> vars = allVars;
+        if (vars == null) {
+            vars = Collections.unmodifiableMap(buildAllVars());
+            allVars = vars;
+        }
+        return vars;
+    }
+
+    private Map<String, String> buildAllVars() {
+        Map<String, String> vars = new HashMap<>(staticVars.size() + 8);
+        vars.put("applicationName", applicationName);
+        vars.put("projectId", String.valueOf(projectId));
+        vars.put("branch", branch);
+        vars.put("artifactJobName", artifactJobName);
+        vars.put("order", String.valueOf(order));
+        vars.putAll(staticVars);
+        return vars;
+    }
+
+    /**
+     * Holds the JSON reader so that Jackson is only loaded by flows that write variables as JSON.
+     */
+    private static final class VarsReader {
+        static final ObjectReader INSTANCE = new ObjectMapper().readerFor(new TypeReference<Map<String, String>>() {});
     }
 }
@@ -1,12 +1,26 @@
 package com.org.orchestrator.model;
 
+import java.time.Instant;
+
 public class PipelineStatusInfo {
     private final long pipelineId;
     private final String result;
+    private final Instant firstRunningAt;
+    private final Instant finishedAt;
 
     public PipelineStatusInfo(long pipelineId, String result) {
+        this(pipelineId, result, null, null);
+    }
+
+    /**
+     * @param firstRunningAt when the pipeline was first seen running, or {@code null}
+     * @param finishedAt     when the terminal status was first seen, or {@code null}
+     */
+    public PipelineStatusInfo(long pipelineId, String result, Instant firstRunningAt, Instant finishedAt) {
         this.pipelineId = pipelineId;
         this.result = result;
+        this.firstRunningAt = firstRunningAt;
+        this.finishedAt = finishedAt;
     }
 
     public long getPipelineId() {
@@ -16,4 +30,12 @@ public class PipelineStatusInfo {
     public String getResult() {
         return result;
     }
+
+    public Instant getFirstRunningAt() {
+        return firstRunningAt;
+    }
+
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
 }
@@ -0,0 +1,85 @@
+package com.org.orchestrator.model;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Wall-clock milestones of one pipeline row, all taken from the orchestrator's clock. Status milestones
+ * are the first poll that observed them, so they are accurate to the poll interval. A milestone that was
+ * never reached (trigger failed, row restored from a journal) is {@code null}.
+ */
+public class PipelineTimings {
+    private volatile Instant started;
+    private volatile Instant triggerRequested;
+    private volatile Instant created;
+    private volatile Instant firstRunning;
+    private volatile Instant finished;
+    private volatile Instant artifactListed;
+    private volatile Instant artifactParsed;
+
+    /**
+     * When the row began, before waiting for a project or runner group slot.
+     */
+    public Instant getStarted() {
+        return started;
+    }
+
+    public void setStarted(Instant started) {
+        this.started = started;
+    }
+
+    public Instant getTriggerRequested() {
+        return triggerRequested;
+    }
+
+    public void setTriggerRequested(Instant triggerRequested) {
+        this.triggerRequested = triggerRequested;
+    }
+
+    public Instant getCreated() {
+        return created;
+    }
+
+    public void setCreated(Instant created) {
+        this.created = created;
+    }
+
+    public Instant getFirstRunning() {
+        return firstRunning;
+    }
+
+    public void setFirstRunning(Instant firstRunning) {
+        this.firstRunning = firstRunning;
+    }
+
+    public Instant getFinished() {
+        return finished;
+    }
+
+    public void setFinished(Instant finished) {
+        this.finished = finished;
+    }
+
+    public Instant getArtifactListed() {
+        return artifactListed;
+    }
+
+    public void setArtifactListed(Instant artifactListed) {
+        this.artifactListed = artifactListed;
+    }
+
+    public Instant getArtifactParsed() {
+        return artifactParsed;
+    }
+
+    public void setArtifactParsed(Instant artifactParsed) {
+        this.artifactParsed = artifactParsed;
+    }
+
+    /**
+     * Milliseconds between two milestones, or {@code null} if either is missing.
+     */
+    public static Long millisBetween(Instant from, Instant to) {
+        return from == null || to == null ? null : Duration.between(from, to).toMillis();
+    }
+}
@@ -0,0 +1,115 @@
+package com.org.orchestrator.report;
+
+import com.org.orchestrator.model.ExecutionSummary;
+import com.org.orchestrator.model.PipelineResult;
+import com.org.orchestrator.model.PipelineTimings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * JUnit XML results so CI servers can show the run like a test report: one {@code testsuite} per CSV
+ * flow and one {@code testcase} per pipeline row, timed from trigger request to parsed artifact.
+ */
+public class JUnitXmlReport implements ReportSink {
+    private static final Logger log = LoggerFactory.getLogger(JUnitXmlReport.class);
+
+    private final Path out;
+    private final OutputStream stream;
+    private final XMLStreamWriter xml;
+    private boolean broken;
+
+    public JUnitXmlReport(Path out) throws IOException {
+        this.out = out;
+        this.stream = new BufferedOutputStream(Files.newOutputStream(out), 64 * 1024);
+        try {
+            this.xml = XMLOutputFactory.newFactory().createXMLStreamWriter(stream, "UTF-8");
+            xml.writeStartDocument("UTF-8", "1.0");
+            xml.writeCharacters("\n");
+            xml.writeStartElement("testsuites");
+            xml.writeAttribute("name", "GitLab Pipeline Execution Summary");
+            xml.writeCharacters("\n");
+            xml.flush();
+        } catch (XMLStreamException e) {
+            stream.close();
+            throw new IOException("Cannot start JUnit XML report " + out, e);
+        }
+        log.info("Writing JUnit XML results to: {}", out.toAbsolutePath());
+    }
+
+    @Override
+    public synchronized void append(ExecutionSummary summary) {
+        if (broken) {
+            return;
+        }
+        try {
+            writeSuite(summary);
+            xml.flush();
+        } catch (XMLStreamException e) {
+            broken = true;
+            log.error("Failed to write JUnit XML results {}, no further flows will be added to it.", out, e);
+        }
+    }
+
+    private void writeSuite(ExecutionSummary summary) throws XMLStreamException {
+        long failures = summary.getPipelineResults().stream().filter(pr -> !"success".equalsIgnoreCase(pr.getStatus())).count();
+        long totalMillis = summary.getPipelineResults().stream().mapToLong(JUnitXmlReport::millis).sum();
+        xml.writeStartElement("testsuite");
+        xml.writeAttribute("name", summary.getCsvName());
+        xml.writeAttribute("tests", String.valueOf(summary.getPipelineResults().size()));
+        xml.writeAttribute("failures", String.valueOf(failures));
+        xml.writeAttribute("time", seconds(totalMillis));
+        xml.writeCharacters("\n");
+        int row = 0;
+        for (PipelineResult pr : summary.getPipelineResults()) {
+            row++;
+            String application = pr.getRowVars() == null ? null : pr.getRowVars().get("applicationName");
+            xml.writeStartElement("testcase");
+            xml.writeAttribute("classname", summary.getCsvName());
+            xml.writeAttribute("name", "#" + row + " " + (application == null ? "" : application)
+                    + (pr.getPipelineId() == -1 ? "" : " (pipeline " + pr.getPipelineId() + ")"));
+            xml.writeAttribute("time", seconds(millis(pr)));
+            if (!"success".equalsIgnoreCase(pr.getStatus())) {
+                xml.writeStartElement("failure");
+                xml.writeAttribute("message", String.valueOf(pr.getStatus()));
+                xml.writeAttribute("type", pr.getStatus() != null && pr.getStatus().startsWith("ERROR") ? "error" : "pipeline");
+                xml.writeEndElement();
+            }
+            xml.writeEndElement();
+            xml.writeCharacters("\n");
+        }
+        xml.writeEndElement();
+        xml.writeCharacters("\n");
+    }
+
+    private static long millis(PipelineResult pr) {
+        PipelineTimings t = pr.getTimings();
+        Long total = PipelineTimings.millisBetween(t.getTriggerRequested(), t.getArtifactParsed());
+        return total == null ? 0 : total;
+    }
+
+    private static String seconds(long millis) {
+        return String.format(Locale.ROOT, "%.3f", millis / 1000.0);
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            xml.writeEndElement();
+            xml.writeEndDocument();
+            xml.close();
+            stream.close();
+        } catch (XMLStreamException | IOException e) {
+            log.error("Failed to finish JUnit XML results {}.", out, e);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.org.orchestrator.report;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import com.org.orchestrator.model.ExecutionSummary;
+import com.org.orchestrator.model.PipelineResult;
+import com.org.orchestrator.model.PipelineTimings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+
+/**
+ * One JSON object per pipeline row, for dashboards and ad-hoc {@code jq} queries. Besides the raw
+ * milestones each line carries the phase durations in milliseconds:
+ * <ul>
+ *   <li>{@code triggerMs}: trigger request until the pipeline was created</li>
+ *   <li>{@code queuedMs}: created until first seen running (waiting for a runner)</li>
+ *   <li>{@code runningMs}: first seen running until finished</li>
+ *   <li>{@code artifactMs}: finished until output.env was parsed</li>
+ *   <li>{@code totalMs}: trigger request until output.env was parsed</li>
+ * </ul>
+ */
+public class JsonLinesReport implements ReportSink {
+    private static final Logger log = LoggerFactory.getLogger(JsonLinesReport.class);
+
+    private final Path out;
+    private final JsonGenerator json;
+    private boolean broken;
+
+    public JsonLinesReport(Path out) throws IOException {
+        this.out = out;
+        this.json = new JsonFactory().createGenerator(new BufferedOutputStream(Files.newOutputStream(out), 64 * 1024), JsonEncoding.UTF8);
+        this.json.setPrettyPrinter(new MinimalPrettyPrinter("\n"));
+        log.info("Writing JSON Lines results to: {}", out.toAbsolutePath());
+    }
+
+    @Override
+    public synchronized void append(ExecutionSummary summary) {
+        if (broken) {
+            return;
+        }
+        try {
+            int row = 0;
+            for (PipelineResult pr : summary.getPipelineResults()) {
+                writeResult(summary, ++row, pr);
+            }
+            json.flush();
+        } catch (IOException e) {
+            broken = true;
+            log.error("Failed to write JSON Lines results {}, no further flows will be added to it.", out, e);
+        }
+    }
+
+    private void writeResult(ExecutionSummary summary, int row, PipelineResult pr) throws IOException {
+        PipelineTimings t = pr.getTimings();
+        json.writeStartObject();
+        json.writeStringField("flow", summary.getCsvName());
+        json.writeStringField("flowStatus", summary.getStatus());
+        writeString("cancelReason", summary.getCancelReason());
+        json.writeNumberField("row", row);
+        writeString("application", pr.getRowVars() == null ? null : pr.getRowVars().get("applicationName"));
+        writeString("projectId", pr.getRowVars() == null ? null : pr.getRowVars().get("projectId"));
+        json.writeNumberField("pipelineId", pr.getPipelineId());
+        json.writeStringField("status", pr.getStatus());
+        writeInstant("triggerRequestedAt", t.getTriggerRequested());
+        writeInstant("createdAt", t.getCreated());
+        writeInstant("firstRunningAt", t.getFirstRunning());
+        writeInstant("finishedAt", t.getFinished());
+        writeInstant("artifactListedAt", t.getArtifactListed());
+        writeInstant("artifactParsedAt", t.getArtifactParsed());
+        writeMillis("triggerMs", PipelineTimings.millisBetween(t.getTriggerRequested(), t.getCreated()));
+        writeMillis("queuedMs", PipelineTimings.millisBetween(t.getCreated(), t.getFirstRunning()));
+        writeMillis("runningMs", PipelineTimings.millisBetween(t.getFirstRunning(), t.getFinished()));
+        writeMillis("artifactMs", PipelineTimings.millisBetween(t.getFinished(), t.getArtifactParsed()));
+        writeMillis("totalMs", PipelineTimings.millisBetween(t.getTriggerRequested(), t.getArtifactParsed()));
+        json.writeEndObject();
+    }
+
+    private void writeString(String name, String value) throws IOException {
+        if (value != null) {
+            json.writeStringField(name, value);
+        }
+    }
+
+    private void writeInstant(String name, Instant value) throws IOException {
+        if (value != null) {
+            json.writeStringField(name, value.toString());
+        }
+    }
+
+    private void writeMillis(String name, Long value) throws IOException {
+        if (value != null) {
+            json.writeNumberField(name, value);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            json.writeRaw('\n');
+            json.close();
+        } catch (IOException e) {
+            log.error("Failed to finish JSON Lines results {}.", out, e);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.org.orchestrator.report;
+
+import com.org.orchestrator.model.ExecutionSummary;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Opens the wrapped report when the first flow finishes, so the report writers and the libraries behind
+ * them are not loaded while flows are starting. A report that never receives a flow is still written,
+ * empty, when closed.
+ */
+public class LazyReportSink implements ReportSink {
+
+    @FunctionalInterface
+    public interface Opener {
+        ReportSink open() throws IOException;
+    }
+
+    private final Opener opener;
+    private ReportSink sink;
+
+    public LazyReportSink(Opener opener) {
+        this.opener = opener;
+    }
+
+    private synchronized ReportSink sink() {
+        if (sink == null) {
+            try {
+                sink = opener.open();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to open report", e);
+            }
+        }
+        return sink;
+    }
+
+    @Override
+    public void append(ExecutionSummary summary) {
+        sink().append(summary);
+    }
+
+    @Override
+    public void close() {
+        sink().close();
+    }
+}
@@ -0,0 +1,26 @@
+package com.org.orchestrator.report;
+
+import com.org.orchestrator.model.ExecutionSummary;
+
+import java.util.List;
+
+/**
+ * Fans each finished flow out to several report formats.
+ */
+public class MultiReportSink implements ReportSink {
+    private final List<ReportSink> sinks;
+
+    public MultiReportSink(List<ReportSink> sinks) {
+        this.sinks = sinks;
+    }
+
+    @Override
+    public void append(ExecutionSummary summary) {
+        sinks.forEach(sink -> sink.append(summary));
+    }
+
+    @Override
+    public void close() {
+        sinks.forEach(ReportSink::close);
+    }
+}
@@ -0,0 +1,17 @@
+package com.org.orchestrator.report;
+
+import com.org.orchestrator.model.ExecutionSummary;
+
+import java.io.Closeable;
+
+/**
+ * Destination for flow results that is written to as each flow finishes, rather than once at the end
+ * of the run. Implementations must accept {@link #append} calls from several flow threads.
+ */
+public interface ReportSink extends Closeable {
+
+    void append(ExecutionSummary summary);
+
+    @Override
+    void close();
+}
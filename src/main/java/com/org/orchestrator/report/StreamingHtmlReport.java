@@ -0,0 +1,227 @@
+package com.org.orchestrator.report;
+
+import com.org.orchestrator.model.ExecutionSummary;
+import com.org.orchestrator.model.PipelineResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * HTML report that is appended to as flows finish, so it can be opened while the run is still going.
+ * <p>
+ * Nothing but the current flow is held in memory. Each flow is a collapsible section whose rows are
+ * written into inert {@code <template>} pages of {@value #PAGE_ROWS} rows; the browser only builds the
+ * table for the page being viewed, which keeps reports with 100k rows responsive. Merged variables are
+ * shown as a diff against the previous row of the flow instead of repeating the full map on every row.
+ */
+public class StreamingHtmlReport implements ReportSink {
+    private static final Logger log = LoggerFactory.getLogger(StreamingHtmlReport.class);
+
+    private static final int PAGE_ROWS = 200;
+    private static final int BUFFER_CHARS = 64 * 1024;
+
+    private static final String STYLE = "body{font-family: -apple-system, BlinkMacSystemFont, \"Segoe UI\", Roboto, Helvetica, Arial, sans-serif; margin: 40px; background-color: #f8f9fa; color: #212529;}"
+            + "h1{color: #343a40; border-bottom: 2px solid #dee2e6; padding-bottom: 10px;}"
+            + ".summary-box{border: 1px solid #dee2e6; border-radius: .25rem; margin-bottom: 1rem; background-color: #fff; box-shadow: 0 .125rem .25rem rgba(0,0,0,.075);}"
+            + ".summary-box>summary{background-color: rgba(0,0,0,.03); padding: .75rem 1.25rem; cursor: pointer; font-size: 1.2em; color: #495057;}"
+            + ".status-PASSED{color: #28a745; font-weight: bold;}"
+            + ".status-FAILED{color: #dc3545; font-weight: bold;}"
+            + ".status-CANCELLED{color: #fd7e14; font-weight: bold;}"
+            + ".totals{margin-bottom: 2rem;}"
+            + ".pager{padding: .5rem 1.25rem;} .pager button{margin-right: .5rem;}"
+            + "table{width: 100%; border-collapse: collapse;}"
+            + "th, td{border: 1px solid #dee2e6; padding: .75rem; text-align: left; vertical-align: top;}"
+            + "thead{background-color: #e9ecef;}"
+            + "pre{background-color: #e9ecef; padding: 10px; border-radius: .25rem; white-space: pre-wrap; word-break: break-all; margin: 0;}"
+            + "ins{color: #1e7e34; text-decoration: none;} del{color: #bd2130;} .unchanged{color: #6c757d;}";
+
+    private static final String SCRIPT = "function showPage(box, page) {"
+            + " var pages = box.querySelectorAll('template.page'); if (!pages.length) return;"
+            + " page = Math.max(0, Math.min(page, pages.length - 1));"
+            + " box.querySelector('tbody').replaceChildren(pages[page].content.cloneNode(true));"
+            + " box.dataset.page = page;"
+            + " box.querySelector('.pager span').textContent = 'Page ' + (page + 1) + ' of ' + pages.length;"
+            + "}"
+            + "document.addEventListener('toggle', function (e) {"
+            + " var box = e.target;"
+            + " if (box.classList && box.classList.contains('summary-box') && box.open && !box.dataset.page) showPage(box, 0);"
+            + "}, true);"
+            + "document.addEventListener('click', function (e) {"
+            + " var button = e.target.closest('.pager button'); if (!button) return;"
+            + " var box = button.closest('.summary-box');"
+            + " showPage(box, Number(box.dataset.page || 0) + Number(button.dataset.step));"
+            + "});";
+
+    private final Path out;
+    private final Writer writer;
+    private int flows;
+    private int failedFlows;
+    private long rows;
+    private boolean broken;
+
+    public StreamingHtmlReport(Path out) throws IOException {
+        this.out = out;
+        FileChannel channel = FileChannel.open(out, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        this.writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), BUFFER_CHARS), BUFFER_CHARS);
+        log.info("Writing HTML report to: {}", out.toAbsolutePath());
+        writer.write("<!DOCTYPE html><html><head><meta charset='utf-8'><title>Execution Summary</title><style>");
+        writer.write(STYLE);
+        writer.write("</style><script>");
+        writer.write(SCRIPT);
+        writer.write("</script></head><body><h1>GitLab Pipeline Execution Summary</h1>\n");
+        writer.flush();
+    }
+
+    @Override
+    public synchronized void append(ExecutionSummary summary) {
+        if (broken) {
+            return;
+        }
+        try {
+            writeSummary(summary);
+            writer.flush();
+        } catch (IOException e) {
+            broken = true;
+            log.error("Failed to write to HTML report {}, no further flows will be added to it.", out, e);
+        }
+    }
+
+    private void writeSummary(ExecutionSummary s) throws IOException {
+        boolean failed = !"PASSED".equals(s.getStatus());
+        flows++;
+        if (failed) {
+            failedFlows++;
+        }
+        int count = s.getPipelineResults().size();
+        rows += count;
+
+        writer.write(failed ? "<details class='summary-box' open><summary>" : "<details class='summary-box'><summary>");
+        escape(s.getCsvName());
+        writer.write(" &mdash; <span class='status-");
+        escape(s.getStatus());
+        writer.write("'>");
+        escape(s.getStatus());
+        writer.write("</span> (" + count + (count == 1 ? " row" : " rows") + ")</summary>");
+        writer.write("<div class='pager'><button data-step='-1'>&lsaquo; Previous</button><button data-step='1'>Next &rsaquo;</button><span></span></div>");
+        writer.write("<table><thead><tr><th>#</th><th>Pipeline ID</th><th>Status</th><th>Row Variables</th>"
+                + "<th>Merged Variables (changes since previous row)</th></tr></thead><tbody></tbody></table>\n");
+
+        Map<String, String> previous = null;
+        int i = 0;
+        for (PipelineResult pr : s.getPipelineResults()) {
+            if (i % PAGE_ROWS == 0) {
+                writer.write(i == 0 ? "<template class='page'>" : "</template>\n<template class='page'>");
+            }
+            i++;
+            writer.write("<tr><td>" + i + "</td><td>");
+            writer.write(pr.getPipelineId() == -1 ? "N/A" : String.valueOf(pr.getPipelineId()));
+            writer.write("</td><td>");
+            escape(pr.getStatus());
+            writer.write("</td><td><pre>");
+            writeMap(pr.getRowVars());
+            writer.write("</pre></td><td><pre>");
+            writeDiff(previous, pr.getMergedVars());
+            writer.write("</pre></td></tr>\n");
+            previous = pr.getMergedVars();
+        }
+        if (i > 0) {
+            writer.write("</template>");
+        }
+        writer.write("</details>\n");
+    }
+
+    private void writeMap(Map<String, String> map) throws IOException {
+        if (map == null || map.isEmpty()) {
+            writer.write("{}");
+            return;
+        }
+        for (Map.Entry<String, String> e : new TreeMap<>(map).entrySet()) {
+            escape(e.getKey());
+            writer.write(" = ");
+            escape(e.getValue());
+            writer.write('\n');
+        }
+    }
+
+    /**
+     * Writes the variables added, changed or removed since {@code previous}; the first row of a flow is
+     * written in full.
+     */
+    private void writeDiff(Map<String, String> previous, Map<String, String> current) throws IOException {
+        if (previous == null) {
+            writeMap(current);
+            return;
+        }
+        Map<String, String> now = current == null ? Map.of() : current;
+        boolean changed = false;
+        for (Map.Entry<String, String> e : new TreeMap<>(now).entrySet()) {
+            boolean added = !previous.containsKey(e.getKey());
+            if (added || !Objects.equals(previous.get(e.getKey()), e.getValue())) {
+                writer.write(added ? "<ins>+ " : "<ins>~ ");
+                escape(e.getKey());
+                writer.write(" = ");
+                escape(e.getValue());
+                writer.write("</ins>\n");
+                changed = true;
+            }
+        }
+        for (String key : new TreeMap<>(previous).keySet()) {
+            if (!now.containsKey(key)) {
+                writer.write("<del>- ");
+                escape(key);
+                writer.write("</del>\n");
+                changed = true;
+            }
+        }
+        if (!changed) {
+            writer.write("<span class='unchanged'>(unchanged)</span>");
+        }
+    }
+
+    private void escape(String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '<': writer.write("&lt;"); break;
+                case '>': writer.write("&gt;"); break;
+                case '&': writer.write("&amp;"); break;
+                case '\'': writer.write("&#39;"); break;
+                case '"': writer.write("&quot;"); break;
+                default: writer.write(c);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            if (!broken) {
+                // Totals are only known now; move them above the flows once the page loads.
+                writer.write("<div class='totals' id='totals'>" + flows + " flows, " + (flows - failedFlows) + " passed, "
+                        + failedFlows + " failed, " + rows + " pipelines.</div>");
+                writer.write("<script>document.querySelector('h1').after(document.getElementById('totals'));</script>");
+                writer.write("</body></html>\n");
+            }
+            writer.close();
+            if (!broken) {
+                log.info("Successfully generated HTML report.");
+            }
+        } catch (IOException e) {
+            log.error("Failed to finish HTML report {}.", out, e);
+        }
+    }
+}
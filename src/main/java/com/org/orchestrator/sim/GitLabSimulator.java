@@ -0,0 +1,436 @@
+package com.org.orchestrator.sim;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.StringJoiner;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * A stand-in for the parts of the GitLab API the orchestrator uses, served on the loopback interface.
+ * Every pipeline is pending for the first quarter of its duration, then running, then ends with the
+ * outcome drawn when it was created; its only job publishes an {@code output.env}-style artifact naming
+ * the job and pipeline, both as a single file and inside the artifact archive. Durations, failures, 429
+ * and server error answers, outages, artifact size and latency follow a {@link SimulatorProfile}.
+ * <p>
+ * Calls are counted per endpoint, and the creation and end time of each project's pipelines are kept so
+ * a load test can tell how long the orchestrator took to trigger the next row after a pipeline ended.
+ */
+public class GitLabSimulator implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(GitLabSimulator.class);
+
+    private static final Pattern TRIGGER = Pattern.compile("/projects/(\\d+)/pipeline");
+    private static final Pattern CANCEL = Pattern.compile("/projects/(\\d+)/pipelines/(\\d+)/cancel");
+    private static final Pattern PIPELINE = Pattern.compile("/projects/(\\d+)/pipelines/(\\d+)");
+    private static final Pattern PIPELINES = Pattern.compile("/projects/(\\d+)/pipelines");
+    private static final Pattern JOBS = Pattern.compile("/projects/(\\d+)/pipelines/(\\d+)/jobs");
+    private static final Pattern VARIABLES = Pattern.compile("/projects/(\\d+)/pipelines/(\\d+)/variables");
+    private static final Pattern TRIGGER_VARIABLE = Pattern.compile("\\{\"key\":\"([^\"]*)\",\"value\":\"([^\"]*)\"}");
+    private static final Pattern ARTIFACT_FILE = Pattern.compile("/projects/(\\d+)/jobs/(\\d+)/artifacts/.+");
+    private static final Pattern ARTIFACT_ARCHIVE = Pattern.compile("/projects/(\\d+)/jobs/(\\d+)/artifacts");
+    private static final Pattern BRANCH = Pattern.compile("/projects/(\\d+)/repository/branches/(.+)");
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final SimulatorProfile profile;
+    private final Random random;
+    private final AtomicLong ids = new AtomicLong(1000);
+    private final Map<Long, Pipeline> pipelines = new ConcurrentHashMap<>();
+    private final Map<Long, ConcurrentLinkedQueue<Pipeline>> byProject = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> calls = new ConcurrentHashMap<>();
+    private final AtomicReference<Instant> firstTrigger = new AtomicReference<>();
+    private final long startedAt = System.currentTimeMillis();
+
+    /**
+     * @param port           0 for any free port
+     * @param pipelineMillis how long each pipeline takes from creation to success
+     * @param jobName        name of the job that publishes the artifact
+     */
+    public GitLabSimulator(int port, long pipelineMillis, String jobName) throws IOException {
+        this(port, SimulatorProfile.fixed(pipelineMillis, jobName), 4);
+    }
+
+    /**
+     * @param threads request handler threads; latency is simulated by holding one
+     */
+    public GitLabSimulator(int port, SimulatorProfile profile, int threads) throws IOException {
+        this.profile = profile;
+        this.random = new Random(profile.getSeed());
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1024);
+        this.executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "gitlab-simulator");
+            t.setDaemon(true);
+            return t;
+        });
+        server.createContext("/api/v4", this::handle);
+        server.setExecutor(executor);
+        server.start();
+        log.info("GitLab simulator listening on {}", getBaseUrl());
+    }
+
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/api/v4";
+    }
+
+    /**
+     * When the first pipeline was created, or {@code null} if none was.
+     */
+    public Instant getFirstTrigger() {
+        return firstTrigger.get();
+    }
+
+    public int getPipelineCount() {
+        return pipelines.size();
+    }
+
+    /**
+     * Requests served so far by endpoint, including those answered 429 or with a server error; those are
+     * also counted under "429" and "5xx".
+     */
+    public Map<String, Long> getCallCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        calls.forEach((endpoint, count) -> counts.put(endpoint, count.sum()));
+        return counts;
+    }
+
+    /**
+     * For every pipeline after the first of a project: milliseconds between the end of the project's
+     * previous pipeline and this one's creation. With one sequential flow per project this is the time the
+     * orchestrator needed to notice the end, fetch the artifact and trigger the next row.
+     */
+    public List<Long> getHandoffMillis() {
+        List<Long> handoffs = new ArrayList<>();
+        for (ConcurrentLinkedQueue<Pipeline> project : byProject.values()) {
+            List<Pipeline> ordered = new ArrayList<>(project);
+            ordered.sort((a, b) -> Long.compare(a.createdAt, b.createdAt));
+            for (int i = 1; i < ordered.size(); i++) {
+                handoffs.add(ordered.get(i).createdAt - ordered.get(i - 1).endsAt());
+            }
+        }
+        Collections.sort(handoffs);
+        return handoffs;
+    }
+
+    /**
+     * The shortest possible run: the longest of the projects' summed pipeline durations, reached when every
+     * next row is triggered the moment the one before it ends.
+     */
+    public long getIdealMillis() {
+        long ideal = 0;
+        for (ConcurrentLinkedQueue<Pipeline> project : byProject.values()) {
+            ideal = Math.max(ideal, project.stream().mapToLong(p -> p.duration).sum());
+        }
+        return ideal;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (InputStream body = exchange.getRequestBody()) {
+            String request = new String(body.readAllBytes(), StandardCharsets.UTF_8);
+            String path = exchange.getRequestURI().getPath().substring("/api/v4".length());
+            boolean post = "POST".equals(exchange.getRequestMethod());
+            if (profile.getLatencyMillis() > 0) {
+                Thread.sleep(profile.getLatencyMillis());
+            }
+            Matcher m;
+            if (post && (m = TRIGGER.matcher(path)).matches()) {
+                if (refused(exchange, "trigger")) {
+                    return;
+                }
+                long projectId = Long.parseLong(m.group(1));
+                Pipeline p = create(projectId, variables(request));
+                if (serverError()) {
+                    // The pipeline exists, but the caller is not told so.
+                    count("5xx");
+                    respond(exchange, 502, "{\"message\":\"502 Bad Gateway\"}");
+                    return;
+                }
+                respond(exchange, 201, "{\"id\":" + p.id + ",\"project_id\":" + projectId + ",\"status\":\"created\",\"created_at\":\""
+                        + Instant.ofEpochMilli(p.createdAt) + "\"}");
+            } else if (post && (m = CANCEL.matcher(path)).matches()) {
+                if (refused(exchange, "cancel")) {
+                    return;
+                }
+                Pipeline p = pipelines.get(Long.parseLong(m.group(2)));
+                if (p == null) {
+                    respond(exchange, 404, "{\"message\":\"404 Pipeline Not Found\"}");
+                    return;
+                }
+                long now = System.currentTimeMillis();
+                p.cancel(now);
+                respond(exchange, 200, json(p, now));
+            } else if (post) {
+                count("other");
+                respond(exchange, 404, "{\"message\":\"404 Not found\"}");
+            } else if ((m = VARIABLES.matcher(path)).matches()) {
+                if (refused(exchange, "variables")) {
+                    return;
+                }
+                Pipeline p = pipelines.get(Long.parseLong(m.group(2)));
+                if (p == null) {
+                    respond(exchange, 404, "{\"message\":\"404 Pipeline Not Found\"}");
+                } else {
+                    respond(exchange, 200, p.variables);
+                }
+            } else if ((m = JOBS.matcher(path)).matches()) {
+                if (refused(exchange, "jobs")) {
+                    return;
+                }
+                Pipeline p = pipelines.get(Long.parseLong(m.group(2)));
+                if (p == null) {
+                    respond(exchange, 404, "{\"message\":\"404 Pipeline Not Found\"}");
+                    return;
+                }
+                String status = p.status(System.currentTimeMillis());
+                respond(exchange, 200, "[{\"id\":" + p.id * 10 + ",\"name\":\"" + profile.getJobName() + "\",\"status\":\"" + status
+                        + "\",\"artifacts\":" + ("success".equals(status) ? "[{\"file_type\":\"archive\"}]" : "[]") + "}]");
+            } else if ((m = PIPELINE.matcher(path)).matches()) {
+                if (refused(exchange, "pipeline")) {
+                    return;
+                }
+                Pipeline p = pipelines.get(Long.parseLong(m.group(2)));
+                if (p == null) {
+                    respond(exchange, 404, "{\"message\":\"404 Pipeline Not Found\"}");
+                } else {
+                    respond(exchange, 200, json(p, System.currentTimeMillis()));
+                }
+            } else if ((m = PIPELINES.matcher(path)).matches()) {
+                if (refused(exchange, "pipelines")) {
+                    return;
+                }
+                respond(exchange, 200, list(Long.parseLong(m.group(1)), exchange.getRequestURI().getRawQuery()));
+            } else if ((m = ARTIFACT_FILE.matcher(path)).matches()) {
+                if (refused(exchange, "artifact-file")) {
+                    return;
+                }
+                if (!profile.isSingleFile()) {
+                    respond(exchange, 404, "{\"message\":\"404 Not found\"}");
+                    return;
+                }
+                byte[] env = outputEnv(Long.parseLong(m.group(2)));
+                exchange.getResponseHeaders().set("Content-Type", "text/plain");
+                exchange.sendResponseHeaders(200, env.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(env);
+                }
+            } else if ((m = ARTIFACT_ARCHIVE.matcher(path)).matches()) {
+                if (refused(exchange, "artifact-archive")) {
+                    return;
+                }
+                byte[] zip = archive(Long.parseLong(m.group(2)));
+                exchange.getResponseHeaders().set("Content-Type", "application/zip");
+                exchange.sendResponseHeaders(200, zip.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(zip);
+                }
+            } else if ((m = BRANCH.matcher(path)).matches()) {
+                count("branch");
+                respond(exchange, 200, "{\"name\":\"" + m.group(2) + "\",\"commit\":{\"id\":\"sim-" + m.group(2).hashCode() + "\"}}");
+            } else {
+                count("other");
+                respond(exchange, 404, "{\"message\":\"404 Not found\"}");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private Pipeline create(long projectId, String variables) {
+        long duration = profile.sampleDuration(random);
+        boolean fails = profile.getFailureRate() > 0 && random.nextDouble() < profile.getFailureRate();
+        Pipeline p = new Pipeline(ids.incrementAndGet(), projectId, System.currentTimeMillis(), duration, fails ? "failed" : "success", variables);
+        pipelines.put(p.id, p);
+        byProject.computeIfAbsent(projectId, id -> new ConcurrentLinkedQueue<>()).add(p);
+        firstTrigger.compareAndSet(null, Instant.ofEpochMilli(p.createdAt));
+        return p;
+    }
+
+    /**
+     * Counts the call and answers it with 503 during the configured outage, and otherwise a configured
+     * share of calls with 429 or 502. A trigger may also fail with 502 after creating its pipeline.
+     */
+    private boolean refused(HttpExchange exchange, String endpoint) throws IOException {
+        count(endpoint);
+        long sinceStart = System.currentTimeMillis() - startedAt;
+        if (sinceStart >= profile.getOutageFromMillis() && sinceStart < profile.getOutageFromMillis() + profile.getOutageMillis()) {
+            count("5xx");
+            respond(exchange, 503, "{\"message\":\"503 Service Unavailable\"}");
+            return true;
+        }
+        if (!"trigger".equals(endpoint) && serverError()) {
+            count("5xx");
+            respond(exchange, 502, "{\"message\":\"502 Bad Gateway\"}");
+            return true;
+        }
+        if (profile.getRateLimitRate() <= 0 || random.nextDouble() >= profile.getRateLimitRate()) {
+            return false;
+        }
+        count("429");
+        exchange.getResponseHeaders().set("Retry-After", "1");
+        respond(exchange, 429, "{\"message\":\"429 Too Many Requests\"}");
+        return true;
+    }
+
+    private boolean serverError() {
+        return profile.getServerErrorRate() > 0 && random.nextDouble() < profile.getServerErrorRate();
+    }
+
+    /**
+     * The trigger's variables as GitLab lists them for a pipeline.
+     */
+    private static String variables(String triggerBody) {
+        Matcher m = TRIGGER_VARIABLE.matcher(triggerBody);
+        StringJoiner json = new StringJoiner(",", "[", "]");
+        while (m.find()) {
+            json.add("{\"variable_type\":\"env_var\",\"key\":\"" + m.group(1) + "\",\"value\":\"" + m.group(2) + "\"}");
+        }
+        return json.toString();
+    }
+
+    private void count(String endpoint) {
+        calls.computeIfAbsent(endpoint, e -> new LongAdder()).increment();
+    }
+
+    /**
+     * The project's pipelines updated after {@code updated_after}, newest first, like GitLab's list call.
+     */
+    private String list(long projectId, String rawQuery) {
+        long updatedAfter = 0;
+        int perPage = 20;
+        if (rawQuery != null) {
+            for (String pair : rawQuery.split("&")) {
+                if (pair.startsWith("updated_after=")) {
+                    updatedAfter = Instant.parse(URLDecoder.decode(pair.substring("updated_after=".length()), StandardCharsets.UTF_8)).toEpochMilli();
+                } else if (pair.startsWith("per_page=")) {
+                    perPage = Integer.parseInt(pair.substring("per_page=".length()));
+                }
+            }
+        }
+        long now = System.currentTimeMillis();
+        long since = updatedAfter;
+        return byProject.getOrDefault(projectId, new ConcurrentLinkedQueue<>()).stream()
+                .filter(p -> p.updatedAt(now) > since)
+                .sorted((a, b) -> Long.compare(b.updatedAt(now), a.updatedAt(now)))
+                .limit(perPage)
+                .map(p -> json(p, now))
+                .collect(Collectors.joining(",", "[", "]"));
+    }
+
+    private byte[] outputEnv(long jobId) {
+        StringBuilder env = new StringBuilder("JOB_ID=").append(jobId).append("\nPIPELINE_ID=").append(jobId / 10).append('\n');
+        while (env.length() < profile.getArtifactBytes()) {
+            env.append("# padding to simulate a larger output.env ----------------------------------\n");
+        }
+        return env.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private byte[] archive(long jobId) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            zip.putNextEntry(new ZipEntry("target/output.env"));
+            zip.write(outputEnv(jobId));
+            zip.closeEntry();
+        }
+        return bytes.toByteArray();
+    }
+
+    private static String json(Pipeline p, long now) {
+        return "{\"id\":" + p.id + ",\"project_id\":" + p.projectId + ",\"status\":\"" + p.status(now)
+                + "\",\"updated_at\":\"" + Instant.ofEpochMilli(p.updatedAt(now)) + "\"}";
+    }
+
+    private static void respond(HttpExchange exchange, int code, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(code, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private static final class Pipeline {
+        final long id;
+        final long projectId;
+        final long createdAt;
+        final long duration;
+        final String outcome;
+        final String variables;
+        volatile long canceledAt;
+
+        Pipeline(long id, long projectId, long createdAt, long duration, String outcome, String variables) {
+            this.id = id;
+            this.projectId = projectId;
+            this.createdAt = createdAt;
+            this.duration = duration;
+            this.outcome = outcome;
+            this.variables = variables;
+        }
+
+        String status(long now) {
+            if (canceledAt > 0 && now >= canceledAt) {
+                return "canceled";
+            }
+            long age = now - createdAt;
+            return age < duration / 4 ? "pending" : age < duration ? "running" : outcome;
+        }
+
+        /**
+         * Cancels the pipeline unless it has already finished.
+         */
+        synchronized void cancel(long now) {
+            if (canceledAt == 0 && now < createdAt + duration) {
+                canceledAt = now;
+            }
+        }
+
+        long endsAt() {
+            return canceledAt > 0 ? canceledAt : createdAt + duration;
+        }
+
+        /**
+         * When the status last changed, as of {@code now}.
+         */
+        long updatedAt(long now) {
+            if (canceledAt > 0 && now >= canceledAt) {
+                return canceledAt;
+            }
+            long age = now - createdAt;
+            return age < duration / 4 ? createdAt : age < duration ? createdAt + duration / 4 : endsAt();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.org.orchestrator.sim;
+
+import com.org.orchestrator.AppMain;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * End-to-end load test without a network: generates synthetic flows, runs {@link AppMain} against an
+ * in-process {@link GitLabSimulator} and reports throughput, API calls per pipeline and how much time the
+ * orchestrator added on top of the pipelines themselves.
+ * <pre>
+ * java -cp orchestrator.jar com.org.orchestrator.sim.LoadTest --flows=100 --rows=100 \
+ *      --simPipelineMillis=2000 --simDistribution=lognormal --simRateLimitRate=0.01 [orchestrator options]
+ * </pre>
+ * Each flow is a chain of {@code --rows} sequential rows in its own project. {@code --sim*} options
+ * configure the simulator (see {@link SimulatorProfile}), {@code --simThreads} its handler threads and
+ * {@code --results} a file the summary is appended to; all other options are passed to the orchestrator
+ * after the harness defaults {@code --pollInterval=1 --minPollInterval=1}.
+ */
+public class LoadTest {
+
+    public static void main(String[] args) throws IOException {
+        int flows = 10;
+        int rows = 10;
+        int simThreads = 32;
+        Path results = null;
+        List<String> orchestratorArgs = new ArrayList<>(List.of("--pollInterval=1", "--minPollInterval=1"));
+        for (String arg : args) {
+            if (arg.startsWith("--flows=")) {
+                flows = Integer.parseInt(arg.substring("--flows=".length()));
+            } else if (arg.startsWith("--rows=")) {
+                rows = Integer.parseInt(arg.substring("--rows=".length()));
+            } else if (arg.startsWith("--simThreads=")) {
+                simThreads = Integer.parseInt(arg.substring("--simThreads=".length()));
+            } else if (arg.startsWith("--results=")) {
+                results = Paths.get(arg.substring("--results=".length()));
+            } else if (!arg.startsWith("--sim")) {
+                orchestratorArgs.add(arg);
+            }
+        }
+        SimulatorProfile profile = SimulatorProfile.fromArgs(args);
+
+        Path dir = Files.createTempDirectory("load-test");
+        List<Path> csvs = generateFlows(dir, flows, rows, profile.getJobName());
+        String summary;
+        try (GitLabSimulator gitlab = new GitLabSimulator(0, profile, simThreads)) {
+            orchestratorArgs.add("--input=" + csvs.stream().map(Path::toString).collect(Collectors.joining(",")));
+            orchestratorArgs.add("--gitlabBaseUrl=" + gitlab.getBaseUrl());
+            long start = System.nanoTime();
+            AppMain.main(orchestratorArgs.toArray(new String[0]));
+            long wallMillis = (System.nanoTime() - start) / 1_000_000;
+            summary = summarize(flows, rows, profile, gitlab, wallMillis);
+        } finally {
+            for (Path csv : csvs) {
+                Files.deleteIfExists(csv);
+            }
+            Files.deleteIfExists(dir);
+        }
+        System.out.println(summary);
+        if (results != null) {
+            Files.writeString(results, summary + System.lineSeparator(), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+    }
+
+    private static List<Path> generateFlows(Path dir, int flows, int rows, String jobName) throws IOException {
+        List<Path> csvs = new ArrayList<>();
+        for (int f = 1; f <= flows; f++) {
+            List<String> lines = new ArrayList<>(rows + 1);
+            lines.add("applicationName,projectId,accessToken,branch,variablesAndValues,artifactJobName,order");
+            for (int r = 1; r <= rows; r++) {
+                lines.add("app-" + f + "-" + r + "," + f + ",load-token-" + (f % 8) + ",main,\"FLOW=" + f + ",ROW=" + r + "\"," + jobName + "," + r);
+            }
+            Path csv = dir.resolve(String.format("flow-%05d.csv", f));
+            Files.write(csv, lines, StandardCharsets.UTF_8);
+            csvs.add(csv);
+        }
+        return csvs;
+    }
+
+    private static String summarize(int flows, int rows, SimulatorProfile profile, GitLabSimulator gitlab, long wallMillis) {
+        int pipelines = gitlab.getPipelineCount();
+        Map<String, Long> calls = gitlab.getCallCounts();
+        long totalCalls = calls.entrySet().stream().filter(e -> !e.getKey().equals("429") && !e.getKey().equals("5xx")).mapToLong(Map.Entry::getValue).sum();
+        List<Long> handoffs = gitlab.getHandoffMillis();
+        long ideal = gitlab.getIdealMillis();
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Load test: %d flows x %d rows, %s%n", flows, rows, profile));
+        sb.append(String.format("  pipelines triggered   %d of %d in %.1f s (%.1f pipelines/s)%n",
+                pipelines, flows * rows, wallMillis / 1000.0, pipelines * 1000.0 / Math.max(1, wallMillis)));
+        sb.append(String.format("  API calls             %d (%.2f per pipeline) %s%n",
+                totalCalls, pipelines == 0 ? 0.0 : (double) totalCalls / pipelines, calls));
+        sb.append(String.format("  handoff after end     p50 %d ms, p90 %d ms, p99 %d ms, max %d ms%n",
+                percentile(handoffs, 0.5), percentile(handoffs, 0.9), percentile(handoffs, 0.99), percentile(handoffs, 1.0)));
+        sb.append(String.format("  orchestrator overhead %.1f s over the %.1f s critical path (%.0f%%)%n",
+                (wallMillis - ideal) / 1000.0, ideal / 1000.0, ideal == 0 ? 0.0 : 100.0 * (wallMillis - ideal) / ideal));
+        sb.append(String.format("  peak heap             %d MB", peakHeapBytes() / (1024 * 1024)));
+        return sb.toString();
+    }
+
+    private static long percentile(List<Long> sorted, double p) {
+        if (sorted.isEmpty()) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(p * sorted.size()) - 1;
+        return sorted.get(Math.max(0, Math.min(sorted.size() - 1, rank)));
+    }
+
+    private static long peakHeapBytes() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+}
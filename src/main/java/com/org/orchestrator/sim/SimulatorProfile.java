@@ -0,0 +1,120 @@
+package com.org.orchestrator.sim;
+
+import java.util.Random;
+
+/**
+ * How a {@link GitLabSimulator} behaves: pipeline durations, injected failures and rate limiting, artifact
+ * size and response latency. Read from {@code --sim*} arguments; anything not given keeps its default.
+ * <pre>
+ * --simPipelineMillis=2000      median pipeline duration
+ * --simDistribution=lognormal   fixed, uniform (median +- spread) or lognormal (sigma = spread)
+ * --simSpread=0.5
+ * --simFailureRate=0.0          fraction of pipelines that end failed
+ * --simRateLimitRate=0.0        fraction of requests answered 429 with Retry-After: 1
+ * --simServerErrorRate=0.0      fraction of requests answered 502, for triggers after creating the pipeline
+ * --simOutage=10000:30000       answer everything with 503 for 30 s starting 10 s after startup
+ * --simArtifactBytes=0          pad output.env to about this size
+ * --simLatencyMillis=0          added to every response
+ * --simSingleFile=true          serve /jobs/:id/artifacts/*path; false forces the archive download
+ * --simJobName=build
+ * --simSeed=42
+ * </pre>
+ */
+public class SimulatorProfile {
+    private long pipelineMillis = 2000;
+    private String distribution = "fixed";
+    private double spread = 0.5;
+    private double failureRate = 0;
+    private double rateLimitRate = 0;
+    private double serverErrorRate = 0;
+    private long outageFromMillis = 0;
+    private long outageMillis = 0;
+    private int artifactBytes = 0;
+    private long latencyMillis = 0;
+    private boolean singleFile = true;
+    private String jobName = "build";
+    private long seed = 42;
+
+    public static SimulatorProfile fromArgs(String[] args) {
+        SimulatorProfile profile = new SimulatorProfile();
+        for (String arg : args) {
+            if (arg.startsWith("--simPipelineMillis=")) {
+                profile.pipelineMillis = Long.parseLong(arg.substring("--simPipelineMillis=".length()));
+            } else if (arg.startsWith("--simDistribution=")) {
+                profile.distribution = arg.substring("--simDistribution=".length()).trim().toLowerCase();
+            } else if (arg.startsWith("--simSpread=")) {
+                profile.spread = Double.parseDouble(arg.substring("--simSpread=".length()));
+            } else if (arg.startsWith("--simFailureRate=")) {
+                profile.failureRate = Double.parseDouble(arg.substring("--simFailureRate=".length()));
+            } else if (arg.startsWith("--simRateLimitRate=")) {
+                profile.rateLimitRate = Double.parseDouble(arg.substring("--simRateLimitRate=".length()));
+            } else if (arg.startsWith("--simServerErrorRate=")) {
+                profile.serverErrorRate = Double.parseDouble(arg.substring("--simServerErrorRate=".length()));
+            } else if (arg.startsWith("--simOutage=")) {
+                String[] window = arg.substring("--simOutage=".length()).split(":");
+                profile.outageFromMillis = Long.parseLong(window[0].trim());
+                profile.outageMillis = Long.parseLong(window[1].trim());
+            } else if (arg.startsWith("--simArtifactBytes=")) {
+                profile.artifactBytes = Integer.parseInt(arg.substring("--simArtifactBytes=".length()));
+            } else if (arg.startsWith("--simLatencyMillis=")) {
+                profile.latencyMillis = Long.parseLong(arg.substring("--simLatencyMillis=".length()));
+            } else if (arg.startsWith("--simSingleFile=")) {
+                profile.singleFile = Boolean.parseBoolean(arg.substring("--simSingleFile=".length()));
+            } else if (arg.startsWith("--simJobName=")) {
+                profile.jobName = arg.substring("--simJobName=".length()).trim();
+            } else if (arg.startsWith("--simSeed=")) {
+                profile.seed = Long.parseLong(arg.substring("--simSeed=".length()));
+            }
+        }
+        if (!profile.distribution.equals("fixed") && !profile.distribution.equals("uniform") && !profile.distribution.equals("lognormal")) {
+            throw new IllegalArgumentException("Unknown --simDistribution: " + profile.distribution);
+        }
+        return profile;
+    }
+
+    /**
+     * A profile with fixed-length pipelines and nothing injected.
+     */
+    public static SimulatorProfile fixed(long pipelineMillis, String jobName) {
+        SimulatorProfile profile = new SimulatorProfile();
+        profile.pipelineMillis = pipelineMillis;
+        profile.jobName = jobName;
+        return profile;
+    }
+
+    /**
+     * Draws the duration of one pipeline.
+     */
+    long sampleDuration(Random random) {
+        switch (distribution) {
+            case "uniform":
+                return Math.max(1, Math.round(pipelineMillis * (1 + spread * (2 * random.nextDouble() - 1))));
+            case "lognormal":
+                return Math.max(1, Math.round(pipelineMillis * Math.exp(spread * random.nextGaussian())));
+            default:
+                return pipelineMillis;
+        }
+    }
+
+    public long getPipelineMillis() { return pipelineMillis; }
+    public String getDistribution() { return distribution; }
+    public double getSpread() { return spread; }
+    public double getFailureRate() { return failureRate; }
+    public double getRateLimitRate() { return rateLimitRate; }
+    public double getServerErrorRate() { return serverErrorRate; }
+    public long getOutageFromMillis() { return outageFromMillis; }
+    public long getOutageMillis() { return outageMillis; }
+    public int getArtifactBytes() { return artifactBytes; }
+    public long getLatencyMillis() { return latencyMillis; }
+    public boolean isSingleFile() { return singleFile; }
+    public String getJobName() { return jobName; }
+    public long getSeed() { return seed; }
+
+    @Override
+    public String toString() {
+        return "pipelines " + pipelineMillis + " ms " + distribution + (distribution.equals("fixed") ? "" : " (spread " + spread + ")")
+                + ", failure rate " + failureRate + ", 429 rate " + rateLimitRate + ", 5xx rate " + serverErrorRate
+                + (outageMillis > 0 ? ", outage " + outageMillis + " ms after " + outageFromMillis + " ms" : "") + ", artifact " + artifactBytes + " bytes"
+                + (singleFile ? "" : " (archive only)") + ", latency " + latencyMillis + " ms";
+    }
+}
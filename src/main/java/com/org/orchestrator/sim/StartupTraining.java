@@ -0,0 +1,60 @@
+package com.org.orchestrator.sim;
+
+import com.org.orchestrator.AppMain;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Runs a small flow end to end against a {@link GitLabSimulator} and reports how long after JVM start
+ * the first pipeline was triggered. The {@code appcds} build profile uses it both as the training run
+ * for the class data sharing archive and to measure startup with and without that archive.
+ * <pre>
+ * java [-XX:SharedArchiveFile=orchestrator.jsa] -cp orchestrator.jar com.org.orchestrator.sim.StartupTraining [label] [results.txt]
+ * </pre>
+ * The flow covers both variable formats, a dependent row and artifact outputs, so the classes of every
+ * stage up to the reports are loaded.
+ */
+public class StartupTraining {
+
+    public static void main(String[] args) throws IOException {
+        String label = args.length > 0 ? args[0] : "run";
+        Path results = args.length > 1 ? Paths.get(args[1]) : null;
+        Path dir = Files.createTempDirectory("startup-training");
+        Path csv = dir.resolve("training.csv");
+        Files.write(csv, List.of(
+                "applicationName,projectId,accessToken,branch,variablesAndValues,artifactJobName,order",
+                "build,1,training-token,main,\"{\"\"MODE\"\":\"\"training\"\"}\",build,1",
+                "deploy,2,training-token,main,\"TARGET=sim,REGION=local\",build,2"), StandardCharsets.UTF_8);
+
+        Instant firstTrigger;
+        try (GitLabSimulator gitlab = new GitLabSimulator(0, 200, "build")) {
+            AppMain.main(new String[]{"--input=" + csv, "--gitlabBaseUrl=" + gitlab.getBaseUrl(),
+                    "--pollInterval=1", "--minPollInterval=1"});
+            firstTrigger = gitlab.getFirstTrigger();
+        } finally {
+            Files.deleteIfExists(csv);
+            Files.deleteIfExists(dir);
+        }
+
+        Instant jvmStart = ProcessHandle.current().info().startInstant().orElse(null);
+        if (firstTrigger == null || jvmStart == null) {
+            System.err.println("Startup training (" + label + ") did not trigger a pipeline.");
+            System.exit(1);
+        }
+        String line = label + ": time to first trigger " + Duration.between(jvmStart, firstTrigger).toMillis() + " ms";
+        System.out.println(line);
+        if (results != null) {
+            Files.createDirectories(results.toAbsolutePath().getParent());
+            Files.writeString(results, line + System.lineSeparator(), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+    }
+}
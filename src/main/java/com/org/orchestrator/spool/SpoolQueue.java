@@ -0,0 +1,284 @@
+package com.org.orchestrator.spool;
+
+import com.org.orchestrator.model.ExecutionSummary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Queue of CSV flows in a directory shared by several orchestrator processes.
+ * <pre>
+ * pending/&lt;flow&gt;.csv            waiting to be claimed
+ * leased/&lt;worker&gt;/&lt;flow&gt;.csv   being run by that worker; the modification time is its heartbeat
+ * results/&lt;flow&gt;.csv.json      execution summary written by the worker that ran it
+ * </pre>
+ * Claiming is an atomic rename from {@code pending} into the worker's lease directory, so exactly one
+ * process wins each flow without any locking. Workers refresh their leases every third of the lease
+ * timeout; a lease not refreshed within the timeout belongs to a dead worker and is renamed back into
+ * {@code pending} by whichever process notices first. The next claimant resumes it from the dead worker's
+ * journal, so pipelines that were already triggered are re-attached rather than triggered again.
+ */
+public class SpoolQueue implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(SpoolQueue.class);
+
+    private final Path pending;
+    private final Path leased;
+    private final Path results;
+    private final Path leaseDir;
+    private final Path journalDir;
+    private final String workerId;
+    private final long leaseTimeoutMillis;
+    private final Map<String, Lease> held = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "spool-heartbeat");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * @param journalDir where flows write their journals, used to resume reclaimed flows; may be {@code null}
+     */
+    public SpoolQueue(Path dir, String workerId, long leaseTimeoutMillis, Path journalDir) throws IOException {
+        this.pending = Files.createDirectories(dir.resolve("pending"));
+        this.leased = Files.createDirectories(dir.resolve("leased"));
+        this.results = Files.createDirectories(dir.resolve("results"));
+        this.leaseDir = Files.createDirectories(leased.resolve(workerId));
+        this.journalDir = journalDir;
+        this.workerId = workerId;
+        this.leaseTimeoutMillis = leaseTimeoutMillis;
+        long beat = Math.max(1, leaseTimeoutMillis / 3);
+        heartbeat.scheduleWithFixedDelay(this::renewLeases, beat, beat, TimeUnit.MILLISECONDS);
+        log.info("Worker {} using spool directory {} (lease timeout {} ms)", workerId, dir.toAbsolutePath(), leaseTimeoutMillis);
+    }
+
+    /**
+     * Copies the CSVs into the queue and returns their flow names, which are the file names made unique
+     * within the spool.
+     */
+    public List<String> enqueue(List<Path> csvs) throws IOException {
+        List<String> names = new ArrayList<>();
+        for (Path csv : csvs) {
+            String fileName = csv.getFileName().toString();
+            for (int n = 2; ; n++) {
+                String name = uniqueName(fileName, n);
+                if (Files.exists(pending.resolve(name)) || Files.exists(results.resolve(name + ".json")) || isLeased(name)) {
+                    continue;
+                }
+                Path tmp = pending.resolve("." + name + ".tmp");
+                Files.copy(csv, tmp, StandardCopyOption.REPLACE_EXISTING);
+                try {
+                    Files.move(tmp, pending.resolve(name), StandardCopyOption.ATOMIC_MOVE);
+                } catch (FileAlreadyExistsException e) {
+                    Files.deleteIfExists(tmp);
+                    continue;
+                }
+                names.add(name);
+                log.info("Queued {} as flow {}", csv, name);
+                break;
+            }
+        }
+        return names;
+    }
+
+    private static String uniqueName(String fileName, int n) {
+        if (n == 2) {
+            return fileName;
+        }
+        int dot = fileName.lastIndexOf('.');
+        return dot > 0 ? fileName.substring(0, dot) + "-" + (n - 1) + fileName.substring(dot) : fileName + "-" + (n - 1);
+    }
+
+    private boolean isLeased(String name) throws IOException {
+        try (Stream<Path> workers = Files.list(leased)) {
+            return workers.anyMatch(w -> Files.exists(w.resolve(name)));
+        }
+    }
+
+    /**
+     * Claims the next pending flow, first returning expired leases of dead workers to the queue.
+     * Returns {@code null} when nothing is pending.
+     */
+    public Lease claim() throws IOException {
+        reclaimExpired();
+        for (Path candidate : list(pending)) {
+            String name = candidate.getFileName().toString();
+            Path target = leaseDir.resolve(name);
+            try {
+                // Refresh the timestamp first: a rename keeps it, and a stale one would look expired.
+                Files.setLastModifiedTime(candidate, FileTime.fromMillis(System.currentTimeMillis()));
+                Files.move(candidate, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (NoSuchFileException | FileAlreadyExistsException e) {
+                continue; // another worker was faster
+            }
+            Lease lease = new Lease(name, target, latestJournal(name));
+            held.put(name, lease);
+            log.info("Worker {} claimed flow {}{}", workerId, name, lease.resumeJournal == null ? "" : " (resuming from " + lease.resumeJournal + ")");
+            return lease;
+        }
+        return null;
+    }
+
+    private Path latestJournal(String name) throws IOException {
+        if (journalDir == null || !Files.isDirectory(journalDir)) {
+            return null;
+        }
+        try (Stream<Path> journals = Files.list(journalDir)) {
+            return journals.filter(j -> j.getFileName().toString().startsWith(name + "-") && j.getFileName().toString().endsWith(".journal"))
+                    .max(Comparator.comparing(SpoolQueue::lastModified))
+                    .orElse(null);
+        }
+    }
+
+    /**
+     * Publishes the flow's result and gives up its lease. Its journals are no longer needed once the result
+     * is in place. Nothing is published for a lease that was lost.
+     */
+    public void complete(Lease lease, ExecutionSummary summary) throws IOException {
+        held.remove(lease.name);
+        if (lease.lost.isDone() || !Files.exists(lease.csv)) {
+            // The worker that reclaimed the flow publishes its result and resumes from its journals.
+            log.warn("Not publishing the result of flow {}: the lease was lost and another worker runs the flow.", lease.name);
+            return;
+        }
+        SummaryFiles.write(results.resolve(lease.name + ".json"), summary);
+        if (!Files.deleteIfExists(lease.csv)) {
+            log.warn("Lease on flow {} had expired and been reclaimed before it finished; another worker may run it again.", lease.name);
+        }
+        if (journalDir != null && Files.isDirectory(journalDir)) {
+            try (Stream<Path> journals = Files.list(journalDir)) {
+                for (Path j : journals.filter(j -> j.getFileName().toString().startsWith(lease.name + "-")).collect(Collectors.toList())) {
+                    Files.deleteIfExists(j);
+                }
+            }
+        }
+        log.info("Worker {} finished flow {}: {}", workerId, lease.name, summary.getStatus());
+    }
+
+    /**
+     * The result of a flow, or {@code null} while it has not finished.
+     */
+    public ExecutionSummary result(String name) throws IOException {
+        Path file = results.resolve(name + ".json");
+        return Files.exists(file) ? SummaryFiles.read(file) : null;
+    }
+
+    /**
+     * Whether no flow is pending or leased by any worker.
+     */
+    public boolean isDrained() throws IOException {
+        if (!list(pending).isEmpty()) {
+            return false;
+        }
+        for (Path worker : list(leased)) {
+            if (Files.isDirectory(worker) && !list(worker).isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void reclaimExpired() throws IOException {
+        long now = System.currentTimeMillis();
+        for (Path worker : list(leased)) {
+            if (!Files.isDirectory(worker)) {
+                continue;
+            }
+            for (Path lease : list(worker)) {
+                long age = now - lastModified(lease).toMillis();
+                if (age <= leaseTimeoutMillis) {
+                    continue;
+                }
+                try {
+                    Files.move(lease, pending.resolve(lease.getFileName()), StandardCopyOption.ATOMIC_MOVE);
+                    log.warn("Reclaimed flow {} from worker {}, whose lease expired {} s ago", lease.getFileName(), worker.getFileName(), age / 1000);
+                } catch (NoSuchFileException | FileAlreadyExistsException e) {
+                    // finished or reclaimed by someone else meanwhile
+                }
+            }
+        }
+    }
+
+    private void renewLeases() {
+        FileTime now = FileTime.fromMillis(System.currentTimeMillis());
+        for (Lease lease : held.values()) {
+            try {
+                Files.setLastModifiedTime(lease.csv, now);
+            } catch (NoSuchFileException e) {
+                held.remove(lease.name);
+                log.error("Lost the lease on flow {}; it was reclaimed by another worker.", lease.name);
+                lease.lost.complete("the lease on flow " + lease.name + " was reclaimed by another worker");
+            } catch (IOException e) {
+                log.warn("Failed to renew lease on flow {}: {}", lease.name, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Visible entries of a directory in name order, skipping temporary files.
+     */
+    private static List<Path> list(Path dir) throws IOException {
+        try (Stream<Path> entries = Files.list(dir)) {
+            return entries.filter(p -> !p.getFileName().toString().startsWith("."))
+                    .sorted()
+                    .collect(Collectors.toList());
+        } catch (NoSuchFileException e) {
+            return new ArrayList<>();
+        }
+    }
+
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(System.currentTimeMillis());
+        }
+    }
+
+    @Override
+    public void close() {
+        heartbeat.shutdownNow();
+    }
+
+    public static final class Lease {
+        private final String name;
+        private final Path csv;
+        private final Path resumeJournal;
+        private final CompletableFuture<String> lost = new CompletableFuture<>();
+
+        private Lease(String name, Path csv, Path resumeJournal) {
+            this.name = name;
+            this.csv = csv;
+            this.resumeJournal = resumeJournal;
+        }
+
+        public String getName() { return name; }
+        public Path getCsv() { return csv; }
+        public Path getResumeJournal() { return resumeJournal; }
+
+        /**
+         * Completes with the reason once the heartbeat finds the lease reclaimed by another worker; the
+         * flow must then stop.
+         */
+        public CompletableFuture<String> whenLost() {
+            return lost;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.org.orchestrator.spool;
+
+import com.org.orchestrator.executor.CsvFlowWorker;
+import com.org.orchestrator.executor.FlowExecutor;
+import com.org.orchestrator.model.ExecutionSummary;
+import com.org.orchestrator.model.PipelineResult;
+import com.org.orchestrator.report.ReportSink;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.function.BiFunction;
+
+/**
+ * Work loop of a process taking part in a spool: claims flows while it has free capacity, and, as the
+ * coordinator of the flows it queued itself, reports each of them once some worker has published its result.
+ * <p>
+ * A coordinator returns when all of its own flows have results; a plain worker returns when the spool is
+ * drained. Either only returns once the flows it is running itself have finished.
+ */
+public class SpoolRunner {
+    private static final Logger log = LoggerFactory.getLogger(SpoolRunner.class);
+
+    private static final long IDLE_MILLIS = 1000;
+
+    private final SpoolQueue queue;
+    private final FlowExecutor executor;
+    private final BiFunction<Path, Path, CsvFlowWorker> flows;
+
+    /**
+     * @param flows creates the worker running a claimed CSV, given the CSV and the journal to resume from (or {@code null})
+     */
+    public SpoolRunner(SpoolQueue queue, FlowExecutor executor, BiFunction<Path, Path, CsvFlowWorker> flows) {
+        this.queue = queue;
+        this.executor = executor;
+        this.flows = flows;
+    }
+
+    /**
+     * @param ownFlows flows this process queued and reports, empty for a plain worker
+     * @param report   where results of {@code ownFlows} go, {@code null} for a plain worker
+     */
+    public void run(List<String> ownFlows, ReportSink report) throws IOException, InterruptedException {
+        int capacity = executor.getConcurrency();
+        Semaphore slots = new Semaphore(capacity);
+        Set<String> unreported = new LinkedHashSet<>(ownFlows);
+        while (true) {
+            while (slots.tryAcquire()) {
+                SpoolQueue.Lease lease = queue.claim();
+                if (lease == null) {
+                    slots.release();
+                    break;
+                }
+                CsvFlowWorker worker = flows.apply(lease.getCsv(), lease.getResumeJournal());
+                // Its pipelines stay: the worker that reclaimed the flow re-attaches to them.
+                lease.whenLost().thenAccept(worker::abandon);
+                executor.submit(worker)
+                        .handle((summary, e) -> e == null ? summary : failed(lease, e))
+                        .thenAccept(summary -> publish(lease, summary))
+                        .whenComplete((v, e) -> slots.release());
+            }
+            for (Iterator<String> it = unreported.iterator(); it.hasNext(); ) {
+                String name = it.next();
+                ExecutionSummary summary = queue.result(name);
+                if (summary != null) {
+                    report.append(summary);
+                    it.remove();
+                }
+            }
+            boolean idle = slots.availablePermits() == capacity;
+            if (idle && (ownFlows.isEmpty() ? queue.isDrained() : unreported.isEmpty())) {
+                break;
+            }
+            Thread.sleep(IDLE_MILLIS);
+        }
+        log.info(ownFlows.isEmpty() ? "Spool drained, worker stopping." : "All {} queued flows have results.", ownFlows.size());
+    }
+
+    private ExecutionSummary failed(SpoolQueue.Lease lease, Throwable e) {
+        log.error("Flow {} failed unexpectedly", lease.getName(), e);
+        ExecutionSummary summary = new ExecutionSummary(lease.getName());
+        summary.addPipelineResult(new PipelineResult(-1, "ERROR: " + e.getMessage(), Collections.emptyMap(), Collections.emptyMap()));
+        return summary;
+    }
+
+    private void publish(SpoolQueue.Lease lease, ExecutionSummary summary) {
+        try {
+            queue.complete(lease, summary);
+        } catch (IOException e) {
+            log.error("Failed to publish the result of flow {}; its lease will expire and it will run again.", lease.getName(), e);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.org.orchestrator.spool;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.org.orchestrator.model.ExecutionSummary;
+import com.org.orchestrator.model.PipelineResult;
+import com.org.orchestrator.model.PipelineTimings;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * JSON form of an {@link ExecutionSummary}, written by the worker that ran a flow and read by the
+ * coordinator that reports it.
+ */
+final class SummaryFiles {
+    private static final ObjectMapper jsonMapper = new ObjectMapper();
+
+    private SummaryFiles() {
+    }
+
+    static void write(Path file, ExecutionSummary summary) throws IOException {
+        ObjectNode root = jsonMapper.createObjectNode();
+        root.put("csvName", summary.getCsvName());
+        root.put("status", summary.getStatus());
+        if (summary.getCancelReason() != null) {
+            root.put("cancelReason", summary.getCancelReason());
+        }
+        ArrayNode results = root.putArray("results");
+        for (PipelineResult pr : summary.getPipelineResults()) {
+            ObjectNode node = results.addObject();
+            node.put("pipelineId", pr.getPipelineId());
+            node.put("status", pr.getStatus());
+            writeMap(node.putObject("mergedVars"), pr.getMergedVars());
+            writeMap(node.putObject("rowVars"), pr.getRowVars());
+            PipelineTimings t = pr.getTimings();
+            ObjectNode timings = node.putObject("timings");
+            putInstant(timings, "triggerRequested", t.getTriggerRequested());
+            putInstant(timings, "created", t.getCreated());
+            putInstant(timings, "firstRunning", t.getFirstRunning());
+            putInstant(timings, "finished", t.getFinished());
+            putInstant(timings, "artifactListed", t.getArtifactListed());
+            putInstant(timings, "artifactParsed", t.getArtifactParsed());
+        }
+        Path tmp = file.resolveSibling("." + file.getFileName() + ".tmp");
+        jsonMapper.writeValue(tmp.toFile(), root);
+        Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    static ExecutionSummary read(Path file) throws IOException {
+        JsonNode root = jsonMapper.readTree(file.toFile());
+        ExecutionSummary summary = new ExecutionSummary(root.path("csvName").asText());
+        for (JsonNode node : root.path("results")) {
+            JsonNode t = node.path("timings");
+            PipelineTimings timings = new PipelineTimings();
+            timings.setTriggerRequested(instant(t, "triggerRequested"));
+            timings.setCreated(instant(t, "created"));
+            timings.setFirstRunning(instant(t, "firstRunning"));
+            timings.setFinished(instant(t, "finished"));
+            timings.setArtifactListed(instant(t, "artifactListed"));
+            timings.setArtifactParsed(instant(t, "artifactParsed"));
+            summary.addPipelineResult(new PipelineResult(node.path("pipelineId").asLong(), node.path("status").asText(),
+                    readMap(node.path("mergedVars")), readMap(node.path("rowVars")), timings));
+        }
+        if ("CANCELLED".equals(root.path("status").asText())) {
+            summary.markCancelled(root.path("cancelReason").asText(null));
+        }
+        return summary;
+    }
+
+    private static void writeMap(ObjectNode node, Map<String, String> map) {
+        if (map != null) {
+            map.forEach(node::put);
+        }
+    }
+
+    private static Map<String, String> readMap(JsonNode node) {
+        Map<String, String> map = new HashMap<>();
+        node.fields().forEachRemaining(e -> map.put(e.getKey(), e.getValue().isNull() ? null : e.getValue().asText()));
+        return map;
+    }
+
+    private static void putInstant(ObjectNode node, String name, Instant value) {
+        if (value != null) {
+            node.put(name, value.toString());
+        }
+    }
+
+    private static Instant instant(JsonNode node, String name) {
+        JsonNode value = node.get(name);
+        return value == null || value.isNull() ? null : Instant.parse(value.asText());
+    }
+}
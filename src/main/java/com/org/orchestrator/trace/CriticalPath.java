@@ -0,0 +1,152 @@
+package com.org.orchestrator.trace;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The chain of rows the end of a run waited for, and where its time went.
+ * <p>
+ * The run ends with the flow that finishes last. Starting from that flow's last row, the path steps back
+ * each time to the row of the flow released most recently before the current row started, which is the
+ * dependency the row most likely waited for, until no row is left. Each row's share of the path, from its
+ * start until it released the next row, is split into its phases; a phase overlapped by a later one (the
+ * pipeline still running while an early-released artifact is fetched) counts only until the later one
+ * starts. A pipeline never seen running between two polls is not split and counts as {@code pipeline}.
+ * Time between a row being released and the next one starting is {@code handoff}, time a flow
+ * spent waiting for a flow thread is {@code flow queued}, and the rest of a row (cache lookups,
+ * bookkeeping) is {@code other}.
+ */
+final class CriticalPath {
+    private static final List<String> PHASES = List.of("slot wait", "trigger", "pipeline", "pending", "running", "artifact");
+
+    private CriticalPath() {
+    }
+
+    static String describe(String runId, List<Span> spans) {
+        Map<Long, List<Span>> children = new HashMap<>();
+        for (Span s : spans) {
+            children.computeIfAbsent(s.parentId, k -> new ArrayList<>()).add(s);
+        }
+        List<Span> flows = children.getOrDefault(0L, List.of());
+        if (flows.isEmpty()) {
+            return "Critical path of run " + runId + ": no flows were traced.\n";
+        }
+        long runStart = flows.stream().mapToLong(f -> f.startMicros).min().getAsLong();
+        Span last = flows.stream().max(Comparator.comparingLong((Span f) -> f.endMicros)).get();
+
+        List<Span> rows = children.getOrDefault(last.id, List.of());
+        Deque<Span> path = new ArrayDeque<>();
+        Set<Span> seen = new HashSet<>();
+        Span current = rows.stream().max(Comparator.comparingLong((Span r) -> r.endMicros)).orElse(null);
+        while (current != null) {
+            path.addFirst(current);
+            seen.add(current);
+            long start = current.startMicros;
+            current = rows.stream()
+                    .filter(r -> !seen.contains(r) && r.releasedMicros <= start)
+                    .max(Comparator.comparingLong((Span r) -> r.releasedMicros))
+                    .orElse(null);
+        }
+
+        Map<String, Long> total = new LinkedHashMap<>();
+        total.put("flow queued", last.startMicros - runStart);
+        for (String phase : PHASES) {
+            total.put(phase, 0L);
+        }
+        total.put("handoff", 0L);
+        total.put("other", 0L);
+        StringBuilder detail = new StringBuilder();
+        long previous = last.startMicros;
+        for (Span row : path) {
+            long until = row == path.peekLast() ? row.endMicros : row.releasedMicros;
+            Map<String, Long> phases = phases(row, until, children);
+            long share = until - row.startMicros;
+            long other = share - phases.values().stream().mapToLong(Long::longValue).sum();
+            total.merge("handoff", Math.max(0, row.startMicros - previous), Long::sum);
+            total.merge("other", other, Long::sum);
+            phases.forEach((phase, micros) -> total.merge(phase, micros, Long::sum));
+            previous = until;
+
+            detail.append(String.format("  +%.1f s  %s", seconds(row.startMicros - runStart), row.row));
+            if (row.pipelineId > 0) {
+                detail.append(" (pipeline ").append(row.pipelineId).append(')');
+            }
+            detail.append(String.format(" %s, %.1f s", row.status, seconds(share)));
+            StringBuilder split = new StringBuilder();
+            phases.forEach((phase, micros) -> {
+                if (micros > 0) {
+                    split.append(split.length() == 0 ? "" : ", ").append(String.format("%s %.1f s", phase, seconds(micros)));
+                }
+            });
+            if (split.length() > 0) {
+                detail.append(": ").append(split);
+            }
+            detail.append(System.lineSeparator());
+        }
+        total.put("flow wrap-up", last.endMicros - previous);
+
+        long wall = last.endMicros - runStart;
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Critical path of run %s: %.1f s until flow %s finished (%s), through %d of its %d rows.",
+                runId, seconds(wall), last.name, last.status, path.size(), rows.size()));
+        StringBuilder headline = new StringBuilder();
+        total.entrySet().stream()
+                .filter(e -> percent(e.getValue(), wall) >= 0.5)
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .forEach(e -> headline.append(headline.length() == 0 ? " " : ", ")
+                        .append(String.format("%s %.0f%%", e.getKey(), percent(e.getValue(), wall))));
+        sb.append(headline).append(System.lineSeparator());
+        for (Map.Entry<String, Long> e : total.entrySet()) {
+            sb.append(String.format("  %-13s %9.1f s %5.1f%%%n", e.getKey(), seconds(e.getValue()), percent(e.getValue(), wall)));
+        }
+        if (!path.isEmpty()) {
+            sb.append("Rows on the path:").append(System.lineSeparator()).append(detail);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Time per phase of {@code row} until {@code until}, each phase cut off where the next one starts.
+     */
+    private static Map<String, Long> phases(Span row, long until, Map<Long, List<Span>> children) {
+        List<Span> leaves = new ArrayList<>();
+        for (Span phase : children.getOrDefault(row.id, List.of())) {
+            List<Span> split = children.getOrDefault(phase.id, List.of());
+            if (phase.name.equals("pipeline") && !split.isEmpty()) {
+                leaves.addAll(split);
+            } else {
+                leaves.add(phase);
+            }
+        }
+        leaves.sort(Comparator.comparingLong((Span s) -> s.startMicros));
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (int i = 0; i < leaves.size(); i++) {
+            Span phase = leaves.get(i);
+            long end = Math.min(phase.endMicros, until);
+            if (i + 1 < leaves.size()) {
+                end = Math.min(end, leaves.get(i + 1).startMicros);
+            }
+            long start = Math.max(phase.startMicros, row.startMicros);
+            if (end > start && PHASES.contains(phase.name)) {
+                result.merge(phase.name, end - start, Long::sum);
+            }
+        }
+        return result;
+    }
+
+    private static double seconds(long micros) {
+        return micros / 1_000_000.0;
+    }
+
+    private static double percent(long micros, long wall) {
+        return wall <= 0 ? 0 : 100.0 * micros / wall;
+    }
+}
@@ -0,0 +1,388 @@
+package com.org.orchestrator.trace;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.org.orchestrator.model.PipelineTimings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Spans of one run, written out as traces when the run ends.
+ * <p>
+ * Every flow is a root span, every row a child of its flow, and the phases of a row children of the row:
+ * {@code slot wait} for a project or runner group slot, {@code trigger} until GitLab created the pipeline,
+ * {@code pipeline} until it finished (itself split into {@code pending} and {@code running}), and
+ * {@code artifact} from the end of the pipeline, or the artifact job's success for an early release,
+ * until output.env was parsed, with the {@code download} itself as its child. Phases are taken from the
+ * row's {@link PipelineTimings}, so they cost nothing while the run is going; a phase the row never
+ * reached is left out.
+ * <p>
+ * {@link #close()} writes three files to the trace directory:
+ * <ul>
+ *   <li>{@code trace-<runId>.json}: Chrome trace events, for {@code chrome://tracing} or Perfetto, with a
+ *   process per flow and a thread per lane of overlapping rows</li>
+ *   <li>{@code trace-<runId>.otlp.json}: the same spans as OTLP/JSON, for an OpenTelemetry collector or any
+ *   backend that imports it</li>
+ *   <li>{@code trace-<runId>-critical-path.txt}: the rows the run's end waited for, see {@link CriticalPath}</li>
+ * </ul>
+ * A daemon or spool worker has no end of run; it traces each flow on its own instead, writing the same files
+ * named {@code trace-<runId>-<flow>-<span>} as soon as the flow finishes and then dropping its spans.
+ */
+public class RunTrace implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(RunTrace.class);
+
+    private final Path dir;
+    private final String runId;
+    private final boolean perFlow;
+    private final AtomicLong nextId = new AtomicLong();
+    private final Map<Long, Queue<Span>> spans = new ConcurrentHashMap<>();
+    private final Map<Long, OpenFlow> open = new ConcurrentHashMap<>();
+
+    /**
+     * @param perFlow write each flow's trace when it finishes, for a process that runs flows indefinitely
+     */
+    public RunTrace(Path dir, String runId, boolean perFlow) throws IOException {
+        this.dir = Files.createDirectories(dir);
+        this.runId = runId;
+        this.perFlow = perFlow;
+        log.info("Tracing the {} to: {}", perFlow ? "flows" : "run", dir.toAbsolutePath());
+    }
+
+    /**
+     * @return the id of the flow's span, to pass to {@link #rowFinished} and {@link #flowFinished}
+     */
+    long flowStarted(String flow) {
+        long id = nextId.incrementAndGet();
+        spans.put(id, new ConcurrentLinkedQueue<>());
+        open.put(id, new OpenFlow(flow, Span.micros(Instant.now())));
+        return id;
+    }
+
+    void flowFinished(long flowSpan, String status) {
+        OpenFlow flow = open.remove(flowSpan);
+        Queue<Span> flowSpans = spans.get(flowSpan);
+        if (flow == null || flowSpans == null) {
+            return;
+        }
+        long end = Span.micros(Instant.now());
+        flowSpans.add(new Span(flowSpan, 0, Span.FLOW, flow.name, flow.startMicros, end, flow.name, null, -1, -1, status, end));
+        if (perFlow) {
+            spans.remove(flowSpan);
+            write("trace-" + runId + "-" + flow.name + "-" + flowSpan, new ArrayList<>(flowSpans));
+        }
+    }
+
+    /**
+     * Records a finished row and its phases; the row ends now.
+     */
+    void rowFinished(long flowSpan, String flow, String row, long projectId, long pipelineId, String status, PipelineTimings t) {
+        Queue<Span> flowSpans = spans.get(flowSpan);
+        if (flowSpans == null) {
+            return; // the flow's trace was already written
+        }
+        Instant end = Instant.now();
+        Instant start = first(t.getStarted(), t.getTriggerRequested(), t.getCreated(), end);
+        Instant released = t.getArtifactParsed() != null && t.getArtifactParsed().isBefore(end) ? t.getArtifactParsed() : end;
+        long rowSpan = nextId.incrementAndGet();
+        flowSpans.add(new Span(rowSpan, flowSpan, Span.ROW, row, Span.micros(start), Span.micros(end), flow, row,
+                projectId, pipelineId, status, Span.micros(released)));
+
+        phase(flowSpans, rowSpan, "slot wait", t.getStarted(), t.getTriggerRequested(), flow, row, projectId, pipelineId, null);
+        phase(flowSpans, rowSpan, "trigger", t.getTriggerRequested(), t.getCreated(), flow, row, projectId, pipelineId, null);
+        long pipeline = phase(flowSpans, rowSpan, "pipeline", t.getCreated(), t.getFinished(), flow, row, projectId, pipelineId, status);
+        if (pipeline != 0) {
+            phase(flowSpans, pipeline, "pending", t.getCreated(), t.getFirstRunning(), flow, row, projectId, pipelineId, null);
+            phase(flowSpans, pipeline, "running", t.getFirstRunning(), t.getFinished(), flow, row, projectId, pipelineId, null);
+        }
+        // Released early, the artifact was fetched while the pipeline was still running.
+        Instant artifactStart = t.getFinished() != null && t.getArtifactListed() != null && !t.getFinished().isAfter(t.getArtifactListed())
+                ? t.getFinished() : t.getArtifactListed();
+        long artifact = phase(flowSpans, rowSpan, "artifact", artifactStart, t.getArtifactParsed(), flow, row, projectId, pipelineId, null);
+        if (artifact != 0) {
+            phase(flowSpans, artifact, "download", t.getArtifactListed(), t.getArtifactParsed(), flow, row, projectId, pipelineId, null);
+        }
+    }
+
+    private long phase(Queue<Span> flowSpans, long parent, String name, Instant from, Instant to, String flow, String row, long projectId, long pipelineId, String status) {
+        if (from == null || to == null || to.isBefore(from)) {
+            return 0;
+        }
+        long id = nextId.incrementAndGet();
+        flowSpans.add(new Span(id, parent, Span.PHASE, name, Span.micros(from), Span.micros(to), flow, row, projectId, pipelineId, status, Span.micros(to)));
+        return id;
+    }
+
+    private static Instant first(Instant... candidates) {
+        for (Instant t : candidates) {
+            if (t != null) {
+                return t;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Ends flows that are still open and writes the trace files.
+     */
+    @Override
+    public void close() {
+        for (Long id : List.copyOf(open.keySet())) {
+            flowFinished(id, null);
+        }
+        if (!perFlow) {
+            List<Span> all = new ArrayList<>();
+            spans.values().forEach(all::addAll);
+            write("trace-" + runId, all);
+        }
+    }
+
+    private void write(String name, List<Span> all) {
+        all.sort(Comparator.comparingLong((Span s) -> s.startMicros).thenComparingLong(s -> s.id));
+        Path chrome = dir.resolve(name + ".json");
+        Path otlp = dir.resolve(name + ".otlp.json");
+        Path criticalPath = dir.resolve(name + "-critical-path.txt");
+        try {
+            writeChrome(chrome, all);
+            writeOtlp(otlp, all);
+            String summary = CriticalPath.describe(runId, all);
+            Files.writeString(criticalPath, summary, StandardCharsets.UTF_8);
+            log.info("Wrote {} spans to {} and {}. {}", all.size(), chrome, otlp, summary.lines().findFirst().orElse(""));
+        } catch (IOException e) {
+            log.error("Failed to write trace {} to {}", name, dir, e);
+        }
+    }
+
+    private static JsonGenerator generator(Path out) throws IOException {
+        return new JsonFactory().createGenerator(new BufferedOutputStream(Files.newOutputStream(out), 64 * 1024), JsonEncoding.UTF8);
+    }
+
+    private void writeChrome(Path out, List<Span> all) throws IOException {
+        long origin = all.isEmpty() ? 0 : all.get(0).startMicros;
+        Map<Long, Span> byId = new HashMap<>();
+        for (Span s : all) {
+            byId.put(s.id, s);
+        }
+        // A process per flow, in start order; a thread per lane of rows, with the flow itself on thread 0.
+        Map<Long, Integer> pids = new LinkedHashMap<>();
+        Map<Long, List<Long>> laneEnds = new HashMap<>();
+        Map<Long, Integer> tids = new HashMap<>();
+        for (Span s : all) {
+            Long flow = flowOf(s, byId);
+            if (flow == null) {
+                continue;
+            }
+            pids.putIfAbsent(flow, pids.size() + 1);
+            if (s.kind.equals(Span.ROW)) {
+                tids.put(s.id, lane(laneEnds.computeIfAbsent(flow, k -> new ArrayList<>()), s));
+            }
+        }
+        try (JsonGenerator json = generator(out)) {
+            json.writeStartObject();
+            json.writeArrayFieldStart("traceEvents");
+            for (Map.Entry<Long, Integer> e : pids.entrySet()) {
+                Span flow = byId.get(e.getKey());
+                int pid = e.getValue();
+                metadata(json, "process_name", pid, null, "name", flow == null ? "flow " + e.getKey() : flow.name);
+                metadata(json, "process_sort_index", pid, null, "sort_index", pid);
+                metadata(json, "thread_name", pid, 0, "name", "flow");
+                int lanes = laneEnds.getOrDefault(e.getKey(), List.of()).size();
+                for (int tid = 1; tid <= lanes; tid++) {
+                    metadata(json, "thread_name", pid, tid, "name", tid == 1 ? "rows" : "rows " + tid);
+                }
+            }
+            for (Span s : all) {
+                Long flow = flowOf(s, byId);
+                if (flow == null) {
+                    continue;
+                }
+                json.writeStartObject();
+                json.writeStringField("name", s.name);
+                json.writeStringField("cat", s.kind);
+                json.writeStringField("ph", "X");
+                json.writeNumberField("ts", s.startMicros - origin);
+                json.writeNumberField("dur", s.durationMicros());
+                json.writeNumberField("pid", pids.get(flow));
+                json.writeNumberField("tid", s.kind.equals(Span.FLOW) ? 0 : tids.getOrDefault(rowOf(s, byId), 1));
+                json.writeObjectFieldStart("args");
+                if (s.row != null) {
+                    json.writeStringField("row", s.row);
+                }
+                if (s.projectId >= 0) {
+                    json.writeNumberField("projectId", s.projectId);
+                }
+                if (s.pipelineId > 0) {
+                    json.writeNumberField("pipelineId", s.pipelineId);
+                }
+                if (s.status != null) {
+                    json.writeStringField("status", s.status);
+                }
+                json.writeEndObject();
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+            json.writeStringField("displayTimeUnit", "ms");
+            json.writeObjectFieldStart("otherData");
+            json.writeStringField("runId", runId);
+            json.writeStringField("startedAt", Instant.EPOCH.plusNanos(origin * 1000).toString());
+            json.writeEndObject();
+            json.writeEndObject();
+        }
+    }
+
+    private static Long rowOf(Span s, Map<Long, Span> byId) {
+        Span row = s;
+        while (row != null && !row.kind.equals(Span.ROW)) {
+            row = byId.get(row.parentId);
+        }
+        return row == null ? null : row.id;
+    }
+
+    private static Long flowOf(Span s, Map<Long, Span> byId) {
+        if (s.kind.equals(Span.FLOW)) {
+            return s.id;
+        }
+        Long row = rowOf(s, byId);
+        return row == null ? null : byId.get(row).parentId;
+    }
+
+    /**
+     * Puts a row on the first lane of its flow that is free when it starts, so that the complete events of
+     * a thread nest as the trace viewers expect. Rows arrive in start order.
+     */
+    private static int lane(List<Long> laneEnds, Span row) {
+        for (int i = 0; i < laneEnds.size(); i++) {
+            if (laneEnds.get(i) <= row.startMicros) {
+                laneEnds.set(i, row.endMicros);
+                return i + 1;
+            }
+        }
+        laneEnds.add(row.endMicros);
+        return laneEnds.size();
+    }
+
+    private static void metadata(JsonGenerator json, String name, int pid, Integer tid, String arg, Object value) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("name", name);
+        json.writeStringField("ph", "M");
+        json.writeNumberField("pid", pid);
+        if (tid != null) {
+            json.writeNumberField("tid", tid);
+        }
+        json.writeObjectFieldStart("args");
+        json.writeObjectField(arg, value);
+        json.writeEndObject();
+        json.writeEndObject();
+    }
+
+    private void writeOtlp(Path out, List<Span> all) throws IOException {
+        String traceId = UUID.randomUUID().toString().replace("-", "");
+        try (JsonGenerator json = generator(out)) {
+            json.writeStartObject();
+            json.writeArrayFieldStart("resourceSpans");
+            json.writeStartObject();
+            json.writeObjectFieldStart("resource");
+            json.writeArrayFieldStart("attributes");
+            stringAttribute(json, "service.name", "orchestrator");
+            stringAttribute(json, "orchestrator.run_id", runId);
+            json.writeEndArray();
+            json.writeEndObject();
+            json.writeArrayFieldStart("scopeSpans");
+            json.writeStartObject();
+            json.writeObjectFieldStart("scope");
+            json.writeStringField("name", "com.org.orchestrator");
+            json.writeEndObject();
+            json.writeArrayFieldStart("spans");
+            for (Span s : all) {
+                json.writeStartObject();
+                json.writeStringField("traceId", traceId);
+                json.writeStringField("spanId", String.format("%016x", s.id));
+                if (s.parentId != 0) {
+                    json.writeStringField("parentSpanId", String.format("%016x", s.parentId));
+                }
+                json.writeStringField("name", s.name);
+                json.writeNumberField("kind", 1); // SPAN_KIND_INTERNAL
+                json.writeStringField("startTimeUnixNano", s.startMicros + "000");
+                json.writeStringField("endTimeUnixNano", s.endMicros + "000");
+                json.writeArrayFieldStart("attributes");
+                stringAttribute(json, "orchestrator.span", s.kind);
+                stringAttribute(json, "orchestrator.flow", s.flow);
+                if (s.row != null) {
+                    stringAttribute(json, "orchestrator.row", s.row);
+                }
+                if (s.projectId >= 0) {
+                    intAttribute(json, "gitlab.project_id", s.projectId);
+                }
+                if (s.pipelineId > 0) {
+                    intAttribute(json, "gitlab.pipeline_id", s.pipelineId);
+                }
+                if (s.status != null) {
+                    stringAttribute(json, "orchestrator.status", s.status);
+                }
+                json.writeEndArray();
+                json.writeObjectFieldStart("status");
+                if (s.status != null) {
+                    // STATUS_CODE_OK or STATUS_CODE_ERROR; phases without a status of their own stay unset.
+                    json.writeNumberField("code", s.failed() ? 2 : 1);
+                    if (s.failed()) {
+                        json.writeStringField("message", s.status);
+                    }
+                }
+                json.writeEndObject();
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+            json.writeEndObject();
+            json.writeEndArray();
+            json.writeEndObject();
+            json.writeEndArray();
+            json.writeEndObject();
+        }
+    }
+
+    private static void stringAttribute(JsonGenerator json, String key, String value) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("key", key);
+        json.writeObjectFieldStart("value");
+        json.writeStringField("stringValue", value);
+        json.writeEndObject();
+        json.writeEndObject();
+    }
+
+    private static void intAttribute(JsonGenerator json, String key, long value) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("key", key);
+        json.writeObjectFieldStart("value");
+        json.writeStringField("intValue", Long.toString(value));
+        json.writeEndObject();
+        json.writeEndObject();
+    }
+
+    private static final class OpenFlow {
+        final String name;
+        final long startMicros;
+
+        OpenFlow(String name, long startMicros) {
+            this.name = name;
+            this.startMicros = startMicros;
+        }
+    }
+}
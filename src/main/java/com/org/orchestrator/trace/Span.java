@@ -0,0 +1,61 @@
+package com.org.orchestrator.trace;
+
+import java.time.Instant;
+
+/**
+ * One timed interval of a run: a flow, a row of a flow, or a phase of a row. Times are microseconds since
+ * the epoch. Attributes that do not apply to the span are {@code null} or {@code -1}.
+ */
+final class Span {
+    static final String FLOW = "flow";
+    static final String ROW = "row";
+    static final String PHASE = "phase";
+
+    final long id;
+    final long parentId;
+    final String kind;
+    final String name;
+    final long startMicros;
+    final long endMicros;
+    final String flow;
+    final String row;
+    final long projectId;
+    final long pipelineId;
+    final String status;
+    /**
+     * For rows, when the rows depending on it could start: the end, or earlier for a row released once its
+     * artifact job succeeded.
+     */
+    final long releasedMicros;
+
+    Span(long id, long parentId, String kind, String name, long startMicros, long endMicros, String flow, String row,
+         long projectId, long pipelineId, String status, long releasedMicros) {
+        this.id = id;
+        this.parentId = parentId;
+        this.kind = kind;
+        this.name = name;
+        this.startMicros = startMicros;
+        this.endMicros = endMicros;
+        this.flow = flow;
+        this.row = row;
+        this.projectId = projectId;
+        this.pipelineId = pipelineId;
+        this.status = status;
+        this.releasedMicros = releasedMicros;
+    }
+
+    long durationMicros() {
+        return endMicros - startMicros;
+    }
+
+    /**
+     * Whether the span ended badly: a row that did not succeed, or a flow that did not pass.
+     */
+    boolean failed() {
+        return status != null && !status.equalsIgnoreCase("success") && !status.equals("PASSED");
+    }
+
+    static long micros(Instant t) {
+        return t.getEpochSecond() * 1_000_000 + t.getNano() / 1000;
+    }
+}
@@ -0,0 +1,43 @@
+package com.org.orchestrator.trace;
+
+import com.org.orchestrator.model.PipelineTimings;
+
+/**
+ * Process-wide entry point for run traces. Every method is a no-op unless a {@link RunTrace} has been
+ * installed with {@code --traceDir}.
+ */
+public final class Tracing {
+    private static volatile RunTrace trace;
+
+    private Tracing() {
+    }
+
+    /**
+     * Records spans into {@code runTrace}, or stops recording them when {@code null}.
+     */
+    public static void install(RunTrace runTrace) {
+        trace = runTrace;
+    }
+
+    /**
+     * @return the flow's span, or 0 when the run is not traced
+     */
+    public static long flowStarted(String flow) {
+        RunTrace t = trace;
+        return t != null ? t.flowStarted(flow) : 0;
+    }
+
+    public static void flowFinished(long flowSpan, String status) {
+        RunTrace t = trace;
+        if (t != null && flowSpan != 0) {
+            t.flowFinished(flowSpan, status);
+        }
+    }
+
+    public static void rowFinished(long flowSpan, String flow, String row, long projectId, long pipelineId, String status, PipelineTimings timings) {
+        RunTrace t = trace;
+        if (t != null && flowSpan != 0) {
+            t.rowFinished(flowSpan, flow, row, projectId, pipelineId, status, timings);
+        }
+    }
+}
@@ -1,15 +1,75 @@
 package com.org.orchestrator.util;
 
+import java.net.InetAddress;
+import java.net.UnknownHostException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 public class Config {
     private List<Path> inputCsvs;
     private int maxThreads = 10;
+    private ExecutorMode executorMode = ExecutorMode.PLATFORM;
+    private int maxConcurrentFlows = 256;
+    private boolean parallelRows = false;
+    private int maxParallelRows = 8;
+    private boolean earlyRelease = false;
     private int pollInterval = 10; // seconds
+    private int minPollInterval = 2; // seconds
+    private int httpMaxConnPerRoute = 64;
+    private int httpMaxConnTotal = 256;
+    private int httpMaxStreams = 100;
+    private int httpConnectTimeout = 10; // seconds
+    private int httpResponseTimeout = 60; // seconds
+    private int httpKeepAlive = 30; // seconds
+    private String httpVersion = "negotiate";
+    private long artifactMaxBytes = 1024 * 1024;
+    private double rateLimitPerToken = 30; // requests per second
+    private double rateLimitPerHost = 100; // requests per second
+    private int rateLimitRetries = 20;
+    private int retryMax = 5;
+    private int retryTriggerMax = 3;
+    private long retryBaseMillis = 500;
+    private long retryMaxMillis = 30_000;
+    private int breakerThreshold = 5; // consecutive failures, 0 disables
+    private int breakerCooldown = 15; // seconds
+    private int rowTimeout = 0; // seconds, disabled
+    private int maxRuntime = 0; // seconds, disabled
+    private boolean failFast = false;
+    private Map<String, String> failFastGroups = Collections.emptyMap();
+    private boolean cancelOnShutdown = true;
+    private int metricsPort = 0; // disabled
+    private String metricsBind; // loopback
+    private int webhookPort = 0; // disabled
+    private String webhookSecret;
+    private int webhookFallbackInterval = 120; // seconds
+    private Path cacheDir; // disabled
+    private long cacheTtl = 3600; // seconds
+    private int cacheMaxEntries = 10_000;
+    private Path journalDir;
+    private long journalSyncMillis = 200;
+    private Path eventLogDir;
+    private long eventLogMaxBytes = 64L * 1024 * 1024;
+    private int eventLogBuffer = 65536; // events
+    private Path traceDir;
+    private List<Path> resumeJournals = Collections.emptyList();
+    private Path spoolDir;
+    private String workerId = defaultWorkerId();
+    private int leaseTimeout = 60; // seconds
+    private Map<String, Integer> flowWeights = Collections.emptyMap();
+    private int maxPipelinesPerProject = 0; // unlimited
+    private Map<Long, Integer> projectLimits = Collections.emptyMap();
+    private Map<String, Integer> runnerGroupLimits = Collections.emptyMap();
+    private boolean daemon = false;
+    private int daemonPort = 8091;
+    private Path daemonDir = Paths.get("daemon-flows");
+    private Path watchDir;
+    private final String runId = String.valueOf(System.currentTimeMillis());
     private String gitlabBaseUrl = "https://gitlab.com/api/v4";
     private String projectRoot;
 
@@ -28,24 +88,240 @@ public class Config {
                                            .collect(Collectors.toList());
             } else if (arg.startsWith("--maxThreads=")) {
                 config.maxThreads = Integer.parseInt(arg.substring("--maxThreads=".length()));
+            } else if (arg.startsWith("--executor=")) {
+                config.executorMode = ExecutorMode.valueOf(arg.substring("--executor=".length()).trim().toUpperCase());
+            } else if (arg.startsWith("--maxConcurrentFlows=")) {
+                config.maxConcurrentFlows = Integer.parseInt(arg.substring("--maxConcurrentFlows=".length()));
+            } else if (arg.startsWith("--parallelRows=")) {
+                config.parallelRows = Boolean.parseBoolean(arg.substring("--parallelRows=".length()));
+            } else if (arg.startsWith("--maxParallelRows=")) {
+                config.maxParallelRows = Integer.parseInt(arg.substring("--maxParallelRows=".length()));
+            } else if (arg.startsWith("--earlyRelease=")) {
+                config.earlyRelease = Boolean.parseBoolean(arg.substring("--earlyRelease=".length()));
             } else if (arg.startsWith("--pollInterval=")) {
                 config.pollInterval = Integer.parseInt(arg.substring("--pollInterval=".length()));
+            } else if (arg.startsWith("--minPollInterval=")) {
+                config.minPollInterval = Integer.parseInt(arg.substring("--minPollInterval=".length()));
+            } else if (arg.startsWith("--httpMaxConnPerRoute=")) {
+                config.httpMaxConnPerRoute = Integer.parseInt(arg.substring("--httpMaxConnPerRoute=".length()));
+            } else if (arg.startsWith("--httpMaxConnTotal=")) {
+                config.httpMaxConnTotal = Integer.parseInt(arg.substring("--httpMaxConnTotal=".length()));
+            } else if (arg.startsWith("--httpMaxStreams=")) {
+                config.httpMaxStreams = Integer.parseInt(arg.substring("--httpMaxStreams=".length()));
+            } else if (arg.startsWith("--httpConnectTimeout=")) {
+                config.httpConnectTimeout = Integer.parseInt(arg.substring("--httpConnectTimeout=".length()));
+            } else if (arg.startsWith("--httpResponseTimeout=")) {
+                config.httpResponseTimeout = Integer.parseInt(arg.substring("--httpResponseTimeout=".length()));
+            } else if (arg.startsWith("--httpKeepAlive=")) {
+                config.httpKeepAlive = Integer.parseInt(arg.substring("--httpKeepAlive=".length()));
+            } else if (arg.startsWith("--httpVersion=")) {
+                config.httpVersion = arg.substring("--httpVersion=".length()).trim().toLowerCase();
+            } else if (arg.startsWith("--artifactMaxBytes=")) {
+                config.artifactMaxBytes = Long.parseLong(arg.substring("--artifactMaxBytes=".length()));
+            } else if (arg.startsWith("--rateLimitPerToken=")) {
+                config.rateLimitPerToken = Double.parseDouble(arg.substring("--rateLimitPerToken=".length()));
+            } else if (arg.startsWith("--rateLimitPerHost=")) {
+                config.rateLimitPerHost = Double.parseDouble(arg.substring("--rateLimitPerHost=".length()));
+            } else if (arg.startsWith("--rateLimitRetries=")) {
+                config.rateLimitRetries = Integer.parseInt(arg.substring("--rateLimitRetries=".length()));
+            } else if (arg.startsWith("--retryMax=")) {
+                config.retryMax = Integer.parseInt(arg.substring("--retryMax=".length()));
+            } else if (arg.startsWith("--retryTriggerMax=")) {
+                config.retryTriggerMax = Integer.parseInt(arg.substring("--retryTriggerMax=".length()));
+            } else if (arg.startsWith("--retryBaseMillis=")) {
+                config.retryBaseMillis = Long.parseLong(arg.substring("--retryBaseMillis=".length()));
+            } else if (arg.startsWith("--retryMaxMillis=")) {
+                config.retryMaxMillis = Long.parseLong(arg.substring("--retryMaxMillis=".length()));
+            } else if (arg.startsWith("--breakerThreshold=")) {
+                config.breakerThreshold = Integer.parseInt(arg.substring("--breakerThreshold=".length()));
+            } else if (arg.startsWith("--breakerCooldown=")) {
+                config.breakerCooldown = Integer.parseInt(arg.substring("--breakerCooldown=".length()));
+            } else if (arg.startsWith("--rowTimeout=")) {
+                config.rowTimeout = Integer.parseInt(arg.substring("--rowTimeout=".length()));
+            } else if (arg.startsWith("--maxRuntime=")) {
+                config.maxRuntime = Integer.parseInt(arg.substring("--maxRuntime=".length()));
+            } else if (arg.equals("--failFast")) {
+                config.failFast = true;
+            } else if (arg.startsWith("--failFast=")) {
+                config.failFast = Boolean.parseBoolean(arg.substring("--failFast=".length()));
+            } else if (arg.startsWith("--failFastGroups=")) {
+                config.failFastGroups = parseStringMap(arg.substring("--failFastGroups=".length()));
+            } else if (arg.startsWith("--cancelOnShutdown=")) {
+                config.cancelOnShutdown = Boolean.parseBoolean(arg.substring("--cancelOnShutdown=".length()));
+            } else if (arg.startsWith("--metricsPort=")) {
+                config.metricsPort = Integer.parseInt(arg.substring("--metricsPort=".length()));
+            } else if (arg.startsWith("--metricsBind=")) {
+                config.metricsBind = arg.substring("--metricsBind=".length()).trim();
+            } else if (arg.startsWith("--webhookPort=")) {
+                config.webhookPort = Integer.parseInt(arg.substring("--webhookPort=".length()));
+            } else if (arg.startsWith("--webhookSecret=")) {
+                config.webhookSecret = arg.substring("--webhookSecret=".length());
+            } else if (arg.startsWith("--webhookFallbackInterval=")) {
+                config.webhookFallbackInterval = Integer.parseInt(arg.substring("--webhookFallbackInterval=".length()));
+            } else if (arg.startsWith("--cacheDir=")) {
+                config.cacheDir = Paths.get(arg.substring("--cacheDir=".length()).trim());
+            } else if (arg.startsWith("--cacheTtl=")) {
+                config.cacheTtl = Long.parseLong(arg.substring("--cacheTtl=".length()));
+            } else if (arg.startsWith("--cacheMaxEntries=")) {
+                config.cacheMaxEntries = Integer.parseInt(arg.substring("--cacheMaxEntries=".length()));
+            } else if (arg.startsWith("--journalDir=")) {
+                config.journalDir = Paths.get(arg.substring("--journalDir=".length()).trim());
+            } else if (arg.startsWith("--eventLogDir=")) {
+                config.eventLogDir = Paths.get(arg.substring("--eventLogDir=".length()).trim());
+            } else if (arg.startsWith("--eventLogMaxBytes=")) {
+                config.eventLogMaxBytes = Long.parseLong(arg.substring("--eventLogMaxBytes=".length()));
+            } else if (arg.startsWith("--eventLogBuffer=")) {
+                config.eventLogBuffer = Integer.parseInt(arg.substring("--eventLogBuffer=".length()));
+            } else if (arg.startsWith("--traceDir=")) {
+                config.traceDir = Paths.get(arg.substring("--traceDir=".length()).trim());
+            } else if (arg.startsWith("--journalSyncMillis=")) {
+                config.journalSyncMillis = Long.parseLong(arg.substring("--journalSyncMillis=".length()));
+            } else if (arg.startsWith("--resume=")) {
+                String journals = arg.substring("--resume=".length());
+                config.resumeJournals = Arrays.stream(journals.split(","))
+                                              .map(String::trim)
+                                              .map(Paths::get)
+                                              .collect(Collectors.toList());
+            } else if (arg.startsWith("--spoolDir=")) {
+                config.spoolDir = Paths.get(arg.substring("--spoolDir=".length()).trim());
+            } else if (arg.startsWith("--workerId=")) {
+                config.workerId = arg.substring("--workerId=".length()).trim();
+            } else if (arg.startsWith("--leaseTimeout=")) {
+                config.leaseTimeout = Integer.parseInt(arg.substring("--leaseTimeout=".length()));
+            } else if (arg.startsWith("--flowWeights=")) {
+                config.flowWeights = parseIntMap(arg.substring("--flowWeights=".length()));
+            } else if (arg.startsWith("--maxPipelinesPerProject=")) {
+                config.maxPipelinesPerProject = Integer.parseInt(arg.substring("--maxPipelinesPerProject=".length()));
+            } else if (arg.startsWith("--projectLimits=")) {
+                config.projectLimits = new HashMap<>();
+                parseIntMap(arg.substring("--projectLimits=".length())).forEach((k, v) -> config.projectLimits.put(Long.parseLong(k), v));
+            } else if (arg.startsWith("--runnerGroupLimits=")) {
+                config.runnerGroupLimits = parseIntMap(arg.substring("--runnerGroupLimits=".length()));
+            } else if (arg.equals("--daemon")) {
+                config.daemon = true;
+            } else if (arg.startsWith("--daemon=")) {
+                config.daemon = Boolean.parseBoolean(arg.substring("--daemon=".length()));
+            } else if (arg.startsWith("--daemonPort=")) {
+                config.daemonPort = Integer.parseInt(arg.substring("--daemonPort=".length()));
+            } else if (arg.startsWith("--daemonDir=")) {
+                config.daemonDir = Paths.get(arg.substring("--daemonDir=".length()).trim());
+            } else if (arg.startsWith("--watchDir=")) {
+                config.watchDir = Paths.get(arg.substring("--watchDir=".length()).trim());
             } else if (arg.startsWith("--gitlabBaseUrl=")) {
                 config.gitlabBaseUrl = arg.substring("--gitlabBaseUrl=".length());
             }
         }
 
-        if (config.inputCsvs == null || config.inputCsvs.isEmpty()) {
-            throw new IllegalArgumentException("Missing required argument: --input=\"file1.csv,file2.csv\"");
+        if (config.inputCsvs == null) {
+            config.inputCsvs = Collections.emptyList();
+        }
+        if (config.inputCsvs.isEmpty() && config.resumeJournals.isEmpty() && config.spoolDir == null && !config.daemon) {
+            throw new IllegalArgumentException("Missing required argument: --input=\"file1.csv,file2.csv\" (or --resume=\"flow.journal\", --spoolDir to join a spool as a worker, or --daemon)");
+        }
+        if (config.spoolDir != null && config.journalDir == null) {
+            // Reclaimed flows resume from the journal of the worker that died, so it must be on the shared disk.
+            config.journalDir = config.spoolDir.resolve("journals");
         }
 
         return config;
     }
 
+    /**
+     * Parses {@code key:value,key:value} with integer values.
+     */
+    private static Map<String, Integer> parseIntMap(String spec) {
+        Map<String, Integer> map = new HashMap<>();
+        parseStringMap(spec).forEach((k, v) -> map.put(k, Integer.parseInt(v)));
+        return map;
+    }
+
+    /**
+     * Parses {@code key:value,key:value}.
+     */
+    private static Map<String, String> parseStringMap(String spec) {
+        Map<String, String> map = new HashMap<>();
+        for (String entry : spec.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            int colon = entry.lastIndexOf(':');
+            if (colon <= 0) {
+                throw new IllegalArgumentException("Expected key:value but got '" + entry.trim() + "'");
+            }
+            map.put(entry.substring(0, colon).trim(), entry.substring(colon + 1).trim());
+        }
+        return map;
+    }
+
+    private static String defaultWorkerId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "localhost";
+        }
+        return host + "-" + ProcessHandle.current().pid();
+    }
+
     // Getters
     public List<Path> getInputCsvs() { return inputCsvs; }
     public int getMaxThreads() { return maxThreads; }
+    public ExecutorMode getExecutorMode() { return executorMode; }
+    public int getMaxConcurrentFlows() { return maxConcurrentFlows; }
+    public boolean isParallelRows() { return parallelRows; }
+    public int getMaxParallelRows() { return maxParallelRows; }
+    public boolean isEarlyRelease() { return earlyRelease; }
     public int getPollInterval() { return pollInterval; }
+    public int getMinPollInterval() { return minPollInterval; }
+    public int getHttpMaxConnPerRoute() { return httpMaxConnPerRoute; }
+    public int getHttpMaxConnTotal() { return httpMaxConnTotal; }
+    public int getHttpMaxStreams() { return httpMaxStreams; }
+    public int getHttpConnectTimeout() { return httpConnectTimeout; }
+    public int getHttpResponseTimeout() { return httpResponseTimeout; }
+    public int getHttpKeepAlive() { return httpKeepAlive; }
+    public String getHttpVersion() { return httpVersion; }
+    public long getArtifactMaxBytes() { return artifactMaxBytes; }
+    public double getRateLimitPerToken() { return rateLimitPerToken; }
+    public double getRateLimitPerHost() { return rateLimitPerHost; }
+    public int getRateLimitRetries() { return rateLimitRetries; }
+    public int getRetryMax() { return retryMax; }
+    public int getRetryTriggerMax() { return retryTriggerMax; }
+    public long getRetryBaseMillis() { return retryBaseMillis; }
+    public long getRetryMaxMillis() { return retryMaxMillis; }
+    public int getBreakerThreshold() { return breakerThreshold; }
+    public int getBreakerCooldown() { return breakerCooldown; }
+    public int getRowTimeout() { return rowTimeout; }
+    public int getMaxRuntime() { return maxRuntime; }
+    public boolean isFailFast() { return failFast; }
+    public Map<String, String> getFailFastGroups() { return failFastGroups; }
+    public boolean isCancelOnShutdown() { return cancelOnShutdown; }
+    public int getMetricsPort() { return metricsPort; }
+    public String getMetricsBind() { return metricsBind; }
+    public int getWebhookPort() { return webhookPort; }
+    public String getWebhookSecret() { return webhookSecret; }
+    public int getWebhookFallbackInterval() { return webhookFallbackInterval; }
+    public Path getCacheDir() { return cacheDir; }
+    public long getCacheTtl() { return cacheTtl; }
+    public int getCacheMaxEntries() { return cacheMaxEntries; }
+    public Path getJournalDir() { return journalDir; }
+    public long getJournalSyncMillis() { return journalSyncMillis; }
+    public Path getEventLogDir() { return eventLogDir; }
+    public long getEventLogMaxBytes() { return eventLogMaxBytes; }
+    public int getEventLogBuffer() { return eventLogBuffer; }
+    public Path getTraceDir() { return traceDir; }
+    public List<Path> getResumeJournals() { return resumeJournals; }
+    public Path getSpoolDir() { return spoolDir; }
+    public String getWorkerId() { return workerId; }
+    public int getLeaseTimeout() { return leaseTimeout; }
+    public Map<String, Integer> getFlowWeights() { return flowWeights; }
+    public int getMaxPipelinesPerProject() { return maxPipelinesPerProject; }
+    public Map<Long, Integer> getProjectLimits() { return projectLimits; }
+    public Map<String, Integer> getRunnerGroupLimits() { return runnerGroupLimits; }
+    public boolean isDaemon() { return daemon; }
+    public int getDaemonPort() { return daemonPort; }
+    public Path getDaemonDir() { return daemonDir; }
+    public Path getWatchDir() { return watchDir; }
+    public String getRunId() { return runId; }
     public String getGitlabBaseUrl() { return gitlabBaseUrl; }
     public String getProjectRoot() { return projectRoot; }
 }
@@ -0,0 +1,6 @@
+package com.org.orchestrator.util;
+
+/**
+ * Which threads run the flows: a bounded pool of platform threads, or a virtual thread per flow.
+ */
+public enum ExecutorMode { PLATFORM, VIRTUAL }
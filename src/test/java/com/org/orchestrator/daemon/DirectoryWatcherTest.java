@@ -0,0 +1,101 @@
+package com.org.orchestrator.daemon;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DirectoryWatcherTest {
+
+    @TempDir
+    Path dir;
+
+    private final BlockingQueue<Path> submitted = new LinkedBlockingQueue<>();
+    private final Map<String, CompletableFuture<Void>> running = new ConcurrentHashMap<>();
+
+    private CompletableFuture<?> submit(Path csv) {
+        CompletableFuture<Void> flow = new CompletableFuture<>();
+        running.put(csv.getFileName().toString(), flow);
+        submitted.add(csv);
+        return flow;
+    }
+
+    /**
+     * The watcher moves a finished flow from its own thread, so the move may land just after the flow completes.
+     */
+    private static void awaitFile(Path file) throws InterruptedException {
+        for (int i = 0; i < 100 && !Files.exists(file); i++) {
+            Thread.sleep(50);
+        }
+        assertTrue(Files.exists(file), file + " not there");
+    }
+
+    @Test
+    void picksUpExistingAndNewFilesAndMovesThemToDoneWhenFinished() throws Exception {
+        Files.writeString(dir.resolve("a.csv"), "a");
+        Files.writeString(dir.resolve("notes.txt"), "ignored");
+        try (DirectoryWatcher watcher = new DirectoryWatcher(dir, this::submit)) {
+            watcher.start();
+            assertEquals(dir.resolve("submitted/a.csv"), submitted.poll(5, TimeUnit.SECONDS));
+
+            Path staged = Files.writeString(dir.resolve(".b.csv.tmp"), "b");
+            Files.move(staged, dir.resolve("b.csv"));
+            assertEquals(dir.resolve("submitted/b.csv"), submitted.poll(10, TimeUnit.SECONDS));
+            assertNull(submitted.poll(200, TimeUnit.MILLISECONDS));
+            assertTrue(Files.exists(dir.resolve("notes.txt")));
+
+            running.get("a.csv").complete(null);
+            awaitFile(dir.resolve("done/a.csv"));
+            assertFalse(Files.exists(dir.resolve("submitted/a.csv")));
+            assertEquals("a", Files.readString(dir.resolve("done/a.csv")));
+            assertTrue(Files.exists(dir.resolve("submitted/b.csv")));
+        }
+    }
+
+    @Test
+    void runsFilesLeftInSubmittedAgainAtStartup() throws Exception {
+        Files.createDirectories(dir.resolve("submitted"));
+        Files.writeString(dir.resolve("submitted/interrupted.csv"), "x");
+        Files.createDirectories(dir.resolve("done"));
+        Files.writeString(dir.resolve("done/finished.csv"), "y");
+        try (DirectoryWatcher watcher = new DirectoryWatcher(dir, this::submit)) {
+            watcher.start();
+            assertEquals(dir.resolve("submitted/interrupted.csv"), submitted.poll(5, TimeUnit.SECONDS));
+            assertNull(submitted.poll(200, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    @Test
+    void sameNameIsKeptApartInSubmittedAndDone() throws Exception {
+        try (DirectoryWatcher watcher = new DirectoryWatcher(dir, this::submit)) {
+            watcher.start();
+            for (int i = 0; i < 2; i++) {
+                Path staged = Files.writeString(dir.resolve(".flow.tmp"), "run " + i);
+                Files.move(staged, dir.resolve("flow.csv"));
+                Path csv = submitted.poll(10, TimeUnit.SECONDS);
+                running.get(csv.getFileName().toString()).complete(null);
+                awaitFile(dir.resolve(i == 0 ? "done/flow.csv" : "done/flow-2.csv"));
+            }
+        }
+        try (Stream<Path> done = Files.list(dir.resolve("done"))) {
+            assertEquals(List.of(dir.resolve("done/flow-2.csv"), dir.resolve("done/flow.csv")), done.sorted().collect(Collectors.toList()));
+        }
+        assertEquals("run 0", Files.readString(dir.resolve("done/flow.csv")));
+        assertEquals("run 1", Files.readString(dir.resolve("done/flow-2.csv")));
+    }
+}
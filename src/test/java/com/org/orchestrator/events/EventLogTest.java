@@ -0,0 +1,133 @@
+package com.org.orchestrator.events;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.org.orchestrator.metrics.Counter;
+import com.org.orchestrator.metrics.Metrics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EventLogTest {
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final Counter DROPPED = Metrics.counter("orchestrator_events_dropped_total", "Events not logged because the event ring buffer was full");
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void writesEveryEventInOrderAndFoldsPollsIntoTheNextStatusChange() throws IOException {
+        try (EventLog log = new EventLog(dir, "run", 1 << 20, 16)) {
+            log.publish(EventType.TRIGGERED, "flow.csv", "app", 7, 100, null, null, 0);
+            log.publish(EventType.POLLED, null, null, 7, 100, null, "running", 0);
+            log.publish(EventType.POLLED, null, null, 7, 100, null, "running", 0);
+            log.publish(EventType.STATUS_CHANGED, null, null, 7, 100, "running", "success", 0);
+            log.publish(EventType.ROW_FINISHED, "flow.csv", "app \"quoted\"", 7, 100, null, "success", 1234);
+        }
+        List<JsonNode> events = read();
+        assertEquals(List.of("triggered", "status-changed", "row-finished"),
+                events.stream().map(e -> e.get("type").asText()).collect(Collectors.toList()));
+        assertEquals(2, events.get(1).get("polls").asInt());
+        assertEquals("app \"quoted\"", events.get(2).get("row").asText());
+        assertEquals(1234, events.get(2).get("millis").asLong());
+    }
+
+    @Test
+    void rotatesSegmentsByBytesNotChars() throws IOException {
+        String flow = "✓".repeat(40); // three bytes per char in UTF-8
+        long maxBytes = 2000;
+        try (EventLog log = new EventLog(dir, "run", maxBytes, 1024)) {
+            for (int i = 0; i < 200; i++) {
+                log.publish(EventType.ROW_FINISHED, flow, "row-" + i, 1, i + 1, null, "success", i);
+            }
+        }
+        List<Path> segments = segments();
+        assertTrue(segments.size() > 1, "expected several segments, got " + segments);
+        long longestLine = 0;
+        for (String line : Files.readAllLines(segments.get(0), StandardCharsets.UTF_8)) {
+            longestLine = Math.max(longestLine, line.getBytes(StandardCharsets.UTF_8).length + 1);
+        }
+        for (Path segment : segments) {
+            assertTrue(Files.size(segment) < maxBytes + longestLine, segment + " is " + Files.size(segment) + " bytes");
+        }
+        List<JsonNode> events = read();
+        assertEquals(200, events.size());
+        for (int i = 0; i < events.size(); i++) {
+            assertEquals("row-" + i, events.get(i).get("row").asText());
+        }
+    }
+
+    @Test
+    void everyEventIsWrittenOrCountedAsDroppedWhenClosedUnderLoad() throws Exception {
+        for (int round = 0; round < 20; round++) {
+            Path roundDir = Files.createDirectory(dir.resolve("round-" + round));
+            long droppedBefore = DROPPED.get();
+            AtomicLong attempts = new AtomicLong();
+            AtomicBoolean stop = new AtomicBoolean();
+            CountDownLatch started = new CountDownLatch(4);
+            EventLog log = new EventLog(roundDir, "run", 1L << 30, 64);
+            List<Thread> producers = new ArrayList<>();
+            for (int p = 0; p < 4; p++) {
+                Thread t = new Thread(() -> {
+                    started.countDown();
+                    while (!stop.get()) {
+                        log.publish(EventType.ROW_FINISHED, "flow", "row", 1, 1, null, "success", 0);
+                        attempts.incrementAndGet();
+                    }
+                });
+                t.start();
+                producers.add(t);
+            }
+            started.await();
+            Thread.sleep(5);
+            log.close();
+            stop.set(true);
+            for (Thread t : producers) {
+                t.join();
+            }
+            long written;
+            try (Stream<Path> files = Files.list(roundDir)) {
+                written = files.mapToLong(EventLogTest::lines).sum();
+            }
+            assertEquals(attempts.get(), written + DROPPED.get() - droppedBefore, "round " + round);
+        }
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(f -> f.getFileName().toString().startsWith("events-run-")).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private List<JsonNode> read() throws IOException {
+        List<JsonNode> events = new ArrayList<>();
+        for (Path segment : segments()) {
+            for (String line : Files.readAllLines(segment, StandardCharsets.UTF_8)) {
+                events.add(JSON.readTree(line));
+            }
+        }
+        return events;
+    }
+
+    private static long lines(Path file) {
+        try (Stream<String> lines = Files.lines(file, StandardCharsets.UTF_8)) {
+            return lines.count();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
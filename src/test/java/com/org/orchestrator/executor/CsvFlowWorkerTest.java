@@ -0,0 +1,108 @@
+package com.org.orchestrator.executor;
+
+import com.org.orchestrator.cache.ResultCache;
+import com.org.orchestrator.gitlab.GitLabAsyncClient;
+import com.org.orchestrator.gitlab.GitLabClient;
+import com.org.orchestrator.gitlab.PipelineStatusPoller;
+import com.org.orchestrator.model.ExecutionSummary;
+import com.org.orchestrator.sim.GitLabSimulator;
+import com.org.orchestrator.sim.SimulatorProfile;
+import com.org.orchestrator.util.Config;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CsvFlowWorkerTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void rowsWaitingOnAFailedHolderRunOnePipelineBetweenThem() throws Exception {
+        // With this seed the simulator fails the first pipeline and lets the following ones succeed.
+        SimulatorProfile profile = SimulatorProfile.fromArgs(new String[]{"--simPipelineMillis=1500", "--simFailureRate=0.5", "--simSeed=4096"});
+        List<Path> csvs = new ArrayList<>();
+        for (int f = 1; f <= 3; f++) {
+            csvs.add(Files.writeString(dir.resolve("flow-" + f + ".csv"),
+                    "applicationName,projectId,accessToken,branch,variablesAndValues,artifactJobName,order\n"
+                            + "app,7,token,main,\"ROW=1\",build,1\n"));
+        }
+        ExecutorService flows = Executors.newFixedThreadPool(csvs.size());
+        try (GitLabSimulator sim = new GitLabSimulator(0, profile, 4)) {
+            Config cfg = Config.fromArgs(new String[]{"--input=unused.csv", "--gitlabBaseUrl=" + sim.getBaseUrl(),
+                    "--pollInterval=1", "--minPollInterval=1", "--cacheDir=" + dir.resolve("cache"), "--journalDir=" + dir.resolve("journals")});
+            GitLabAsyncClient async = new GitLabAsyncClient(cfg);
+            try (PipelineStatusPoller poller = new PipelineStatusPoller(async, cfg)) {
+                ResultCache cache = new ResultCache(cfg.getCacheDir(), cfg.getCacheTtl(), cfg.getCacheMaxEntries());
+                FlowContext context = new FlowContext(new GitLabClient(async), poller, cfg, Runnable::run, cache, null, null);
+                List<CompletableFuture<ExecutionSummary>> runs = new ArrayList<>();
+                for (Path csv : csvs) {
+                    runs.add(CompletableFuture.supplyAsync(new CsvFlowWorker(csv, null, context), flows));
+                }
+                List<ExecutionSummary> summaries = new ArrayList<>();
+                for (CompletableFuture<ExecutionSummary> run : runs) {
+                    summaries.add(run.get(60, TimeUnit.SECONDS));
+                }
+
+                assertEquals(List.of("FAILED", "PASSED", "PASSED"),
+                        summaries.stream().map(ExecutionSummary::getStatus).sorted().collect(Collectors.toList()));
+                assertEquals(2, sim.getPipelineCount(), "one waiting row takes over the key, the other reuses its pipeline");
+                assertEquals(1, summaries.stream().filter(s -> s.getStatus().equals("PASSED"))
+                        .map(s -> s.getPipelineResults().get(0).getPipelineId()).distinct().count());
+            } finally {
+                async.close();
+            }
+        } finally {
+            flows.shutdownNow();
+        }
+    }
+
+    @Test
+    void rowCancelledForItsTimeoutIsTriggeredAgainOnResume() throws Exception {
+        Path csv = Files.writeString(dir.resolve("flow.csv"),
+                "applicationName,projectId,accessToken,branch,variablesAndValues,artifactJobName,order\n"
+                        + "app,7,token,main,\"ROW=1\",build,1\n");
+        try (GitLabSimulator sim = new GitLabSimulator(0, 3000, "build")) {
+            String[] args = {"--input=unused.csv", "--gitlabBaseUrl=" + sim.getBaseUrl(), "--pollInterval=1", "--minPollInterval=1",
+                    "--journalDir=" + dir.resolve("journals")};
+            ExecutionSummary timedOut = run(csv, null, Config.fromArgs(append(args, "--rowTimeout=1")));
+            assertEquals("ERROR: the row exceeded --rowTimeout of 1 s", timedOut.getPipelineResults().get(0).getStatus());
+
+            Path journal;
+            try (Stream<Path> journals = Files.list(dir.resolve("journals"))) {
+                journal = journals.findFirst().orElseThrow();
+            }
+            ExecutionSummary resumed = run(csv, journal, Config.fromArgs(args));
+            assertEquals("PASSED", resumed.getStatus());
+            assertEquals(2, sim.getPipelineCount(), "the cancelled pipeline is not re-attached to");
+        }
+    }
+
+    private static String[] append(String[] args, String arg) {
+        String[] all = Arrays.copyOf(args, args.length + 1);
+        all[args.length] = arg;
+        return all;
+    }
+
+    private static ExecutionSummary run(Path csv, Path resumeJournal, Config cfg) {
+        try (GitLabAsyncClient async = new GitLabAsyncClient(cfg);
+             PipelineStatusPoller poller = new PipelineStatusPoller(async, cfg);
+             RunControl control = new RunControl(async, poller, cfg)) {
+            FlowContext context = new FlowContext(new GitLabClient(async), poller, cfg, Runnable::run, null, null, control);
+            return new CsvFlowWorker(csv, resumeJournal, context).get();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.org.orchestrator.executor;
+
+import com.org.orchestrator.model.PipelineRow;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FlowGraphTest {
+
+    private static PipelineRow row(String name, int order, String group, String dependsOn) {
+        return new PipelineRow(name, 1, "token", "main", "", "build", order, group, dependsOn, 1, null, UnaryOperator.identity());
+    }
+
+    @Test
+    void sequentialFlowsChainEveryRowToThePreviousOne() {
+        FlowGraph graph = FlowGraph.build(List.of(row("a", 1, "g1", null), row("b", 1, "g2", null), row("c", 2, null, "a")), false);
+        assertEquals(List.of(), graph.dependenciesOf(0));
+        assertEquals(List.of(0), graph.dependenciesOf(1));
+        assertEquals(List.of(1), graph.dependenciesOf(2));
+        assertEquals(List.of(1), graph.dependentsOf(0));
+        for (int i = 0; i < 3; i++) {
+            assertEquals(i, graph.rank(i));
+        }
+    }
+
+    @Test
+    void groupsWaitForTheirOwnPreviousStageAndUngroupedRowsAreBarriers() {
+        FlowGraph graph = FlowGraph.build(List.of(
+                row("a", 1, "g1", null),   // 0
+                row("b", 1, "g2", null),   // 1
+                row("c", 2, "g1", null),   // 2
+                row("d", 2, "g2", null),   // 3
+                row("e", 3, null, null),   // 4: barrier after both groups
+                row("f", 4, "g1", null),   // 5
+                row("g", 4, "g2", null)),  // 6
+                true);
+        assertEquals(List.of(), graph.dependenciesOf(0));
+        assertEquals(List.of(), graph.dependenciesOf(1));
+        assertEquals(List.of(0), graph.dependenciesOf(2));
+        assertEquals(List.of(1), graph.dependenciesOf(3));
+        assertEquals(List.of(2, 3), sorted(graph.dependenciesOf(4)));
+        assertEquals(List.of(4), graph.dependenciesOf(5));
+        assertEquals(List.of(4), graph.dependenciesOf(6));
+        assertEquals(List.of(5, 6), sorted(graph.dependentsOf(4)));
+    }
+
+    @Test
+    void aGroupStageAtTheSameOrderAsABarrierWaitsForBoth() {
+        FlowGraph graph = FlowGraph.build(List.of(
+                row("a", 1, "g1", null),
+                row("b", 1, null, null),
+                row("c", 2, "g1", null)),
+                true);
+        assertEquals(List.of(0, 1), sorted(graph.dependenciesOf(2)));
+    }
+
+    @Test
+    void dependsOnReplacesTheStageDependencies() {
+        FlowGraph graph = FlowGraph.build(List.of(
+                row("a", 1, "g1", null),
+                row("b", 1, "g2", null),
+                row("c", 2, "g1", "b"),
+                row("d", 3, "g1", "a; c")),
+                true);
+        assertEquals(List.of(1), graph.dependenciesOf(2));
+        assertEquals(List.of(0, 2), sorted(graph.dependenciesOf(3)));
+    }
+
+    @Test
+    void ranksFollowDependenciesAndPreferEarlierRows() {
+        FlowGraph graph = FlowGraph.build(List.of(
+                row("a", 1, "g1", "c"),
+                row("b", 1, "g2", null),
+                row("c", 1, "g3", null)),
+                true);
+        assertEquals(0, graph.rank(1));
+        assertEquals(1, graph.rank(2));
+        assertEquals(2, graph.rank(0));
+        assertTrue(graph.rank(2) < graph.rank(0));
+    }
+
+    @Test
+    void rejectsUnknownAndCyclicDependencies() {
+        IllegalArgumentException unknown = assertThrows(IllegalArgumentException.class,
+                () -> FlowGraph.build(List.of(row("a", 1, null, "missing")), true));
+        assertTrue(unknown.getMessage().contains("missing"));
+        assertThrows(IllegalArgumentException.class,
+                () -> FlowGraph.build(List.of(row("a", 1, null, "b"), row("b", 2, null, "a")), true));
+    }
+
+    @Test
+    void aRowDependingOnItselfIsNotACycle() {
+        FlowGraph graph = FlowGraph.build(List.of(row("a", 1, null, "a")), true);
+        assertEquals(List.of(), graph.dependenciesOf(0));
+    }
+
+    private static List<Integer> sorted(List<Integer> values) {
+        return values.stream().sorted().collect(java.util.stream.Collectors.toList());
+    }
+}
@@ -0,0 +1,123 @@
+package com.org.orchestrator.executor;
+
+import com.org.orchestrator.model.PipelineRow;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PipelineSchedulerTest {
+
+    private static PipelineRow row(String name, long projectId) {
+        return new PipelineRow(name, projectId, "token", "main", "", "build", 1, null, null, 1, null, UnaryOperator.identity());
+    }
+
+    @Test
+    void unlimitedSchedulerGrantsEverySlotRightAway() {
+        PipelineScheduler scheduler = new PipelineScheduler(0, Map.of(), Map.of());
+        try (PipelineScheduler.Flow flow = scheduler.register("flow.csv", 1)) {
+            List<PipelineScheduler.Slot> slots = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                slots.add(flow.acquire(row("r" + i, 1), null));
+            }
+            slots.forEach(slot -> assertNotNull(slot));
+            slots.forEach(PipelineScheduler.Slot::close);
+        }
+    }
+
+    @Test
+    void waitingRowIsGrantedOnceTheProjectSlotIsReleased() throws Exception {
+        PipelineScheduler scheduler = new PipelineScheduler(1, Map.of(), Map.of());
+        try (PipelineScheduler.Flow a = scheduler.register("a.csv", 1);
+             PipelineScheduler.Flow b = scheduler.register("b.csv", 1)) {
+            PipelineScheduler.Slot first = a.acquire(row("a1", 7), null);
+            CompletableFuture<PipelineScheduler.Slot> second = CompletableFuture.supplyAsync(() -> b.acquire(row("b1", 7), new CompletableFuture<>()));
+            Thread.sleep(100);
+            assertFalse(second.isDone());
+
+            // Another project is not held up by the full one.
+            b.acquire(row("b2", 8), null).close();
+
+            first.close();
+            assertNotNull(second.get(5, TimeUnit.SECONDS));
+            second.get().close();
+        }
+    }
+
+    @Test
+    void stoppedRowLeavesTheQueueWithoutTakingASlot() throws Exception {
+        PipelineScheduler scheduler = new PipelineScheduler(1, Map.of(), Map.of());
+        try (PipelineScheduler.Flow a = scheduler.register("a.csv", 1);
+             PipelineScheduler.Flow b = scheduler.register("b.csv", 1)) {
+            PipelineScheduler.Slot first = a.acquire(row("a1", 7), null);
+            CompletableFuture<String> stop = new CompletableFuture<>();
+            CompletableFuture<PipelineScheduler.Slot> waiting = CompletableFuture.supplyAsync(() -> b.acquire(row("b1", 7), stop));
+            Thread.sleep(100);
+            assertFalse(waiting.isDone());
+
+            stop.complete("the flow was cancelled");
+            assertNull(waiting.get(5, TimeUnit.SECONDS));
+
+            // The withdrawn row must not be granted the slot once it frees up.
+            first.close();
+            CompletableFuture<PipelineScheduler.Slot> next = CompletableFuture.supplyAsync(() -> a.acquire(row("a2", 7), null));
+            PipelineScheduler.Slot slot = next.get(5, TimeUnit.SECONDS);
+            assertNotNull(slot);
+            slot.close();
+        }
+    }
+
+    @Test
+    void alreadyStoppedRowDoesNotWaitEvenForAFreeSlot() throws Exception {
+        PipelineScheduler scheduler = new PipelineScheduler(1, Map.of(), Map.of());
+        try (PipelineScheduler.Flow flow = scheduler.register("flow.csv", 1)) {
+            assertNull(flow.acquire(row("r1", 7), CompletableFuture.completedFuture("cancelled")));
+            // The slot granted on enqueue went back, so the project is free again.
+            CompletableFuture<PipelineScheduler.Slot> next = CompletableFuture.supplyAsync(() -> flow.acquire(row("r2", 7), null));
+            PipelineScheduler.Slot slot = next.get(5, TimeUnit.SECONDS);
+            assertTrue(next.isDone());
+            assertNotNull(slot);
+            slot.close();
+        }
+    }
+
+    @Test
+    void heavierFlowGetsProportionallyMoreSlots() throws Exception {
+        PipelineScheduler scheduler = new PipelineScheduler(1, Map.of(), Map.of());
+        try (PipelineScheduler.Flow heavy = scheduler.register("heavy.csv", 3);
+             PipelineScheduler.Flow light = scheduler.register("light.csv", 1)) {
+            PipelineScheduler.Slot blocker = heavy.acquire(row("blocker", 7), null);
+            List<String> order = new ArrayList<>();
+            List<CompletableFuture<Void>> rows = new ArrayList<>();
+            for (int i = 0; i < 6; i++) {
+                rows.add(waitThenRelease(heavy, "h" + i, order));
+                rows.add(waitThenRelease(light, "l" + i, order));
+            }
+            Thread.sleep(200);
+            blocker.close();
+            CompletableFuture.allOf(rows.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+            // Of the first eight grants, the weight-3 flow gets six.
+            assertEquals(6, order.subList(0, 8).stream().filter(name -> name.startsWith("h")).count(), order.toString());
+        }
+    }
+
+    private static CompletableFuture<Void> waitThenRelease(PipelineScheduler.Flow flow, String name, List<String> order) {
+        return CompletableFuture.runAsync(() -> {
+            PipelineScheduler.Slot slot = flow.acquire(row(name, 7), null);
+            synchronized (order) {
+                order.add(name);
+            }
+            slot.close();
+        }, runnable -> new Thread(runnable, name).start());
+    }
+}
@@ -0,0 +1,61 @@
+package com.org.orchestrator.executor;
+
+import com.org.orchestrator.util.Config;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RunControlTest {
+
+    private static RunControl control(String... args) {
+        return new RunControl(null, null, Config.fromArgs(args));
+    }
+
+    @Test
+    void failedFlowCancelsRunningAndLaterFlowsOfItsGroup() {
+        try (RunControl control = control("--input=a.csv", "--failFastGroups=a.csv:g,b.csv:g,c.csv:g")) {
+            RunControl.Flow a = control.register("a.csv");
+            RunControl.Flow b = control.register("b.csv");
+            RunControl.Flow other = control.register("other.csv");
+            a.failed();
+
+            assertFalse(a.isCancelled());
+            assertTrue(b.isCancelled());
+            assertFalse(other.isCancelled());
+            RunControl.Flow queued = control.register("c.csv");
+            assertEquals("flow a.csv of fail-fast group g failed", queued.getCancelReason());
+        }
+    }
+
+    @Test
+    void daemonTakesEachSubmittedFlowAsARunOfItsOwn() {
+        try (RunControl control = control("--daemon", "--failFast")) {
+            RunControl.Flow a = control.register("a.csv");
+            RunControl.Flow b = control.register("b.csv");
+            a.failed();
+            a.close();
+
+            assertTrue(b.isCancelled());
+            assertFalse(control.register("a.csv").isCancelled());
+        }
+    }
+
+    @Test
+    void daemonAppliesMaxRuntimeToEachFlowFromItsStart() throws Exception {
+        try (RunControl control = control("--daemon", "--maxRuntime=1")) {
+            RunControl.Flow early = control.register("early.csv");
+            RunControl.Flow finished = control.register("finished.csv");
+            finished.close();
+            assertEquals("the flow exceeded --maxRuntime of 1 s", early.whenCancelled().get(5, TimeUnit.SECONDS));
+
+            RunControl.Flow late = control.register("late.csv");
+            assertFalse(late.isCancelled());
+            assertFalse(finished.isCancelled());
+            late.whenCancelled().get(5, TimeUnit.SECONDS);
+        }
+    }
+}
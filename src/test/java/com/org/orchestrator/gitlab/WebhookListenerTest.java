@@ -0,0 +1,139 @@
+package com.org.orchestrator.gitlab;
+
+import com.org.orchestrator.metrics.Metrics;
+import com.org.orchestrator.model.PipelineStatusInfo;
+import com.org.orchestrator.sim.GitLabSimulator;
+import com.org.orchestrator.util.Config;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Replays webhook payloads recorded from GitLab (under {@code webhooks/}) into a listener whose poller
+ * tracks pipelines of the GitLab simulator. Polling is slowed down to a minute, so only the webhook can
+ * finish a pipeline within the test. The recorded events are for pipeline 1001 of project 42, the
+ * first pipeline the simulator creates.
+ */
+class WebhookListenerTest {
+    private static final String SECRET = "s3cret";
+    private static final long PROJECT = 42;
+    private static final long PIPELINE = 1001;
+
+    private final HttpClient http = HttpClient.newHttpClient();
+    private GitLabSimulator gitlab;
+    private PipelineStatusPoller poller;
+    private WebhookListener listener;
+    private URI webhook;
+
+    @BeforeEach
+    void start() throws Exception {
+        gitlab = new GitLabSimulator(0, 120_000, "build");
+        int port;
+        try (ServerSocket free = new ServerSocket(0)) {
+            port = free.getLocalPort();
+        }
+        Config cfg = Config.fromArgs(new String[]{"--input=unused.csv", "--gitlabBaseUrl=" + gitlab.getBaseUrl(),
+                "--pollInterval=60", "--minPollInterval=60", "--webhookPort=" + port, "--webhookSecret=" + SECRET});
+        poller = new PipelineStatusPoller(new GitLabAsyncClient(cfg), cfg);
+        listener = new WebhookListener(port, SECRET, poller);
+        webhook = URI.create("http://127.0.0.1:" + port + "/webhook");
+    }
+
+    @AfterEach
+    void stop() {
+        listener.close();
+        poller.close();
+        gitlab.close();
+    }
+
+    private long trigger() {
+        return new GitLabAsyncClient(gitlab.getBaseUrl()).triggerPipeline(PROJECT, "main", Map.of(), "token").join();
+    }
+
+    private int replay(String recording, String token) throws Exception {
+        byte[] body;
+        try (InputStream in = getClass().getResourceAsStream("/webhooks/" + recording)) {
+            assertNotNull(in, recording);
+            body = in.readAllBytes();
+        }
+        return post(HttpRequest.BodyPublishers.ofByteArray(body), token);
+    }
+
+    private int post(HttpRequest.BodyPublisher body, String token) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(webhook).header("Content-Type", "application/json").POST(body);
+        if (token != null) {
+            request.header("X-Gitlab-Token", token);
+        }
+        return http.send(request.build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private static long events(String outcome) {
+        return Metrics.counter("orchestrator_webhook_events_total", "GitLab webhook events received", "outcome", outcome).get();
+    }
+
+    @Test
+    void recordedJobAndPipelineEventsFinishTheTrackedPipeline() throws Exception {
+        assertEquals(PIPELINE, trigger());
+        CompletableFuture<PipelineStatusInfo> tracked = poller.track(PROJECT, PIPELINE, "token");
+
+        assertEquals(200, replay("job-running.json", SECRET));
+        assertFalse(tracked.isDone());
+        assertEquals(200, replay("pipeline-success.json", SECRET));
+
+        PipelineStatusInfo info = tracked.get(5, TimeUnit.SECONDS);
+        assertEquals(PIPELINE, info.getPipelineId());
+        assertEquals("success", info.getResult());
+        assertNotNull(info.getFirstRunningAt(), "the job event marks the pipeline as running");
+        assertEquals(0, poller.inFlightCount());
+    }
+
+    @Test
+    void eventArrivingBeforeTheTriggerResponseIsAppliedOnTrack() throws Exception {
+        assertEquals(200, replay("pipeline-success.json", SECRET));
+        assertEquals(PIPELINE, trigger());
+
+        PipelineStatusInfo info = poller.track(PROJECT, PIPELINE, "token").get(5, TimeUnit.SECONDS);
+        assertEquals("success", info.getResult());
+    }
+
+    @Test
+    void otherEventKindsAreIgnored() throws Exception {
+        assertEquals(PIPELINE, trigger());
+        CompletableFuture<PipelineStatusInfo> tracked = poller.track(PROJECT, PIPELINE, "token");
+        long ignored = events("ignored");
+
+        assertEquals(200, replay("push.json", SECRET));
+        assertEquals(ignored + 1, events("ignored"));
+        assertFalse(tracked.isDone());
+    }
+
+    @Test
+    void unauthenticatedMalformedAndNonPostRequestsAreRejected() throws Exception {
+        assertEquals(PIPELINE, trigger());
+        CompletableFuture<PipelineStatusInfo> tracked = poller.track(PROJECT, PIPELINE, "token");
+        long rejected = events("rejected");
+
+        assertEquals(401, replay("pipeline-success.json", null));
+        assertEquals(401, replay("pipeline-success.json", "wrong"));
+        assertEquals(400, post(HttpRequest.BodyPublishers.ofString("{\"object_kind\": \"pipel", StandardCharsets.UTF_8), SECRET));
+        assertEquals(3, events("rejected") - rejected);
+        HttpRequest get = HttpRequest.newBuilder(webhook).header("X-Gitlab-Token", SECRET).GET().build();
+        assertEquals(405, http.send(get, HttpResponse.BodyHandlers.discarding()).statusCode());
+        assertFalse(tracked.isDone());
+    }
+}
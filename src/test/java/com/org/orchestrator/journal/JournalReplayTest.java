@@ -0,0 +1,127 @@
+package com.org.orchestrator.journal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JournalReplayTest {
+
+    @TempDir
+    Path dir;
+
+    private Path csv() throws IOException {
+        Path csv = dir.resolve("flow.csv");
+        Files.writeString(csv, "applicationName,projectId\napp,1\n", StandardCharsets.UTF_8);
+        return csv;
+    }
+
+    @Test
+    void rebuildsRowStatesFromTheJournal() throws IOException {
+        Path csv = csv();
+        Map<String, String> outputs = new HashMap<>();
+        outputs.put("PLAIN", "value");
+        outputs.put("ESCAPED", "tab\there\nnew line\\backslash");
+        outputs.put("NULL", null);
+        Path file;
+        try (FlowJournal journal = FlowJournal.create(dir.resolve("journals"), csv, "run", 10)) {
+            file = journal.getFile();
+            journal.recordTriggered(0, 100);
+            journal.recordCompleted(0, 100, "success");
+            journal.recordArtifact(0, outputs);
+            journal.recordTriggered(1, 101);
+            journal.recordTriggered(2, 102);
+            journal.recordCompleted(2, 102, "ERROR: connection reset");
+            journal.recordTriggered(3, 103);
+            journal.recordCompleted(3, 103, "success");
+            journal.recordTriggered(4, 104);
+            journal.recordCompleted(4, 104, "failed");
+        }
+
+        JournalReplay replay = JournalReplay.read(file);
+        assertEquals(csv.toAbsolutePath(), replay.getCsvPath());
+        assertEquals(FlowJournal.fingerprint(csv), replay.getFingerprint());
+
+        JournalReplay.RowState done = replay.row(0);
+        assertEquals(100, done.getPipelineId());
+        assertTrue(done.isDone());
+        assertFalse(done.isInFlight());
+        assertEquals(outputs, done.getOutputs());
+
+        assertTrue(replay.row(1).isInFlight(), "triggered, never completed");
+        assertTrue(replay.row(2).isInFlight(), "orchestrator-side error");
+        assertTrue(replay.row(3).isInFlight(), "succeeded before its output.env was recorded");
+        assertFalse(replay.row(4).isInFlight());
+        assertFalse(replay.row(4).isDone());
+        assertNull(replay.row(5));
+    }
+
+    @Test
+    void aRetriggeredRowIgnoresTheOutcomeOfItsEarlierPipeline() throws IOException {
+        Path file;
+        try (FlowJournal journal = FlowJournal.create(dir, csv(), "run", 10)) {
+            file = journal.getFile();
+            journal.recordTriggered(0, 100);
+            journal.recordTriggered(0, 200);
+            journal.recordCompleted(0, 100, "success");
+        }
+        JournalReplay.RowState row = JournalReplay.read(file).row(0);
+        assertEquals(200, row.getPipelineId());
+        assertNull(row.getStatus());
+        assertTrue(row.isInFlight());
+    }
+
+    @Test
+    void aRowCancelledForItsTimeoutIsTriggeredAgainOnResume() throws IOException {
+        Path file;
+        try (FlowJournal journal = FlowJournal.create(dir, csv(), "run", 10)) {
+            file = journal.getFile();
+            journal.recordTriggered(0, 100);
+            journal.recordTimedOut(0, 100, "the row exceeded --rowTimeout of 60 s");
+        }
+        JournalReplay.RowState row = JournalReplay.read(file).row(0);
+        assertEquals("TIMED OUT: the row exceeded --rowTimeout of 60 s", row.getStatus());
+        assertFalse(row.isInFlight(), "its pipeline was cancelled in GitLab, so there is nothing to re-attach to");
+        assertFalse(row.isDone());
+    }
+
+    @Test
+    void ignoresATornLastRecordAndKeepsAppendingAfterReopen() throws IOException {
+        Path file;
+        try (FlowJournal journal = FlowJournal.create(dir, csv(), "run", 10)) {
+            file = journal.getFile();
+            journal.recordTriggered(0, 100);
+        }
+        Files.writeString(file, "C\t0\t100\tsucc", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        JournalReplay replay = JournalReplay.read(file);
+        assertNull(replay.row(0).getStatus());
+
+        try (FlowJournal journal = FlowJournal.reopen(file, 10)) {
+            journal.recordCompleted(0, 100, "success");
+            journal.recordArtifact(0, Map.of("K", "V"));
+        }
+        JournalReplay.RowState row = JournalReplay.read(file).row(0);
+        assertTrue(row.isDone());
+        assertEquals(Map.of("K", "V"), row.getOutputs());
+        assertFalse(Files.readString(file, StandardCharsets.UTF_8).contains("\tsuccC"));
+    }
+
+    @Test
+    void rejectsAJournalWithoutHeader() throws IOException {
+        Path file = dir.resolve("broken.journal");
+        Files.writeString(file, "T\t0\t100\n", StandardCharsets.UTF_8);
+        assertThrows(IOException.class, () -> JournalReplay.read(file));
+    }
+}
@@ -0,0 +1,158 @@
+package com.org.orchestrator.spool;
+
+import com.org.orchestrator.AppMain;
+import com.org.orchestrator.model.ExecutionSummary;
+import com.org.orchestrator.sim.GitLabSimulator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Worker processes sharing a spool directory, run against the GitLab simulator.
+ */
+class SpoolProcessTest {
+    private static final long TIMEOUT_SECONDS = 90;
+
+    @TempDir
+    Path dir;
+
+    private final List<Process> started = new ArrayList<>();
+
+    @AfterEach
+    void stopWorkers() {
+        started.forEach(Process::destroyForcibly);
+    }
+
+    private List<String> enqueue(int flows, int rows) throws Exception {
+        List<Path> csvs = new ArrayList<>();
+        for (int f = 1; f <= flows; f++) {
+            StringBuilder csv = new StringBuilder("applicationName,projectId,accessToken,branch,variablesAndValues,artifactJobName,order\n");
+            for (int r = 1; r <= rows; r++) {
+                csv.append("app-").append(f).append('-').append(r).append(',').append(f).append(",token,main,\"ROW=").append(r).append("\",build,").append(r).append('\n');
+            }
+            csvs.add(Files.writeString(dir.resolve("flow-" + f + ".csv"), csv));
+        }
+        try (SpoolQueue queue = new SpoolQueue(dir.resolve("spool"), "test", 60_000, null)) {
+            return queue.enqueue(csvs);
+        }
+    }
+
+    private Process worker(String id, GitLabSimulator gitlab) throws Exception {
+        Path workDir = Files.createDirectories(dir.resolve(id));
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                "-Dlogback.configurationFile=" + getClass().getResource("/logback.xml"),
+                AppMain.class.getName(),
+                "--spoolDir=" + dir.resolve("spool"), "--workerId=" + id, "--leaseTimeout=2",
+                "--journalDir=" + dir.resolve("journals"), "--gitlabBaseUrl=" + gitlab.getBaseUrl(),
+                "--pollInterval=1", "--minPollInterval=1", "--maxThreads=2")
+                .directory(workDir.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(workDir.resolve("out.log").toFile())
+                .start();
+        started.add(process);
+        return process;
+    }
+
+    private void awaitExit(Process process, String id) throws Exception {
+        assertTrue(process.waitFor(TIMEOUT_SECONDS, TimeUnit.SECONDS), id + " did not finish");
+        assertEquals(0, process.exitValue(), () -> id + " failed:\n" + log(id));
+    }
+
+    private String log(String id) {
+        try {
+            return Files.readString(dir.resolve(id).resolve("out.log"), StandardCharsets.UTF_8);
+        } catch (Exception e) {
+            return e.toString();
+        }
+    }
+
+    private int claims(String id) {
+        Matcher m = Pattern.compile("Worker " + id + " claimed flow").matcher(log(id));
+        int n = 0;
+        while (m.find()) {
+            n++;
+        }
+        return n;
+    }
+
+    private long triggersJournaled() throws Exception {
+        Path journals = dir.resolve("journals");
+        if (!Files.isDirectory(journals)) {
+            return 0;
+        }
+        long triggers = 0;
+        try (Stream<Path> files = Files.list(journals)) {
+            for (Path journal : files.collect(Collectors.toList())) {
+                triggers += Files.readAllLines(journal).stream().filter(line -> line.startsWith("T\t")).count();
+            }
+        }
+        return triggers;
+    }
+
+    private void assertAllPassed(List<String> flows) throws Exception {
+        try (SpoolQueue queue = new SpoolQueue(dir.resolve("spool"), "test", 60_000, null)) {
+            for (String flow : flows) {
+                ExecutionSummary summary = queue.result(flow);
+                assertNotNull(summary, flow + " has no result");
+                assertEquals("PASSED", summary.getStatus(), flow);
+            }
+            assertTrue(queue.isDrained());
+        }
+    }
+
+    @Test
+    void twoWorkersShareTheQueueAndRunEachFlowOnce() throws Exception {
+        List<String> flows = enqueue(8, 2);
+        try (GitLabSimulator gitlab = new GitLabSimulator(0, 1000, "build")) {
+            Process w1 = worker("w1", gitlab);
+            Process w2 = worker("w2", gitlab);
+            awaitExit(w1, "w1");
+            awaitExit(w2, "w2");
+
+            assertAllPassed(flows);
+            assertEquals(16, gitlab.getPipelineCount(), "every row triggered exactly once");
+            assertEquals(8, claims("w1") + claims("w2"));
+            assertTrue(claims("w1") > 0 && claims("w2") > 0, () -> "w1 claimed " + claims("w1") + ", w2 claimed " + claims("w2"));
+        }
+    }
+
+    @Test
+    void flowsOfAKilledWorkerAreReclaimedAndResumedWithoutRetriggering() throws Exception {
+        List<String> flows = enqueue(2, 2);
+        try (GitLabSimulator gitlab = new GitLabSimulator(0, 4000, "build")) {
+            Process w1 = worker("w1", gitlab);
+            // Kill once both first rows are triggered and journaled, while their pipelines still run.
+            for (int i = 0; i < 400 && triggersJournaled() < 2; i++) {
+                Thread.sleep(50);
+            }
+            assertEquals(2, triggersJournaled(), () -> "w1 never triggered its first rows:\n" + log("w1"));
+            w1.destroyForcibly().waitFor();
+            assertEquals(2, gitlab.getPipelineCount());
+
+            Process w2 = worker("w2", gitlab);
+            awaitExit(w2, "w2");
+
+            assertAllPassed(flows);
+            assertEquals(2, claims("w2"));
+            assertTrue(log("w2").contains("Re-attaching to pipeline"), () -> log("w2"));
+            assertEquals(4, gitlab.getPipelineCount(), "the rows in flight at the kill are re-attached, not triggered again");
+        }
+    }
+}
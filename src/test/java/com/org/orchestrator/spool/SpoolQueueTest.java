@@ -0,0 +1,111 @@
+package com.org.orchestrator.spool;
+
+import com.org.orchestrator.model.ExecutionSummary;
+import com.org.orchestrator.model.PipelineResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpoolQueueTest {
+
+    @TempDir
+    Path dir;
+
+    private Path csv(String name) throws Exception {
+        return Files.writeString(dir.resolve(name), "applicationName,projectId,accessToken,branch,variablesAndValues,artifactJobName,order\n");
+    }
+
+    private static ExecutionSummary passed(String name) {
+        ExecutionSummary summary = new ExecutionSummary(name);
+        summary.addPipelineResult(new PipelineResult(1001, "success", Map.of(), Map.of()));
+        return summary;
+    }
+
+    @Test
+    void eachFlowIsClaimedByOneWorkerAndItsResultPublished() throws Exception {
+        Path spool = dir.resolve("spool");
+        try (SpoolQueue w1 = new SpoolQueue(spool, "w1", 60_000, null);
+             SpoolQueue w2 = new SpoolQueue(spool, "w2", 60_000, null)) {
+            List<String> names = w1.enqueue(List.of(csv("a.csv"), csv("b.csv")));
+            assertEquals(List.of("a.csv", "b.csv"), names);
+            // A name already in the spool is made unique.
+            assertEquals(List.of("a-2.csv"), w1.enqueue(List.of(dir.resolve("a.csv"))));
+
+            SpoolQueue.Lease first = w2.claim();
+            SpoolQueue.Lease second = w1.claim();
+            SpoolQueue.Lease third = w2.claim();
+            assertNull(w1.claim());
+            assertEquals(List.of("a-2.csv", "a.csv", "b.csv"), List.of(first.getName(), second.getName(), third.getName()));
+            assertFalse(w1.isDrained());
+
+            for (SpoolQueue.Lease lease : List.of(first, second, third)) {
+                (lease == second ? w1 : w2).complete(lease, passed(lease.getName()));
+            }
+            assertTrue(w1.isDrained());
+            assertEquals("PASSED", w1.result("a.csv").getStatus());
+            assertEquals(1001, w2.result("b.csv").getPipelineResults().get(0).getPipelineId());
+        }
+    }
+
+    @Test
+    void expiredLeaseOfAStoppedWorkerIsResumedFromItsJournal() throws Exception {
+        Path spool = dir.resolve("spool");
+        Path journals = Files.createDirectories(dir.resolve("journals"));
+        SpoolQueue dead = new SpoolQueue(spool, "dead", 500, journals);
+        dead.enqueue(List.of(csv("flow.csv")));
+        assertNotNull(dead.claim());
+        dead.close(); // no more heartbeats
+        Path journal = Files.writeString(journals.resolve("flow.csv-run1.journal"), "");
+        Files.setLastModifiedTime(spool.resolve("leased/dead/flow.csv"), FileTime.fromMillis(System.currentTimeMillis() - 5_000));
+
+        try (SpoolQueue alive = new SpoolQueue(spool, "alive", 500, journals)) {
+            SpoolQueue.Lease lease = alive.claim();
+            assertEquals("flow.csv", lease.getName());
+            assertEquals(journal, lease.getResumeJournal());
+            assertTrue(Files.exists(spool.resolve("leased/alive/flow.csv")));
+
+            alive.complete(lease, passed("flow.csv"));
+            assertFalse(Files.exists(journal), "journals are dropped once the result is published");
+        }
+    }
+
+    @Test
+    void workerThatLostItsLeaseIsToldAndDoesNotPublish() throws Exception {
+        Path spool = dir.resolve("spool");
+        Path journals = Files.createDirectories(dir.resolve("journals"));
+        try (SpoolQueue slow = new SpoolQueue(spool, "slow", 300, journals);
+             SpoolQueue other = new SpoolQueue(spool, "other", 300, journals)) {
+            slow.enqueue(List.of(csv("flow.csv")));
+            SpoolQueue.Lease lost = slow.claim();
+            // What another worker's reclaim does when the heartbeat stalled past the timeout.
+            Files.move(spool.resolve("leased/slow/flow.csv"), spool.resolve("pending/flow.csv"));
+            SpoolQueue.Lease taken = other.claim();
+            assertEquals("flow.csv", taken.getName());
+            Path journal = Files.writeString(journals.resolve("flow.csv-run2.journal"), "");
+
+            String reason = lost.whenLost().get(5, TimeUnit.SECONDS);
+            assertTrue(reason.contains("flow.csv"), reason);
+            assertFalse(taken.whenLost().isDone());
+
+            slow.complete(lost, passed("flow.csv"));
+            assertNull(other.result("flow.csv"));
+            assertTrue(Files.exists(journal), "the new owner's journal must survive");
+            assertTrue(Files.exists(spool.resolve("leased/other/flow.csv")));
+
+            other.complete(taken, passed("flow.csv"));
+            assertEquals("PASSED", slow.result("flow.csv").getStatus());
+        }
+    }
+}
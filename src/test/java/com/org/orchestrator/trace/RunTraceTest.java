@@ -0,0 +1,63 @@
+package com.org.orchestrator.trace;
+
+import com.org.orchestrator.model.PipelineTimings;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RunTraceTest {
+
+    @TempDir
+    Path dir;
+
+    private List<String> files() throws Exception {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.map(f -> f.getFileName().toString()).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static void row(RunTrace trace, long flow, String name) {
+        PipelineTimings t = new PipelineTimings();
+        t.setStarted(Instant.now());
+        trace.rowFinished(flow, name, "app", 7, 1001, "success", t);
+    }
+
+    @Test
+    void runIsWrittenWhenItEnds() throws Exception {
+        try (RunTrace trace = new RunTrace(dir, "run", false)) {
+            long a = trace.flowStarted("a.csv");
+            row(trace, a, "a.csv");
+            trace.flowFinished(a, "PASSED");
+            assertEquals(List.of(), files());
+        }
+        assertEquals(List.of("trace-run-critical-path.txt", "trace-run.json", "trace-run.otlp.json"), files());
+    }
+
+    @Test
+    void perFlowTraceIsWrittenWhenTheFlowFinishes() throws Exception {
+        long b;
+        try (RunTrace trace = new RunTrace(dir, "daemon", true)) {
+            long a = trace.flowStarted("a.csv");
+            b = trace.flowStarted("b.csv");
+            row(trace, a, "a.csv");
+            trace.flowFinished(a, "PASSED");
+            assertEquals(List.of("trace-daemon-a.csv-" + a + "-critical-path.txt", "trace-daemon-a.csv-" + a + ".json",
+                    "trace-daemon-a.csv-" + a + ".otlp.json"), files());
+            assertTrue(Files.readString(dir.resolve("trace-daemon-a.csv-" + a + ".json")).contains("\"pipelineId\":1001"));
+
+            row(trace, b, "b.csv");
+        }
+        // Still open at shutdown, b is written then; nothing is written for the run as a whole.
+        assertEquals(6, files().size());
+        assertTrue(files().contains("trace-daemon-b.csv-" + b + ".json"), files().toString());
+    }
+}
@@ -0,0 +1,232 @@
+package com.org.orchestrator.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PersistentMapTest {
+
+    /**
+     * A key with a chosen hash, to build collisions and deep tries on purpose.
+     */
+    private static final class Key {
+        final String name;
+        final int hash;
+
+        Key(String name, int hash) {
+            this.name = name;
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && ((Key) o).name.equals(name);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public String toString() {
+            return name + "#" + Integer.toHexString(hash);
+        }
+    }
+
+    @Test
+    void updatesLeaveEarlierVersionsUntouched() {
+        PersistentMap<String, String> v1 = PersistentMap.<String, String>empty().plus("A", "1").plus("B", "2");
+        PersistentMap<String, String> v2 = v1.plus("A", "changed").plus("C", "3");
+        assertEquals(Map.of("A", "1", "B", "2"), v1);
+        assertEquals(Map.of("A", "changed", "B", "2", "C", "3"), v2);
+        assertEquals(2, v1.size());
+        assertEquals(3, v2.size());
+    }
+
+    @Test
+    void puttingTheSameValueInstanceReturnsTheSameMap() {
+        String value = "v";
+        PersistentMap<String, String> map = PersistentMap.<String, String>empty().plus("k", value);
+        assertSame(map, map.plus("k", value));
+        assertSame(map, map.plusAll(Map.of("k", value)));
+    }
+
+    @Test
+    void nullValuesAreKeptButNullKeysAreRejected() {
+        PersistentMap<String, String> map = PersistentMap.<String, String>empty().plus("k", null);
+        assertTrue(map.containsKey("k"));
+        assertNull(map.get("k"));
+        assertEquals(1, map.size());
+        assertFalse(map.containsKey(null));
+        assertThrows(NullPointerException.class, () -> map.plus(null, "v"));
+        assertThrows(UnsupportedOperationException.class, () -> map.put("x", "y"));
+    }
+
+    @Test
+    void keysWithIdenticalHashesAreAllKept() {
+        assertEquals("Aa".hashCode(), "BB".hashCode());
+        PersistentMap<Object, Integer> map = PersistentMap.empty();
+        for (int i = 0; i < 10; i++) {
+            map = map.plus(new Key("k" + i, 42), i);
+        }
+        map = map.plus("Aa", 100).plus("BB", 200);
+        assertEquals(12, map.size());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i, map.get(new Key("k" + i, 42)));
+        }
+        assertEquals(100, map.get("Aa"));
+        assertEquals(200, map.get("BB"));
+
+        PersistentMap<Object, Integer> replaced = map.plus(new Key("k3", 42), 33);
+        assertEquals(12, replaced.size());
+        assertEquals(33, replaced.get(new Key("k3", 42)));
+        assertEquals(3, map.get(new Key("k3", 42)));
+        assertNull(map.get(new Key("missing", 42)));
+        assertEquals(expected(map), new HashMap<>(map));
+    }
+
+    @Test
+    void collisionNodeIsSplitWhenAKeyWithAnotherHashReachesIt() {
+        // The colliding pair sits under the root; later keys share ever more low bits with its hash.
+        int hash = 0b00001_00001;
+        PersistentMap<Key, String> map = PersistentMap.<Key, String>empty()
+                .plus(new Key("a", hash), "a")
+                .plus(new Key("b", hash), "b");
+        List<Key> others = List.of(
+                new Key("c", hash ^ (1 << 5)),
+                new Key("d", hash ^ (1 << 10)),
+                new Key("e", hash ^ (1 << 31)),
+                new Key("f", hash ^ (1 << 31)));
+        for (Key k : others) {
+            map = map.plus(k, k.name);
+        }
+        assertEquals(6, map.size());
+        for (String name : List.of("a", "b")) {
+            assertEquals(name, map.get(new Key(name, hash)));
+        }
+        for (Key k : others) {
+            assertEquals(k.name, map.get(k));
+        }
+        assertEquals(expected(map), new HashMap<>(map));
+        assertEquals(6, count(map));
+    }
+
+    @Test
+    void iteratesCollisionsBelowTheDeepestLevel() {
+        // Hashes equal in their low 30 bits fill all seven bitmap levels; identical ones add a collision node below.
+        int low = 0x2A5A5A5A & ((1 << 30) - 1);
+        PersistentMap<Key, Integer> map = PersistentMap.empty();
+        int n = 0;
+        for (int top = 0; top < 4; top++) {
+            int hash = low | (top << 30);
+            for (int i = 0; i < 3; i++) {
+                map = map.plus(new Key("k" + top + "-" + i, hash), n++);
+            }
+        }
+        assertEquals(12, map.size());
+        assertEquals(12, count(map));
+        Map<Key, Integer> viaForEach = new HashMap<>();
+        map.forEach(viaForEach::put);
+        assertEquals(viaForEach, new HashMap<>(map));
+        Iterator<Map.Entry<Key, Integer>> it = map.entrySet().iterator();
+        while (it.hasNext()) {
+            it.next();
+        }
+        assertThrows(NoSuchElementException.class, it::next);
+    }
+
+    @Test
+    void plusAllCountsOnlyNewKeys() {
+        PersistentMap<Object, String> base = PersistentMap.empty();
+        base = base.plus("x", "1").plus(new Key("c1", 7), "c1");
+        Map<Object, String> more = new LinkedHashMap<>();
+        more.put("x", "2");                   // replaced
+        more.put("y", null);                  // new, null value
+        more.put(new Key("c1", 7), "again");  // replaced inside a collision
+        more.put(new Key("c2", 7), "c2");     // new collision
+        more.put(new Key("c3", 7), "c3");     // grows the collision node
+        PersistentMap<Object, String> merged = base.plusAll(more);
+        assertEquals(5, merged.size());
+        assertEquals(5, count(merged));
+        assertEquals(2, base.size());
+        Map<Object, String> expected = new HashMap<>(base);
+        expected.putAll(more);
+        assertEquals(expected, merged);
+        assertSame(merged, merged.plusAll(Map.of()));
+    }
+
+    @Test
+    void copyOfReturnsPersistentMapsAsTheyAre() {
+        PersistentMap<String, String> map = PersistentMap.copyOf(Map.of("a", "1"));
+        assertSame(map, PersistentMap.copyOf(map));
+        assertEquals(Map.of("a", "1"), map);
+        assertEquals(Map.of("a", "1").hashCode(), map.hashCode());
+    }
+
+    @Test
+    void behavesLikeAHashMapUnderRandomUpdates() {
+        Random random = new Random(7);
+        PersistentMap<Key, Integer> map = PersistentMap.empty();
+        Map<Key, Integer> reference = new HashMap<>();
+        List<PersistentMap<Key, Integer>> versions = new ArrayList<>();
+        List<Map<Key, Integer>> snapshots = new ArrayList<>();
+        for (int step = 0; step < 20_000; step++) {
+            // Few distinct hashes and clustered bits force collisions and deep paths.
+            int hash = random.nextInt(64) << random.nextInt(27) | (random.nextBoolean() ? 0 : 0x80000000);
+            Key key = new Key("k" + random.nextInt(5000), hash);
+            if (random.nextInt(10) == 0) {
+                Map<Key, Integer> batch = new HashMap<>();
+                for (int i = 0; i < 5; i++) {
+                    batch.put(new Key("b" + random.nextInt(5000), random.nextInt(16)), step);
+                }
+                map = map.plusAll(batch);
+                reference.putAll(batch);
+            } else {
+                map = map.plus(key, step);
+                reference.put(key, step);
+            }
+            if (step % 2000 == 0) {
+                versions.add(map);
+                snapshots.add(new HashMap<>(reference));
+            }
+        }
+        assertEquals(reference.size(), map.size());
+        assertEquals(reference.size(), count(map));
+        assertEquals(reference, new HashMap<>(map));
+        for (Key k : reference.keySet()) {
+            assertEquals(reference.get(k), map.get(k));
+        }
+        for (int i = 0; i < versions.size(); i++) {
+            assertEquals(snapshots.get(i), new HashMap<>(versions.get(i)), "version " + i);
+        }
+    }
+
+    private static <K, V> Map<K, V> expected(PersistentMap<K, V> map) {
+        Map<K, V> viaForEach = new HashMap<>();
+        map.forEach(viaForEach::put);
+        return viaForEach;
+    }
+
+    private static int count(Map<?, ?> map) {
+        int n = 0;
+        for (Map.Entry<?, ?> ignored : map.entrySet()) {
+            n++;
+        }
+        return n;
+    }
+}